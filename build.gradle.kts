@@ -34,6 +34,7 @@ plugins {
     id("org.jetbrains.dokka") version "2.0.0"
     id("fabric-loom") version "1.10-SNAPSHOT"
     id("com.gradleup.shadow") version "9.0.0-rc1"
+    id("me.champeau.jmh") version "0.7.3"
     id("maven-publish")
 }
 
@@ -207,6 +208,13 @@ tasks {
     }
 }
 
+jmh {
+    jmhVersion = project.property("jmhVersion").toString()
+    warmupIterations = 3
+    iterations = 5
+    fork = 1
+}
+
 kotlin {
     compilerOptions {
         freeCompilerArgs.addAll("-Xcontext-parameters", "-Xconsistent-data-class-copy-visibility")
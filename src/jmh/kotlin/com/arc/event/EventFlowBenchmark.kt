@@ -0,0 +1,75 @@
+package com.arc.event
+
+import com.arc.event.EventFlow.post
+import com.arc.event.listener.Listener
+import com.arc.event.listener.UnsafeListener
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures the cost of posting an [Event] to [EventFlow] with a varying amount of synchronous listeners.
+ *
+ * [snapshotDispatch] goes through [EventFlow.post] and the precompiled [Subscriber.Dispatch],
+ * while [skipListDispatch] replays the previous per-post walk over the [Subscriber]'s skip list.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class EventFlowBenchmark {
+    @Param("1", "10", "100")
+    var listeners = 0
+
+    private val event = BenchmarkEvent()
+    private val owner = BenchmarkOwner()
+
+    @Setup(Level.Trial)
+    fun setup() {
+        repeat(listeners) { priority ->
+            EventFlow.syncListeners.subscribe(
+                UnsafeListener<BenchmarkEvent>(priority, owner) { it.counter++ }
+            )
+        }
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        EventFlow.syncListeners.unsubscribe(owner)
+    }
+
+    @Benchmark
+    fun snapshotDispatch(blackhole: Blackhole) {
+        blackhole.consume(event.post())
+    }
+
+    @Benchmark
+    fun skipListDispatch(blackhole: Blackhole) {
+        EventFlow.syncListeners[BenchmarkEvent::class]?.forEach {
+            @Suppress("UNCHECKED_CAST")
+            val listener = it as? Listener<BenchmarkEvent> ?: return@forEach
+            if (listener.owner is Muteable
+                && (listener.owner as Muteable).isMuted
+                && !listener.alwaysListen
+            ) return@forEach
+            listener.execute(event)
+        }
+        blackhole.consume(event)
+    }
+
+    class BenchmarkEvent : Event {
+        var counter = 0
+    }
+
+    class BenchmarkOwner : Muteable {
+        override val isMuted = false
+    }
+}
@@ -0,0 +1,122 @@
+package com.arc.graphics.pipeline
+
+import com.arc.graphics.buffer.DynamicByteBuffer
+import com.arc.graphics.buffer.DynamicByteBuffer.Companion.dynamicByteBuffer
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.awt.Color
+import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures building and uploading the faces of [boxes] boxes, 8 vertices and 6 quads each.
+ *
+ * [stagingBuilder] goes through [VertexBuilder] and its off-heap staging buffers,
+ * while [dequeBuilder] replays the previous builder, which kept every attribute and boxed index in a concurrent deque.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class VertexBuilderBenchmark {
+    @Param("100000")
+    var boxes = 0
+
+    private val color = Color(100, 150, 255, 51)
+
+    private lateinit var vertices: DynamicByteBuffer
+    private lateinit var indices: DynamicByteBuffer
+
+    @Setup(Level.Invocation)
+    fun setup() {
+        vertices = dynamicByteBuffer(1024 * 1024)
+        indices = dynamicByteBuffer(1024 * 1024)
+    }
+
+    @Benchmark
+    fun stagingBuilder(blackhole: Blackhole) {
+        val builder = VertexBuilder()
+        repeat(boxes) { i ->
+            val base = builder.vertexCount
+            repeat(8) { corner ->
+                builder.vertex {
+                    vec3(i + (corner and 1).toDouble(), (corner shr 1 and 1).toDouble(), (corner shr 2 and 1).toDouble())
+                    color(color)
+                }
+            }
+            QUADS.forEach { builder.buildQuad(base + it[0], base + it[1], base + it[2], base + it[3]) }
+        }
+
+        builder.uploadVertices(vertices)
+        builder.uploadIndices(indices)
+        blackhole.consume(vertices.bytesPut + indices.bytesPut)
+    }
+
+    @Benchmark
+    fun dequeBuilder(blackhole: Blackhole) {
+        val builder = DequeBuilder()
+        repeat(boxes) { i ->
+            val base = builder.vertexCount
+            repeat(8) { corner ->
+                builder.vec3(i + (corner and 1).toDouble(), (corner shr 1 and 1).toDouble(), (corner shr 2 and 1).toDouble())
+                builder.color(color)
+                builder.vertexCount++
+            }
+            QUADS.forEach { builder.buildQuad(base + it[0], base + it[1], base + it[2], base + it[3]) }
+        }
+
+        builder.uploadVertices(vertices)
+        builder.uploadIndices(indices)
+        blackhole.consume(vertices.bytesPut + indices.bytesPut)
+    }
+
+    private class DequeBuilder {
+        val vertices = ConcurrentLinkedDeque<Attribute>()
+        val indices = ConcurrentLinkedDeque<Int>()
+        var vertexCount = 0
+
+        fun vec3(x: Double, y: Double, z: Double) {
+            vertices.add(Attribute.Vec3(x, y, z))
+        }
+
+        fun color(color: Color) {
+            vertices.add(Attribute.Color(color))
+        }
+
+        fun buildQuad(index1: Int, index2: Int, index3: Int, index4: Int) {
+            indices += index1
+            indices += index2
+            indices += index3
+            indices += index3
+            indices += index4
+            indices += index1
+        }
+
+        fun uploadVertices(buffer: DynamicByteBuffer) = vertices.forEach { it.upload(buffer) }
+
+        fun uploadIndices(buffer: DynamicByteBuffer) = indices.forEach { buffer.putInt(it) }
+    }
+
+    private sealed class Attribute(val upload: DynamicByteBuffer.() -> Unit) {
+        class Vec3(x: Double, y: Double, z: Double) : Attribute({ putVec3(x, y, z) })
+        class Color(color: java.awt.Color) : Attribute({ putColor(color) })
+    }
+
+    private companion object {
+        val QUADS = arrayOf(
+            intArrayOf(0, 1, 3, 2),
+            intArrayOf(4, 6, 7, 5),
+            intArrayOf(0, 4, 5, 1),
+            intArrayOf(2, 3, 7, 6),
+            intArrayOf(0, 2, 6, 4),
+            intArrayOf(1, 5, 7, 3),
+        )
+    }
+}
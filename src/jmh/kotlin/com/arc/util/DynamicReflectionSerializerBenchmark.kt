@@ -0,0 +1,183 @@
+package com.arc.util
+
+import com.arc.util.DynamicReflectionSerializer.dynamicName
+import com.arc.util.DynamicReflectionSerializer.dynamicString
+import com.mojang.serialization.Codec
+import net.minecraft.block.BlockState
+import net.minecraft.client.resource.language.TranslationStorage
+import net.minecraft.item.ItemStack
+import net.minecraft.nbt.NbtCompound
+import net.minecraft.network.packet.c2s.common.KeepAliveC2SPacket
+import net.minecraft.network.packet.c2s.play.HandSwingC2SPacket
+import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket
+import net.minecraft.network.packet.c2s.play.UpdateSelectedSlotC2SPacket
+import net.minecraft.registry.RegistryKey
+import net.minecraft.registry.entry.RegistryEntry
+import net.minecraft.screen.ScreenHandlerType
+import net.minecraft.text.MutableText
+import net.minecraft.text.Text
+import net.minecraft.util.Hand
+import net.minecraft.util.Identifier
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import org.apache.logging.log4j.Logger
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.lang.reflect.InaccessibleObjectException
+import java.util.*
+import java.util.concurrent.TimeUnit
+import kotlin.jvm.optionals.getOrDefault
+import kotlin.reflect.KProperty1
+import kotlin.reflect.full.memberProperties
+import kotlin.reflect.jvm.javaField
+import kotlin.reflect.jvm.jvmErasure
+
+/**
+ * Measures how many packets per millisecond [DynamicReflectionSerializer.dynamicString] renders.
+ *
+ * [cachedPlans] goes through the per-class accessor plans, while [memberProperties] replays
+ * the previous recursive walk over the Kotlin member properties of every object on every call,
+ * with the same depth limit, skipped types and value formatting.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class DynamicReflectionSerializerBenchmark {
+    private val packets = listOf(
+        PlayerMoveC2SPacket.Full(12.5, 64.0, -3.25, 90f, 12f, true, false),
+        PlayerMoveC2SPacket.LookAndOnGround(45f, -10f, false, false),
+        KeepAliveC2SPacket(123456789L),
+        HandSwingC2SPacket(Hand.MAIN_HAND),
+        UpdateSelectedSlotC2SPacket(4),
+    )
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    fun cachedPlans(blackhole: Blackhole) {
+        packets.forEach { blackhole.consume(it.dynamicString(remap = false)) }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PACKETS)
+    fun memberProperties(blackhole: Blackhole) {
+        packets.forEach { blackhole.consume(it.legacyDynamicString()) }
+    }
+
+    private fun Any.legacyDynamicString(
+        maxRecursionDepth: Int = 6,
+        currentDepth: Int = 0,
+        indent: String = "",
+        visitedObjects: MutableSet<Any> = HashSet(),
+        builder: StringBuilder = StringBuilder(),
+    ): String {
+        if (visitedObjects.contains(this)) {
+            builder.appendLine("$indent${this::class.dynamicName(remap = false)} (Circular Reference)")
+            return builder.toString()
+        }
+
+        visitedObjects.add(this)
+        builder.appendLine("$indent${this::class.dynamicName(remap = false)}")
+
+        this::class.memberProperties
+            .forEach { processField(it, indent, builder, currentDepth, maxRecursionDepth, visitedObjects) }
+
+        return builder.toString()
+    }
+
+    private fun <T : Any> T.processField(
+        field: KProperty1<out T, *>,
+        indent: String,
+        builder: StringBuilder,
+        currentDepth: Int,
+        maxRecursionDepth: Int,
+        visitedObjects: MutableSet<Any>,
+    ) {
+        if (skipFields.any { it.isInstance(field) }) return
+
+        try {
+            field.javaField?.isAccessible = true
+        } catch (_: InaccessibleObjectException) {
+            return
+        }
+
+        val fieldValue = field.javaField?.get(this)
+        val fieldIndent = "$indent${" ".repeat(INDENT)}"
+        builder.appendLine("$fieldIndent${field.name}: ${fieldValue.formatFieldValue()}")
+
+        if (currentDepth < maxRecursionDepth
+            && fieldValue != null
+            && !field.returnType.jvmErasure.java.isPrimitive
+            && !field.returnType.jvmErasure.java.isArray
+            && !field.returnType.jvmErasure.java.isEnum
+            && skipables.none { it.isInstance(field.returnType.jvmErasure) }
+        ) {
+            fieldValue.legacyDynamicString(
+                maxRecursionDepth,
+                currentDepth + 1,
+                "$fieldIndent${" ".repeat(INDENT)}",
+                visitedObjects,
+                builder,
+            )
+        }
+    }
+
+    private fun Any?.formatFieldValue(): String =
+        when (this) {
+            is String -> "\"${this}\""
+            is Collection<*> -> "[${joinToString(", ") { it.formatFieldValue() }}]"
+            is Array<*> -> "[${joinToString(", ") { it.formatFieldValue() }}]"
+            is Map<*, *> -> "{${
+                entries.joinToString(", ") { (k, v) ->
+                    "${k.formatFieldValue()}: ${v.formatFieldValue()}"
+                }
+            }}"
+
+            is Text -> string
+            is Identifier -> "$namespace:$path"
+            is NbtCompound -> asString().getOrDefault("")
+            is RegistryEntry<*> -> "${value()}"
+            null -> "null"
+            else -> {
+                if (this::class.qualifiedName?.contains("minecraft") == true) "${this::class.dynamicName(remap = false)}@${Integer.toHexString(hashCode())}"
+                else this.toString()
+            }
+        }
+
+    private companion object {
+        const val PACKETS = 5
+        const val INDENT = 2
+
+        // The types the previous walk did not recurse into
+        val skipables = setOf(
+            Codec::class,
+            Logger::class,
+            BlockPos::class,
+            BlockState::class,
+            ItemStack::class,
+            Identifier::class,
+            NbtCompound::class,
+            Map::class,
+            BitSet::class,
+            Collection::class,
+            RegistryEntry::class,
+            RegistryKey::class,
+            ScreenHandlerType::class,
+            TranslationStorage::class,
+            ChunkPos::class,
+            Text::class,
+            MutableText::class,
+            org.slf4j.Logger::class,
+            String::class,
+        )
+
+        val skipFields = setOf(
+            Codec::class,
+        )
+    }
+}
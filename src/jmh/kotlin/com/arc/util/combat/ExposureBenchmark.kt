@@ -0,0 +1,66 @@
+package com.arc.util.combat
+
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.Vec3d
+import net.minecraft.util.shape.VoxelShapes
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how many crystal candidates per millisecond the exposure of a player-sized target can be evaluated for.
+ *
+ * The world is a floor with a pillar every third block, the candidates are every floor block within 6 blocks.
+ * [sequential] raycasts every candidate on one thread, [parallel] goes through [Exposure.parallelMap]
+ * and [cached] reads the exposures from an [Exposure.Cache] while the world version does not change.
+ *
+ * Only [Exposure] is used, so no game state or event listener is set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class ExposureBenchmark {
+    private val target = Box(2.7, 1.0, 2.7, 3.3, 2.8, 3.3)
+
+    private val candidates = buildList {
+        for (x in -RADIUS..RADIUS) for (z in -RADIUS..RADIUS) add(Vec3d(x + 0.5, 1.0, z + 0.5))
+    }
+
+    private val snapshot = CollisionSnapshot(Box(-8.0, 0.0, -8.0, 8.0, 4.0, 8.0)) { pos ->
+        val isPillar = pos.y in 1..2 && pos.x % 3 == 0 && pos.z % 3 == 0
+        if (pos.y == 0 || isPillar) VoxelShapes.fullCube() else VoxelShapes.empty()
+    }
+
+    private val cache = Exposure.Cache(CANDIDATES)
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    fun sequential(blackhole: Blackhole) {
+        candidates.forEach { blackhole.consume(Exposure.calculate(it, target, snapshot)) }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    fun parallel(blackhole: Blackhole) {
+        blackhole.consume(Exposure.parallelMap(candidates) { Exposure.calculate(it, target, snapshot) })
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    fun cached(blackhole: Blackhole) {
+        candidates.forEach {
+            blackhole.consume(cache.getOrCalculate(it, target, 0) { Exposure.calculate(it, target, snapshot) })
+        }
+    }
+
+    private companion object {
+        const val RADIUS = 6
+        const val CANDIDATES = (RADIUS * 2 + 1) * (RADIUS * 2 + 1)
+    }
+}
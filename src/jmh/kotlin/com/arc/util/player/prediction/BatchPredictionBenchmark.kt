@@ -0,0 +1,53 @@
+package com.arc.util.player.prediction
+
+import net.minecraft.util.math.Box
+import net.minecraft.util.shape.VoxelShapes
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how many entity ticks per millisecond [BatchPrediction] simulates.
+ *
+ * 16 players run in different directions over a floor with a wall every eighth block,
+ * so that ground friction, collisions and stepping are all exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class BatchPredictionBenchmark {
+    private val area = MovementArea(Box(-32.0, 0.0, -32.0, 32.0, 4.0, 32.0), { pos ->
+        val isWall = pos.y == 1 && (pos.x % 8 == 0 || pos.z % 8 == 0)
+        if (pos.y == 0 || isWall) VoxelShapes.fullCube() else VoxelShapes.empty()
+    }, { MovementArea.DEFAULT_SLIPPERINESS })
+
+    private val prediction = BatchPrediction(ENTITIES)
+
+    @Benchmark
+    @OperationsPerInvocation(ENTITIES * TICKS)
+    fun simulate(blackhole: Blackhole) {
+        prediction.clear()
+        repeat(ENTITIES) {
+            val angle = it * Math.PI * 2 / ENTITIES
+            prediction.add(
+                it % 4 + 0.5, 1.0, it / 4 + 0.5,
+                Math.cos(angle) * 0.28, -0.0784, Math.sin(angle) * 0.28,
+                0.6, 1.8, true,
+            )
+        }
+
+        prediction.simulate(area, TICKS)
+        blackhole.consume(prediction.x(ENTITIES - 1, TICKS))
+    }
+
+    private companion object {
+        const val ENTITIES = 16
+        const val TICKS = 20
+    }
+}
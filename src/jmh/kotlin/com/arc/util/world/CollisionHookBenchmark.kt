@@ -0,0 +1,105 @@
+package com.arc.util.world
+
+import com.arc.event.EventFlow
+import com.arc.event.EventFlow.post
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.UnsafeListener
+import net.minecraft.SharedConstants
+import net.minecraft.Bootstrap
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
+import net.minecraft.world.EmptyBlockView
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Level
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OperationsPerInvocation
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Param
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.TearDown
+import org.openjdk.jmh.infra.Blackhole
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how many entity movement ticks per millisecond the collision shapes can be gathered for.
+ *
+ * Every tick visits the blocks around a player-sized box moving over a stone floor with water on top,
+ * like `BlockCollisionSpliterator` does, and replaces the water shape like Jesus does.
+ * `none` calls no hook, `event` posts a [WorldEvent.Collision] per block to a listener
+ * and `registry` goes through [CollisionOverrides.apply] without any event listener.
+ * The client world check of [CollisionOverrides.wrap] is left out, as no client world exists here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+open class CollisionHookBenchmark {
+    @Param("none", "event", "registry")
+    var hook = ""
+
+    private val owner = Any()
+    private val pos = BlockPos.Mutable()
+    private lateinit var states: Array<BlockState>
+    private var override: CollisionOverrides.Override? = null
+
+    @Setup(Level.Trial)
+    fun setup() {
+        SharedConstants.createGameVersion()
+        Bootstrap.initialize()
+
+        states = Array(SIZE * SIZE * 3) { index ->
+            when (index / (SIZE * SIZE)) {
+                0 -> Blocks.STONE.defaultState
+                1 -> Blocks.WATER.defaultState
+                else -> Blocks.AIR.defaultState
+            }
+        }
+
+        when (hook) {
+            "event" -> EventFlow.syncListeners.subscribe(
+                UnsafeListener<WorldEvent.Collision>(0, owner) {
+                    if (it.state.isOf(Blocks.WATER)) it.shape = VoxelShapes.fullCube()
+                }
+            )
+
+            "registry" -> override = CollisionOverrides.register(owner, VoxelShapes.fullCube(), Blocks.WATER)
+        }
+    }
+
+    @TearDown(Level.Trial)
+    fun tearDown() {
+        EventFlow.syncListeners.unsubscribe(owner)
+        override?.let { CollisionOverrides.unregister(it) }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TICKS)
+    fun tick(blackhole: Blackhole) {
+        repeat(TICKS) { tick ->
+            val startX = tick % (SIZE - 2)
+            val startZ = tick / (SIZE - 2) % (SIZE - 2)
+
+            for (x in startX..startX + 2) for (z in startZ..startZ + 2) for (y in 0..2) {
+                val state = states[x + SIZE * (z + SIZE * y)]
+                pos.set(x, y, z)
+                blackhole.consume(shape(state, state.getCollisionShape(EmptyBlockView.INSTANCE, pos)))
+            }
+        }
+    }
+
+    private fun shape(state: BlockState, shape: VoxelShape) = when (hook) {
+        "event" -> WorldEvent.Collision(pos, state, shape).post().shape
+        "registry" -> CollisionOverrides.apply(state, shape)
+        else -> shape
+    }
+
+    private companion object {
+        const val SIZE = 16
+        const val TICKS = 64
+    }
+}
@@ -46,9 +46,9 @@ public abstract class ClientPlayerEntityMixin extends AbstractClientPlayerEntity
 
     @WrapOperation(method = "move", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/network/AbstractClientPlayerEntity;move(Lnet/minecraft/entity/MovementType;Lnet/minecraft/util/math/Vec3d;)V"))
     private void emitMovementEvents(ClientPlayerEntity instance, MovementType movementType, Vec3d vec3d, Operation<Void> original) {
-        EventFlow.post(new MovementEvent.Player.Pre(movementType, vec3d));
+        MovementEvent.Player.Pre.post(movementType, vec3d);
         original.call(instance, movementType, vec3d);
-        EventFlow.post(new MovementEvent.Player.Post(movementType, vec3d));
+        MovementEvent.Player.Post.post(movementType, vec3d);
     }
 
     @WrapOperation(method = "tickMovement", at = @At(value = "INVOKE", target = "Lnet/minecraft/client/input/Input;tick()V"))
@@ -71,14 +71,14 @@ public abstract class LivingEntityMixin extends EntityMixin {
 
     @Inject(method = "travel", at = @At("HEAD"), cancellable = true)
     void onTravelPre(Vec3d movementInput, CallbackInfo ci) {
-        if (EventFlow.post(new MovementEvent.Entity.Pre(arc$instance, movementInput)).isCanceled()) {
+        if (MovementEvent.Entity.Pre.post(arc$instance, movementInput).isCanceled()) {
             ci.cancel();
         }
     }
 
     @Inject(method = "travel", at = @At("TAIL"))
     void onTravelPost(Vec3d movementInput, CallbackInfo ci) {
-        EventFlow.post(new MovementEvent.Entity.Post(arc$instance, movementInput));
+        MovementEvent.Entity.Post.post(arc$instance, movementInput);
     }
 
     /**
@@ -33,7 +33,7 @@ public class ClientConnectionMixin {
     private void sendingPacket(Packet<?> packet, final CallbackInfo callbackInfo) {
         if (side != NetworkSide.CLIENTBOUND) return;
 
-        if (EventFlow.post(new PacketEvent.Send.Pre((Packet<? extends ServerPlayPacketListener>) packet)).isCanceled()) {
+        if (PacketEvent.Send.Pre.post((Packet<? extends ServerPlayPacketListener>) packet).isCanceled()) {
             callbackInfo.cancel();
         }
     }
@@ -43,7 +43,7 @@ public class ClientConnectionMixin {
     private void sendingPacketPost(Packet<?> packet, final CallbackInfo callbackInfo) {
         if (side != NetworkSide.CLIENTBOUND) return;
 
-        EventFlow.post(new PacketEvent.Send.Post((Packet<? extends ServerPlayPacketListener>) packet));
+        PacketEvent.Send.Post.post((Packet<? extends ServerPlayPacketListener>) packet);
     }
 
     @SuppressWarnings("unchecked")
@@ -55,7 +55,7 @@ public class ClientConnectionMixin {
     ) {
         if (side != NetworkSide.CLIENTBOUND) return;
 
-        if (EventFlow.post(new PacketEvent.Receive.Pre((Packet<? extends ClientPlayPacketListener>) packet)).isCanceled()) {
+        if (PacketEvent.Receive.Pre.post((Packet<? extends ClientPlayPacketListener>) packet).isCanceled()) {
             callbackInfo.cancel();
         }
     }
@@ -69,7 +69,7 @@ public class ClientConnectionMixin {
     ) {
         if (side != NetworkSide.CLIENTBOUND) return;
 
-        EventFlow.post(new PacketEvent.Receive.Post((Packet<? extends ClientPlayPacketListener>) packet));
+        PacketEvent.Receive.Post.post((Packet<? extends ClientPlayPacketListener>) packet);
     }
 
     @Inject(method = "connect(Ljava/lang/String;ILnet/minecraft/network/state/NetworkState;Lnet/minecraft/network/state/NetworkState;Lnet/minecraft/network/listener/ClientPacketListener;Lnet/minecraft/network/packet/c2s/handshake/ConnectionIntent;)V", at = @At("HEAD"), cancellable = true)
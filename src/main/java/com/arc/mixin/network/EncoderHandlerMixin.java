@@ -0,0 +1,27 @@
+package com.arc.mixin.network;
+
+import com.arc.module.modules.network.PacketLogger;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import net.minecraft.network.handler.EncoderHandler;
+import net.minecraft.network.listener.PacketListener;
+import net.minecraft.network.packet.Packet;
+import net.minecraft.network.state.NetworkState;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(EncoderHandler.class)
+public class EncoderHandlerMixin<T extends PacketListener> {
+    @Shadow
+    @Final
+    private NetworkState<T> state;
+
+    @Inject(method = "encode(Lio/netty/channel/ChannelHandlerContext;Lnet/minecraft/network/packet/Packet;Lio/netty/buffer/ByteBuf;)V", at = @At("TAIL"))
+    private void onEncode(ChannelHandlerContext context, Packet<T> packet, ByteBuf out, CallbackInfo ci) {
+        PacketLogger.capture(state, out, false);
+    }
+}
@@ -3,7 +3,6 @@ package com.arc.mixin.render;
 
 import com.arc.module.modules.render.BlockESP;
 import net.minecraft.block.BlockState;
-import net.minecraft.block.Blocks;
 import net.minecraft.client.render.block.BlockRenderManager;
 import net.minecraft.client.render.model.BlockStateModel;
 import org.spongepowered.asm.mixin.Mixin;
@@ -15,9 +14,6 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 public abstract class BlockRenderManagerMixin {
     @Inject(method = "getModel", at = @At("HEAD"), cancellable = true)
     private void getModel(BlockState state, CallbackInfoReturnable<BlockStateModel> cir) {
-        if (BlockESP.INSTANCE.isEnabled()
-                && BlockESP.getBarrier()
-                && state.getBlock() == Blocks.BARRIER
-        ) cir.setReturnValue(BlockESP.getModel());
+        if (BlockESP.isSolidBarrier(state)) cir.setReturnValue(BlockESP.getModel());
     }
 }
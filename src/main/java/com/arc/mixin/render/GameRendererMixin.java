@@ -1,7 +1,6 @@
 
 package com.arc.mixin.render;
 
-import com.arc.event.EventFlow;
 import com.arc.event.events.RenderEvent;
 import com.arc.graphics.RenderMain;
 import com.arc.module.modules.render.NoRender;
@@ -26,7 +25,7 @@ import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 public class GameRendererMixin {
     @Inject(method = "updateCrosshairTarget(F)V", at = @At("HEAD"), cancellable = true)
     private void updateTargetedEntityInvoke(float tickDelta, CallbackInfo info) {
-        if (EventFlow.post(new RenderEvent.UpdateTarget()).isCanceled()) {
+        if (RenderEvent.UpdateTarget.post().isCanceled()) {
             info.cancel();
         }
     }
@@ -2,8 +2,7 @@
 package com.arc.mixin.world;
 
 import com.google.common.collect.AbstractIterator;
-import com.arc.event.EventFlow;
-import com.arc.event.events.WorldEvent;
+import com.arc.util.world.CollisionOverrides;
 import net.minecraft.block.BlockState;
 import net.minecraft.block.ShapeContext;
 import net.minecraft.util.math.BlockPos;
@@ -19,8 +18,6 @@ import org.spongepowered.asm.mixin.injection.At;
 public abstract class BlockCollisionSpliteratorMixin<T extends AbstractIterator<T>> {
     @WrapOperation(method = "computeNext", at = @At(value = "INVOKE", target = "Lnet/minecraft/block/ShapeContext;getCollisionShape(Lnet/minecraft/block/BlockState;Lnet/minecraft/world/CollisionView;Lnet/minecraft/util/math/BlockPos;)Lnet/minecraft/util/shape/VoxelShape;"))
     private VoxelShape wrapCollisionShape(ShapeContext instance, BlockState blockState, CollisionView collisionView, BlockPos blockPos, Operation<VoxelShape> original) {
-        VoxelShape collisionShape = original.call(instance, blockState, collisionView, blockPos);
-        WorldEvent.Collision event = EventFlow.post(new WorldEvent.Collision(blockPos, blockState, collisionShape));
-        return event.getShape();
+        return CollisionOverrides.wrap(collisionView, blockPos, blockState, original.call(instance, blockState, collisionView, blockPos));
     }
 }
@@ -19,7 +19,6 @@ import com.arc.task.tasks.BuildTask.Companion.build
 import com.arc.threading.runSafe
 import com.arc.util.Communication.info
 import com.arc.util.extension.CommandBuilder
-import com.arc.util.extension.move
 import java.nio.file.InvalidPathException
 import java.nio.file.NoSuchFileException
 import java.nio.file.Path
@@ -0,0 +1,55 @@
+package com.arc.command.commands
+
+import com.arc.brigadier.CommandResult.Companion.failure
+import com.arc.brigadier.CommandResult.Companion.success
+import com.arc.brigadier.argument.greedyString
+import com.arc.brigadier.argument.literal
+import com.arc.brigadier.argument.value
+import com.arc.brigadier.executeWithResult
+import com.arc.brigadier.required
+import com.arc.command.ArcCommand
+import com.arc.network.capture.PacketCaptureDecoder
+import com.arc.threading.runIO
+import com.arc.util.Communication.info
+import com.arc.util.Communication.logError
+import com.arc.util.FileUtils.listRecursive
+import com.arc.util.FolderRegister
+import com.arc.util.extension.CommandBuilder
+import kotlin.io.path.exists
+
+object PacketCaptureCommand : ArcCommand(
+    name = "packetcapture",
+    usage = "packetcapture decode <text | json> <capture>",
+    description = "Decodes a binary packet capture of the packet logger to text or JSON"
+) {
+    override fun CommandBuilder.create() {
+        required(literal("decode")) {
+            PacketCaptureDecoder.Format.entries.forEach { format ->
+                required(literal(format.name.lowercase())) {
+                    required(greedyString("capture")) { capture ->
+                        suggests { _, builder ->
+                            val dir = FolderRegister.packetLogs.toFile()
+                            dir.listRecursive { it.isFile && it.extension == "arccap" }.forEach {
+                                builder.suggest(it.relativeTo(dir).path)
+                            }
+                            builder.buildFuture()
+                        }
+
+                        executeWithResult {
+                            val file = FolderRegister.packetLogs.resolve(capture().value())
+                            if (!file.exists()) return@executeWithResult failure("Packet capture does not exist")
+
+                            runIO {
+                                runCatching { PacketCaptureDecoder.decode(file, format) }
+                                    .onSuccess { this@PacketCaptureCommand.info("Decoded packet capture to ${it.fileName}") }
+                                    .onFailure { this@PacketCaptureCommand.logError("Failed to decode packet capture: ${it.message}") }
+                            }
+
+                            success()
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
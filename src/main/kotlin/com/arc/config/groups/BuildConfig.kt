@@ -15,6 +15,7 @@ interface BuildConfig : ISettingGroup {
     val maxPendingActions: Int
     val actionTimeout: Int
     val maxBuildDependencies: Int
+    val simulationBudget: Int
 
     val entityReach: Double
     val blockReach: Double
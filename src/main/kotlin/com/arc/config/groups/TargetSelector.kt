@@ -0,0 +1,189 @@
+package com.arc.config.groups
+
+import com.arc.config.Configurable
+import com.arc.context.SafeContext
+import com.arc.event.events.TickEvent
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.SafeListener.Companion.listen
+import com.arc.util.extension.fullHealth
+import com.arc.util.world.EntityIndex
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import net.minecraft.entity.LivingEntity
+import java.util.*
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Selects the targets of a [Targeting.Combat] configuration at most once per tick.
+ *
+ * The first call to [target] or [candidates] in a tick scores the entities in range, later calls in the same tick
+ * return the cached result, so every module sharing a configuration or asking more than once pays for a single search.
+ *
+ * Scores are kept per entity between ticks and only recomputed for entities that moved or changed health,
+ * unless the player moved, rotated or the priority changed. The best [CANDIDATES] are kept in a bounded heap.
+ *
+ * @property owner The configurable the targeting settings belong to.
+ */
+class TargetSelector internal constructor(
+    val owner: Configurable,
+    private val targeting: Targeting.Combat,
+) {
+    private val scores = Int2ObjectOpenHashMap<Score>()
+    private val heap = PriorityQueue<Score>(CANDIDATES + 1, compareByDescending { it.value })
+    private val sorted = ArrayList<Score>(CANDIDATES)
+
+    @Volatile
+    private var selectedTick = -1L
+
+    @Volatile
+    private var selected: List<LivingEntity> = emptyList()
+
+    private var lastX = Double.NaN
+    private var lastY = Double.NaN
+    private var lastZ = Double.NaN
+    private var lastYaw = Float.NaN
+    private var lastPitch = Float.NaN
+    private var lastPriority: Targeting.Priority? = null
+
+    /** The amount of selections run, one per tick at most */
+    var selections = 0L
+        private set
+
+    /** The amount of requests answered from the cache */
+    var cacheHits = 0L
+        private set
+
+    /** The amount of entities that passed validation in the last selection */
+    var scored = 0
+        private set
+
+    /** The amount of entities whose score had to be recomputed in the last selection */
+    var rescored = 0
+        private set
+
+    /** The time the last selection took */
+    var lastNanos = 0L
+        private set
+
+    private var totalNanos = 0L
+
+    /** The average time a selection took */
+    val averageNanos get() = if (selections == 0L) 0L else totalNanos / selections
+
+    init {
+        instances.add(this)
+    }
+
+    /**
+     * Returns the best target of the current tick, or `null` if no valid target is in range.
+     */
+    fun SafeContext.target(): LivingEntity? = candidates().firstOrNull()
+
+    /**
+     * Returns up to [CANDIDATES] valid targets of the current tick, best first.
+     */
+    @Synchronized
+    fun SafeContext.candidates(): List<LivingEntity> {
+        val current = selected
+        if (selectedTick == tick && current.none { it.isRemoved }) {
+            cacheHits++
+            return current
+        }
+
+        val start = System.nanoTime()
+        select()
+
+        lastNanos = System.nanoTime() - start
+        totalNanos += lastNanos
+        selections++
+        selectedTick = tick
+        return selected
+    }
+
+    private fun SafeContext.select() {
+        val priority = targeting.priority
+        val playerChanged = player.x != lastX || player.y != lastY || player.z != lastZ ||
+                player.yaw != lastYaw || player.pitch != lastPitch || priority != lastPriority
+
+        lastX = player.x; lastY = player.y; lastZ = player.z
+        lastYaw = player.yaw; lastPitch = player.pitch
+        lastPriority = priority
+
+        scored = 0
+        rescored = 0
+        heap.clear()
+
+        EntityIndex.forEachInRange<LivingEntity>(player.pos, targeting.targetingRange, exclude = player) { entity ->
+            if (!targeting.validate(player, entity)) return@forEachInRange
+
+            val score = scores.get(entity.id)
+                ?.takeIf { it.entity === entity }
+                ?: Score(entity).also { scores.put(entity.id, it) }
+
+            if (playerChanged || score.isOutdated()) {
+                score.update(priority.factor(this, entity))
+                rescored++
+            }
+
+            score.tick = tick
+            scored++
+
+            heap.add(score)
+            if (heap.size > CANDIDATES) heap.poll()
+        }
+
+        scores.values.removeIf { it.tick != tick }
+
+        sorted.clear()
+        while (heap.isNotEmpty()) sorted.add(heap.poll())
+        selected = List(sorted.size) { sorted[sorted.size - 1 - it].entity }
+    }
+
+    @Synchronized
+    internal fun clear() {
+        scores.clear()
+        selected = emptyList()
+        selectedTick = -1L
+    }
+
+    override fun toString() =
+        "${owner.name}: ${selected.size} candidates, $scored scored ($rescored rescored), " +
+                "${"%.3f".format(lastNanos / 1e6)}ms (${"%.3f".format(averageNanos / 1e6)}ms avg), $cacheHits cached"
+
+    private class Score(val entity: LivingEntity) {
+        var x = Double.NaN
+        var y = Double.NaN
+        var z = Double.NaN
+        var health = Double.NaN
+        var value = 0.0
+        var tick = -1L
+
+        fun isOutdated() =
+            entity.x != x || entity.y != y || entity.z != z || entity.fullHealth != health
+
+        fun update(value: Double) {
+            x = entity.x; y = entity.y; z = entity.z
+            health = entity.fullHealth
+            this.value = value
+        }
+    }
+
+    companion object {
+        /** The amount of candidates kept per configuration */
+        const val CANDIDATES = 8
+
+        /**
+         * Every created [TargetSelector], for diagnostics.
+         */
+        val instances = CopyOnWriteArrayList<TargetSelector>()
+
+        @Volatile
+        private var tick = 0L
+
+        init {
+            // Runs before any module asks for a target in the same tick
+            listen<TickEvent.Pre>(priority = Int.MAX_VALUE) { tick++ }
+
+            listen<WorldEvent.Join> { instances.forEach { it.clear() } }
+        }
+    }
+}
@@ -12,7 +12,6 @@ import com.arc.threading.runSafe
 import com.arc.util.NamedEnum
 import com.arc.util.extension.fullHealth
 import com.arc.util.math.distSq
-import com.arc.util.world.fastEntitySearch
 import net.minecraft.client.network.ClientPlayerEntity
 import net.minecraft.client.network.OtherClientPlayerEntity
 import net.minecraft.entity.LivingEntity
@@ -147,19 +146,28 @@ abstract class Targeting(
             return super.validate(player, entity)
         }
 
+        /**
+         * Selects and caches the targets of this configuration once per tick.
+         */
+        val selector = TargetSelector(c, this)
+
         /**
          * Gets the best target for combat based on the current settings and priority.
+         * The result is computed once per tick and shared between all callers.
          *
          * @return The best [LivingEntity] target, or `null` if no valid target is found.
          */
         fun target(): LivingEntity? = runSafe {
-            return@runSafe fastEntitySearch<LivingEntity>(targetingRange) {
-                validate(player, it)
-            }.minByOrNull {
-                priority.factor(this, it)
-            }
+            with(selector) { target() }
         }
 
+        /**
+         * Gets up to [TargetSelector.CANDIDATES] valid targets of the current tick, best first.
+         */
+        fun candidates(): List<LivingEntity> = runSafe {
+            with(selector) { candidates() }
+        } ?: emptyList()
+
         private val illegalTargets = setOf(
             UUID(5706954458220675710, -6736729783554821869),
             UUID(-2945922493004570036, -7599209072395336449)
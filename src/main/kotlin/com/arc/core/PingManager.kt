@@ -24,9 +24,10 @@ object PingManager : Loadable {
         }
 
         listen<PacketEvent.Receive.Pre> { event ->
-            if (event.packet !is PingResultS2CPacket) return@listen
+            val packet = event.packet
+            if (packet !is PingResultS2CPacket) return@listen
 
-            pings.add(Util.getMeasuringTimeMs() - event.packet.startTime)
+            pings.add(Util.getMeasuringTimeMs() - packet.startTime)
         }
     }
 }
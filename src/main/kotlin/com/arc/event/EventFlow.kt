@@ -9,7 +9,6 @@ import com.arc.event.EventFlow.post
 import com.arc.event.EventFlow.syncListeners
 import com.arc.event.callback.ICancellable
 import com.arc.event.listener.Listener
-import com.arc.threading.runConcurrent
 import com.arc.threading.runSafe
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -20,10 +19,11 @@ import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.filter
 import kotlinx.coroutines.flow.filterIsInstance
-import kotlinx.coroutines.flow.filterNot
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.withTimeout
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.reflect.KClass
 import kotlin.time.Duration
 
 
@@ -49,7 +49,8 @@ object EventFlow {
     /**
      * [concurrentFlow] is a [MutableSharedFlow] of [Event]s with a buffer capacity to handle event emissions.
      *
-     * Events emitted to this flow are processed by concurrent listeners, allowing for parallel event handling.
+     * Events are only emitted to this flow while it is collected, e.g. by [blockUntilEvent] or [collectEvents].
+     * Concurrent listeners are fed through their dedicated [EventLane]s instead.
      *
      * The buffer overflow strategy is set to [BufferOverflow.DROP_OLDEST], meaning that when the buffer is full,
      * the oldest event will be dropped to accommodate a new event.
@@ -76,22 +77,45 @@ object EventFlow {
      */
     val concurrentListeners = Subscriber()
 
+    /**
+     * [lanes] holds one [EventLane] per [Event] type that has been dispatched to concurrent listeners.
+     *
+     * Each lane has its own capacity and overflow strategy, so heavy traffic of one event type
+     * cannot evict events of another type. Lanes are created lazily on the first dispatch.
+     */
+    private val lanes = ConcurrentHashMap<KClass<out Event>, EventLane>()
+
+    /**
+     * Overrides of the [EventLane] settings for specific [Event] types, see [configureLane].
+     */
+    private val laneSettings = ConcurrentHashMap<KClass<out Event>, Pair<Int, BufferOverflow>>()
+
+    /**
+     * All [EventLane]s that are currently in use.
+     */
+    val activeLanes: Collection<EventLane> get() = lanes.values
+
     fun Any.unsubscribe() {
         syncListeners.unsubscribe(this)
         concurrentListeners.unsubscribe(this)
     }
 
-    init {
-        // parallel event execution on dedicated threads
-        runConcurrent {
-            concurrentFlow
-                // early filter to avoid an unnecessary collection
-                .filter { concurrentListeners.containsKey(it::class) }
-                .filterNot { it is ICancellable && it.isCanceled() }
-                .collect { event ->
-                    event.executeListenerConcurrently()
-                }
-        }
+    /**
+     * Configures the [EventLane] used to deliver events of [eventType] to concurrent listeners.
+     *
+     * If a lane already exists, it is replaced and the old one is drained before it stops.
+     *
+     * @param eventType The type of the event.
+     * @param capacity The maximum amount of queued events.
+     * @param overflow The strategy applied when the lane is full, either [BufferOverflow.DROP_OLDEST] or [BufferOverflow.DROP_LATEST].
+     */
+    fun configureLane(
+        eventType: KClass<out Event>,
+        capacity: Int = DEFAULT_LANE_CAPACITY,
+        overflow: BufferOverflow = BufferOverflow.DROP_OLDEST,
+    ) {
+        laneSettings[eventType] = capacity to overflow
+        lanes.remove(eventType)?.close()
     }
 
     /**
@@ -159,13 +183,17 @@ object EventFlow {
     /**
      * Posts an [Event] to the event flow [concurrentFlow] and the synchronous [Listener]s.
      *
-     * This function first notifies all asynchronous [Listener]s by emitting the event to the [concurrentFlow].
+     * This function first notifies all asynchronous [Listener]s by offering the event to the [EventLane] of its type,
+     * and emits it to the [concurrentFlow] if the flow is collected.
      * Each asynchronous [Listener] will execute its [Listener] function on a new coroutine.
      *
      * After notifying asynchronous [Listener]s, it executes the [Listener] functions of all synchronous [Listener]s.
      * An instant callback ([CallbackEvent]) can only be achieved by synchronous listening objects
      * as the concurrent listener will be executed "later".
      *
+     * The concurrent delivery is skipped entirely when no unmuted concurrent [Listener]
+     * is subscribed to the event type and nothing collects the flow.
+     *
      * CAUTION: The returned [Event] may have not yet been processed by concurrent listeners.
      *
      * @param E The type of the event to be posted. This should be a subclass of Event.
@@ -173,7 +201,7 @@ object EventFlow {
      */
     @JvmStatic
     fun <E : Event> E.post(): E {
-        concurrentFlow.tryEmit(this)
+        emitConcurrently()
         executeListenerSynchronous()
         return this@post
     }
@@ -227,55 +255,96 @@ object EventFlow {
     /**
      * Executes the listeners for the current event type synchronously.
      *
-     * This method retrieves the list of synchronous listeners for the event's class
-     * and invokes their [Listener.execute] method if the listener should be notified.
+     * This method retrieves the precompiled [Subscriber.Dispatch] for the event's class
+     * and invokes the [Listener.execute] method of every listener that should be notified.
      *
      * @receiver The current event for which listeners are to be executed.
      * @param T The type of the event being handled.
      */
     private fun <T : Event> T.executeListenerSynchronous() {
-        syncListeners[this::class]?.forEach {
-            @Suppress("UNCHECKED_CAST")
-            val listener = it as? Listener<T> ?: return@forEach
-            if (shouldNotNotify(listener, this)) return@forEach
-            listener.execute(this)
-        }
+        syncListeners.dispatch(this::class)?.let { dispatch(it) }
     }
 
     /**
      * Executes the listeners for the current event type concurrently.
      *
-     * This method retrieves the list of concurrent listeners for the event's class
-     * and invokes their [Listener.execute] method if the listener should be notified.
+     * This method retrieves the precompiled [Subscriber.Dispatch] for the event's class
+     * and invokes the [Listener.execute] method of every listener that should be notified.
      * Each listener is executed on the same coroutine scope.
      *
      * @receiver The current event for which listeners are to be executed.
      * @param T The type of the event being handled.
      */
     private fun <T : Event> T.executeListenerConcurrently() {
-        concurrentListeners[this::class]?.forEach {
-            @Suppress("UNCHECKED_CAST")
-            val listener = it as? Listener<T> ?: return@forEach
-            if (shouldNotNotify(listener, this)) return@forEach
-            listener.execute(this)
-        }
+        concurrentListeners.dispatch(this::class)?.let { dispatch(it) }
     }
 
     /**
-     * Determines whether a given [listener] should be notified about an [event].
+     * Invokes every [Listener] of the given [dispatch] snapshot in priority order.
      *
-     * A listener should not be notified if:
-     * - The listener's owner is a [Muteable] and is currently muted, unless the listener is set to [alwaysListen].
+     * A listener is skipped if:
+     * - The listener's owner is a [Muteable] and is currently muted, unless the listener is set to [Listener.alwaysListen].
      * - The event is cancellable and has been canceled.
      *
-     * @param listener The listener to check.
-     * @param event The event being processed.
+     * While the [EventProfiler] is enabled, every invocation is timed.
+     *
+     * @receiver The event being processed.
+     * @param dispatch The snapshot of the listeners subscribed to the event type.
      * @param T The type of the event.
-     * @return `true` if the listener should not be notified, `false` otherwise.
      */
-    private fun <T : Event> shouldNotNotify(listener: Listener<T>, event: Event) =
-        listener.owner is Muteable
-                && (listener.owner as Muteable).isMuted
-                && !listener.alwaysListen
-                || event is ICancellable && event.isCanceled()
+    private fun <T : Event> T.dispatch(dispatch: Subscriber.Dispatch) {
+        val listeners = dispatch.listeners
+        val muteables = dispatch.muteables
+        val cancellable = this as? ICancellable
+
+        for (i in listeners.indices) {
+            if (cancellable?.isCanceled() == true) continue
+            if (muteables[i]?.isMuted == true) continue
+
+            @Suppress("UNCHECKED_CAST")
+            val listener = listeners[i] as Listener<T>
+
+            if (EventProfiler.isEnabled) EventProfiler.measure(listener, this)
+            else listener.execute(this)
+        }
+    }
+
+    /**
+     * Hands the event to everything that processes it off the posting thread.
+     *
+     * The event is offered to the [EventLane] of its type if an unmuted concurrent [Listener] is subscribed,
+     * and emitted to [concurrentFlow] if anything collects the flow (e.g.: [blockUntilEvent] or [collectEvents]).
+     */
+    private fun Event.emitConcurrently() {
+        val eventType = this::class
+        if (concurrentListeners.dispatch(eventType)?.isActive == true) lane(eventType).offer(this)
+        if (concurrentFlow.subscriptionCount.value > 0) concurrentFlow.tryEmit(this)
+    }
+
+    /**
+     * Whether an event of [eventType] would be processed off the posting thread.
+     *
+     * This is the case if an unmuted concurrent [Listener] is subscribed to the event type,
+     * or if anything collects the [concurrentFlow] (e.g.: [blockUntilEvent] or [collectEvents]).
+     */
+    fun hasConcurrentReceivers(eventType: KClass<out Event>) =
+        concurrentListeners.dispatch(eventType)?.isActive == true
+                || concurrentFlow.subscriptionCount.value > 0
+
+    /**
+     * Returns the [EventLane] of [eventType], creating and starting it if necessary.
+     */
+    private fun lane(eventType: KClass<out Event>) =
+        lanes[eventType] ?: lanes.computeIfAbsent(eventType) { type ->
+            val (capacity, overflow) = laneSettings[type] ?: (DEFAULT_LANE_CAPACITY to BufferOverflow.DROP_OLDEST)
+
+            EventLane(type, capacity, overflow).apply {
+                launch { event -> event.executeListenerConcurrently() }
+            }
+        }
+
+    /**
+     * The default amount of events a single [EventLane] can queue.
+     */
+    const val DEFAULT_LANE_CAPACITY = 1024
 }
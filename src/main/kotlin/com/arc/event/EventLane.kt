@@ -0,0 +1,88 @@
+package com.arc.event
+
+import com.arc.event.listener.Listener
+import com.arc.threading.runConcurrent
+import com.arc.util.reflections.className
+import kotlinx.coroutines.channels.BufferOverflow
+import kotlinx.coroutines.channels.Channel
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.reflect.KClass
+
+/**
+ * An [EventLane] is a bounded queue of [Event]s of a single type that feeds the concurrent [Listener]s.
+ *
+ * Every event type gets its own lane, so a burst of one type (e.g. packets on a busy server)
+ * can only ever evict events of the same type and never starve unrelated concurrent listeners.
+ *
+ * Events are offered without suspending, which is why only [BufferOverflow.DROP_OLDEST]
+ * and [BufferOverflow.DROP_LATEST] are supported. Every dropped event is counted in [dropped].
+ *
+ * @property eventType The type of [Event]s this lane carries.
+ * @property capacity The maximum amount of queued [Event]s.
+ * @property overflow The strategy applied when the lane is full.
+ */
+class EventLane(
+    val eventType: KClass<out Event>,
+    val capacity: Int,
+    val overflow: BufferOverflow,
+) {
+    init {
+        require(capacity > 0) { "Event lane capacity must be positive, got $capacity" }
+        require(overflow != BufferOverflow.SUSPEND) { "Event lanes cannot suspend the posting thread" }
+    }
+
+    private val channel = Channel<Event>(capacity)
+    private val queuedCount = AtomicInteger()
+    private val deliveredCount = AtomicLong()
+    private val droppedCount = AtomicLong()
+
+    /** The amount of [Event]s currently waiting in the lane */
+    val queued get() = queuedCount.get()
+
+    /** The amount of [Event]s handed to the concurrent [Listener]s */
+    val delivered get() = deliveredCount.get()
+
+    /** The amount of [Event]s lost due to the [overflow] strategy */
+    val dropped get() = droppedCount.get()
+
+    /**
+     * Enqueues the [event], applying the [overflow] strategy if the lane is full.
+     */
+    fun offer(event: Event) {
+        while (!channel.trySend(event).isSuccess) {
+            if (channel.isClosedForSend) return
+
+            if (overflow == BufferOverflow.DROP_LATEST) {
+                droppedCount.incrementAndGet()
+                return
+            }
+
+            if (channel.tryReceive().isSuccess) {
+                queuedCount.decrementAndGet()
+                droppedCount.incrementAndGet()
+            }
+        }
+
+        queuedCount.incrementAndGet()
+    }
+
+    /**
+     * Starts consuming the lane on a dedicated coroutine, passing every [Event] to the [consumer].
+     */
+    fun launch(consumer: (Event) -> Unit) = runConcurrent {
+        for (event in channel) {
+            queuedCount.decrementAndGet()
+            deliveredCount.incrementAndGet()
+            consumer(event)
+        }
+    }
+
+    /**
+     * Stops accepting new [Event]s. Already queued [Event]s are still delivered.
+     */
+    fun close() = channel.close()
+
+    override fun toString() =
+        "${eventType.className}: $queued/$capacity queued, $delivered delivered, $dropped dropped ($overflow)"
+}
@@ -0,0 +1,77 @@
+package com.arc.event
+
+import com.arc.event.EventFlow.post
+import com.mojang.blaze3d.systems.RenderSystem.isOnRenderThread
+import kotlin.reflect.KClass
+
+/**
+ * An [EventPool] posts [Recyclable] events without allocating a new instance every time.
+ *
+ * Instances are only recycled on the game thread and while nothing listens to the event type concurrently,
+ * as concurrent and deferred consumers would otherwise observe an instance that already got reused.
+ * In every other case a fresh instance is created by the [factory].
+ *
+ * The pool grows with the maximum nesting depth of posts of the same type (e.g. a packet sent from
+ * within a packet listener) and is only ever touched from the game thread.
+ *
+ * Usage:
+ * ```kotlin
+ * class MyEvent private constructor() : Recyclable {
+ *     var value = 0
+ *         private set
+ *
+ *     override fun reset() {
+ *         value = 0
+ *     }
+ *
+ *     companion object {
+ *         private val pool = EventPool(MyEvent::class, ::MyEvent)
+ *
+ *         @JvmStatic
+ *         fun post(value: Int) = pool.post { this.value = value }
+ *     }
+ * }
+ * ```
+ *
+ * @property eventType The [KClass] of the recycled event.
+ * @property factory Creates a new, blank instance of the event.
+ */
+class EventPool<E : Recyclable>(
+    @PublishedApi internal val eventType: KClass<E>,
+    @PublishedApi internal val factory: () -> E,
+) {
+    private val free = ArrayDeque<E>()
+
+    /**
+     * Configures an event instance with [configure] and posts it to the [EventFlow].
+     *
+     * @return The posted event, valid as described in [Recyclable].
+     */
+    inline fun post(configure: E.() -> Unit): E {
+        if (!canRecycle()) return factory().apply(configure).post()
+
+        val event = acquire()
+        event.configure()
+
+        try {
+            event.post()
+        } finally {
+            release(event)
+        }
+
+        return event
+    }
+
+    @PublishedApi
+    internal fun canRecycle() =
+        isOnRenderThread() && !EventFlow.hasConcurrentReceivers(eventType)
+
+    @PublishedApi
+    internal fun acquire(): E =
+        free.removeLastOrNull()?.apply { reset() } ?: factory()
+
+    @PublishedApi
+    internal fun release(event: E) {
+        free.addLast(event)
+    }
+}
@@ -0,0 +1,175 @@
+package com.arc.event
+
+import com.arc.event.listener.Listener
+import com.arc.util.Nameable
+import com.arc.util.reflections.className
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.reflect.KClass
+
+/**
+ * The [EventProfiler] records how long every [Listener] takes to process its [Event]s.
+ *
+ * It is opt-in, while [isEnabled] is `false` the [EventFlow] skips the instrumentation entirely.
+ * Every [Listener] keeps its own [ListenerStats] with the total invocation count, the cumulative time,
+ * the time spent within the last [WINDOW_NANOS] and the most recent [SAMPLE_SIZE] timings for percentiles.
+ */
+object EventProfiler {
+    /**
+     * Whether the [EventFlow] should measure listener invocations.
+     */
+    @Volatile
+    var isEnabled = false
+
+    /**
+     * The length of the rolling window in nanoseconds.
+     */
+    const val WINDOW_NANOS = 1_000_000_000L
+
+    /**
+     * The amount of recent samples kept per listener to compute percentiles.
+     */
+    const val SAMPLE_SIZE = 1024
+
+    private val statistics = ConcurrentHashMap<Listener<*>, ListenerStats>()
+
+    /**
+     * All recorded [ListenerStats].
+     */
+    val stats: Collection<ListenerStats> get() = statistics.values
+
+    /**
+     * Executes the [listener] for the [event] and records the elapsed time.
+     */
+    fun <T : Event> measure(listener: Listener<T>, event: T) {
+        val start = System.nanoTime()
+        try {
+            listener.execute(event)
+        } finally {
+            val end = System.nanoTime()
+            statistics
+                .getOrPut(listener) { ListenerStats(listener.ownerName, event::class) }
+                .record(end - start, end)
+        }
+    }
+
+    /**
+     * Returns the [amount] of listeners that spent the most time within the last window.
+     */
+    fun hottest(amount: Int) =
+        stats.sortedByDescending { it.windowNanos }.take(amount)
+
+    /**
+     * Forgets about all recorded timings.
+     */
+    fun reset() = statistics.clear()
+
+    /**
+     * Writes all recorded timings to the [file], sorted by cumulative time.
+     */
+    fun dump(file: File) {
+        file.parentFile?.mkdirs()
+        file.bufferedWriter().use { writer ->
+            writer.appendLine("owner;event;count;total_ns;avg_ns;p99_ns;window_count;window_ns")
+            stats.sortedByDescending { it.totalNanos }.forEach { stat ->
+                writer.appendLine(
+                    "${stat.owner};${stat.eventType.className};${stat.count};${stat.totalNanos};" +
+                            "${stat.averageNanos};${stat.percentile(0.99)};${stat.windowCount};${stat.windowNanos}"
+                )
+            }
+        }
+    }
+
+    private val Listener<*>.ownerName: String
+        get() = (owner as? Nameable)?.name ?: owner::class.simpleName ?: owner.className
+
+    /**
+     * The timings of a single [Listener].
+     *
+     * @property owner The name of the [Listener.owner].
+     * @property eventType The type of [Event] the timings were recorded for.
+     */
+    class ListenerStats(
+        val owner: String,
+        val eventType: KClass<out Event>,
+    ) {
+        private val invocations = AtomicLong()
+        private val cumulative = AtomicLong()
+
+        private val samples = LongArray(SAMPLE_SIZE)
+        private var sampleIndex = 0
+        private var sampleCount = 0
+
+        private var windowStart = 0L
+        private var currentCount = 0L
+        private var currentNanos = 0L
+        private var lastCount = 0L
+        private var lastNanos = 0L
+
+        /** The amount of recorded invocations */
+        val count get() = invocations.get()
+
+        /** The total time spent in the listener */
+        val totalNanos get() = cumulative.get()
+
+        /** The average time of a single invocation */
+        val averageNanos get() = count.let { if (it == 0L) 0L else totalNanos / it }
+
+        /** The amount of invocations within the last completed window */
+        val windowCount: Long
+            @Synchronized get() {
+                rotate(System.nanoTime())
+                return lastCount
+            }
+
+        /** The time spent in the listener within the last completed window */
+        val windowNanos: Long
+            @Synchronized get() {
+                rotate(System.nanoTime())
+                return lastNanos
+            }
+
+        @Synchronized
+        fun record(nanos: Long, now: Long) {
+            invocations.incrementAndGet()
+            cumulative.addAndGet(nanos)
+
+            samples[sampleIndex] = nanos
+            sampleIndex = (sampleIndex + 1) % SAMPLE_SIZE
+            if (sampleCount < SAMPLE_SIZE) sampleCount++
+
+            rotate(now)
+            currentCount++
+            currentNanos += nanos
+        }
+
+        private fun rotate(now: Long) {
+            if (sampleCount == 0) return
+            if (windowStart == 0L) windowStart = now
+            if (now - windowStart < WINDOW_NANOS) return
+
+            // Windows without any invocation count as empty
+            val skipped = now - windowStart >= 2 * WINDOW_NANOS
+            lastCount = if (skipped) 0 else currentCount
+            lastNanos = if (skipped) 0 else currentNanos
+            currentCount = 0
+            currentNanos = 0
+            windowStart = now
+        }
+
+        /**
+         * Returns the given [percentile] (0.0 - 1.0) of the most recent [SAMPLE_SIZE] timings.
+         */
+        @Synchronized
+        fun percentile(percentile: Double): Long {
+            if (sampleCount == 0) return 0
+            val sorted = samples.copyOf(sampleCount).apply { sort() }
+            val index = ((sampleCount - 1) * percentile).toInt().coerceIn(0, sampleCount - 1)
+            return sorted[index]
+        }
+
+        override fun toString() =
+            "$owner ${eventType.className}: ${windowCount}x ${"%.3f".format(windowNanos / 1e6)}ms, p99 ${"%.1f".format(percentile(0.99) / 1e3)}µs"
+    }
+}
@@ -0,0 +1,20 @@
+package com.arc.event
+
+/**
+ * A [Recyclable] event is an [Event] whose instances are reused by an [EventPool]
+ * instead of being allocated for every post.
+ *
+ * Lifetime: a recycled instance is only valid while it is being posted and until the
+ * next event of the same type is posted on the same thread. Listeners must therefore
+ * copy the data they need (e.g. the packet) instead of keeping a reference to the event itself
+ * or capturing it in deferred code such as coroutines.
+ *
+ * The [EventPool] only recycles events posted on the game thread while no concurrent
+ * receiver exists for the event type, otherwise a fresh instance is allocated.
+ */
+interface Recyclable : Event {
+    /**
+     * Restores the event to its initial state before it gets reused.
+     */
+    fun reset()
+}
@@ -1,4 +1,3 @@
-
 package com.arc.event
 
 import com.arc.event.listener.Listener
@@ -13,15 +12,24 @@ import kotlin.reflect.KClass
  * It provides methods to [subscribe] and [unsubscribe] [Listener]s and other [Subscriber]s.
  * It also allows for the merging of [Subscriber] [Set]s.
  *
+ * Every change to a [Listener] set rebuilds the [Dispatch] snapshot of its [Event] type,
+ * so posting an [Event] never has to walk the underlying [ConcurrentSkipListSet].
+ *
  * @property defaultListenerSet A [ConcurrentSkipListSet] of [Listener]s, sorted in reverse order.
  */
 class Subscriber : ConcurrentHashMap<KClass<out Event>, ConcurrentSkipListSet<Listener<out Event>>>() {
     val defaultListenerSet: ConcurrentSkipListSet<Listener<out Event>>
         get() = ConcurrentSkipListSet(Listener.comparator.reversed())
 
+    /**
+     * Copy-on-write [Dispatch] snapshots keyed by [Event] type.
+     * Only contains entries for types that have at least one [Listener].
+     */
+    private val dispatches = ConcurrentHashMap<KClass<out Event>, Dispatch>()
+
     /** Allows a [Listener] to start receiving a specific type of [Event] */
     inline fun <reified T : Event> subscribe(listener: Listener<T>) =
-        getOrPut(T::class) { defaultListenerSet }.add(listener)
+        subscribe(T::class, listener)
 
     /**
      * Allows a [Listener] to start receiving a specific type of [Event]'s [KClass implementation](KC).
@@ -30,11 +38,13 @@ class Subscriber : ConcurrentHashMap<KClass<out Event>, ConcurrentSkipListSet<Li
      */
     fun <T : Event> subscribe(kClass: KClass<out T>, listener: Listener<T>) =
         getOrPut(kClass) { defaultListenerSet }.add(listener)
+            .also { rebuild(kClass) }
 
     /** Allows a [Subscriber] to start receiving all [Event]s of another [Subscriber]. */
     infix fun subscribe(subscriber: Subscriber) {
         subscriber.forEach { (eventType, listeners) ->
             getOrPut(eventType) { defaultListenerSet }.addAll(listeners)
+            rebuild(eventType)
         }
     }
 
@@ -44,7 +54,12 @@ class Subscriber : ConcurrentHashMap<KClass<out Event>, ConcurrentSkipListSet<Li
 
     /** Allows a [Listener] to stop receiving a specific type of [Event] */
     inline fun <reified T : Event> unsubscribe(listener: Listener<T>) =
-        getOrElse(T::class) { defaultListenerSet }.remove(listener)
+        unsubscribe(T::class, listener)
+
+    /** Allows a [Listener] to stop receiving a specific type of [Event]'s [KClass implementation](KC). */
+    fun <T : Event> unsubscribe(kClass: KClass<out T>, listener: Listener<T>) =
+        getOrElse(kClass) { defaultListenerSet }.remove(listener)
+            .also { if (it) rebuild(kClass) }
 
     /**
      * Unsubscribes all listeners associated with the current instance (the caller object).
@@ -56,13 +71,66 @@ class Subscriber : ConcurrentHashMap<KClass<out Event>, ConcurrentSkipListSet<Li
      * current instance, preventing further event notifications.
      */
     fun unsubscribe(owner: Any) {
-        values.forEach { it.removeAll { listener -> listener.owner == owner } }
+        forEach { (eventType, listeners) ->
+            if (listeners.removeAll { listener -> listener.owner == owner }) rebuild(eventType)
+        }
     }
 
     /** Allows a [Subscriber] to stop receiving all [Event]s of another [Subscriber] */
     infix fun unsubscribe(subscriber: Subscriber) {
         subscriber.forEach { (eventType, listeners) ->
-            getOrElse(eventType) { defaultListenerSet }.removeAll(listeners)
+            if (getOrElse(eventType) { defaultListenerSet }.removeAll(listeners)) rebuild(eventType)
         }
     }
+
+    override fun remove(key: KClass<out Event>): ConcurrentSkipListSet<Listener<out Event>>? =
+        super.remove(key).also { rebuild(key) }
+
+    override fun clear() {
+        super.clear()
+        dispatches.clear()
+    }
+
+    /**
+     * Returns the [Dispatch] snapshot for [eventType], or `null` if nothing listens to it.
+     */
+    fun dispatch(eventType: KClass<out Event>): Dispatch? = dispatches[eventType]
+
+    /**
+     * Whether at least one [Listener] is subscribed to [eventType].
+     */
+    fun hasListeners(eventType: KClass<out Event>) = dispatches.containsKey(eventType)
+
+    /**
+     * Recomputes the [Dispatch] snapshot of [eventType].
+     *
+     * [ConcurrentHashMap.compute] is atomic per key, so the last rebuild always observes
+     * the latest state of the [Listener] set, even when subscriptions race.
+     */
+    private fun rebuild(eventType: KClass<out Event>) {
+        dispatches.compute(eventType) { _, _ ->
+            get(eventType)
+                ?.takeIf { it.isNotEmpty() }
+                ?.let { Dispatch(it.toTypedArray()) }
+        }
+    }
+
+    /**
+     * An immutable, priority-sorted snapshot of the [Listener]s of a single [Event] type.
+     *
+     * @property listeners The [Listener]s in execution order (highest priority first).
+     * @property muteables The [Muteable] owner of each [Listener] at the same index,
+     * or `null` when the [Listener] can never be muted (non-muteable owner or [Listener.alwaysListen]).
+     */
+    class Dispatch(val listeners: Array<Listener<out Event>>) {
+        val muteables: Array<Muteable?> = Array(listeners.size) { i ->
+            listeners[i].takeUnless { it.alwaysListen }?.owner as? Muteable
+        }
+
+        /**
+         * Whether at least one of the [listeners] would currently be notified.
+         */
+        val isActive: Boolean
+            get() = muteables.any { it?.isMuted != true }
+    }
 }
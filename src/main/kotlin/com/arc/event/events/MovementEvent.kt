@@ -2,6 +2,8 @@
 package com.arc.event.events
 
 import com.arc.event.Event
+import com.arc.event.EventPool
+import com.arc.event.Recyclable
 import com.arc.event.callback.Cancellable
 import com.arc.event.callback.ICancellable
 import net.minecraft.client.input.Input
@@ -9,6 +11,10 @@ import net.minecraft.entity.LivingEntity
 import net.minecraft.entity.MovementType
 import net.minecraft.util.math.Vec3d
 
+/**
+ * The [Player] and [Entity] movement events fire every tick and are [Recyclable],
+ * listeners must not keep references to them.
+ */
 sealed class MovementEvent {
     /**
      * Represents player movement update events.
@@ -24,10 +30,29 @@ sealed class MovementEvent {
          * @property movementType The type of movement.
          * @property movement The movement vector.
          */
-        data class Pre(
-            override val movementType: MovementType,
-            override val movement: Vec3d,
-        ) : Player(), ICancellable by Cancellable()
+        class Pre private constructor() : Player(), ICancellable by Cancellable(), Recyclable {
+            override lateinit var movementType: MovementType
+                private set
+            override lateinit var movement: Vec3d
+                private set
+
+            constructor(movementType: MovementType, movement: Vec3d) : this() {
+                this.movementType = movementType
+                this.movement = movement
+            }
+
+            override fun reset() = cancelSignal.set(false)
+
+            companion object {
+                private val pool = EventPool(Pre::class, ::Pre)
+
+                @JvmStatic
+                fun post(movementType: MovementType, movement: Vec3d) = pool.post {
+                    this.movementType = movementType
+                    this.movement = movement
+                }
+            }
+        }
 
         /**
          * Event triggered after player movement.
@@ -35,10 +60,29 @@ sealed class MovementEvent {
          * @property movementType The type of movement.
          * @property movement The movement vector.
          */
-        data class Post(
-            override val movementType: MovementType,
-            override val movement: Vec3d,
-        ) : Player(), Event
+        class Post private constructor() : Player(), Recyclable {
+            override lateinit var movementType: MovementType
+                private set
+            override lateinit var movement: Vec3d
+                private set
+
+            constructor(movementType: MovementType, movement: Vec3d) : this() {
+                this.movementType = movementType
+                this.movement = movement
+            }
+
+            override fun reset() {}
+
+            companion object {
+                private val pool = EventPool(Post::class, ::Post)
+
+                @JvmStatic
+                fun post(movementType: MovementType, movement: Vec3d) = pool.post {
+                    this.movementType = movementType
+                    this.movement = movement
+                }
+            }
+        }
     }
 
     /**
@@ -55,10 +99,29 @@ sealed class MovementEvent {
          * @property entity The entity involved in the movement event.
          * @property movementInput The movement input vector for the entity.
          */
-        data class Pre(
-            override val entity: LivingEntity,
-            override val movementInput: Vec3d,
-        ) : Entity(), ICancellable by Cancellable()
+        class Pre private constructor() : Entity(), ICancellable by Cancellable(), Recyclable {
+            override lateinit var entity: LivingEntity
+                private set
+            override lateinit var movementInput: Vec3d
+                private set
+
+            constructor(entity: LivingEntity, movementInput: Vec3d) : this() {
+                this.entity = entity
+                this.movementInput = movementInput
+            }
+
+            override fun reset() = cancelSignal.set(false)
+
+            companion object {
+                private val pool = EventPool(Pre::class, ::Pre)
+
+                @JvmStatic
+                fun post(entity: LivingEntity, movementInput: Vec3d) = pool.post {
+                    this.entity = entity
+                    this.movementInput = movementInput
+                }
+            }
+        }
 
         /**
          * Event triggered after entity movement.
@@ -66,10 +129,29 @@ sealed class MovementEvent {
          * @property entity The entity involved in the movement event.
          * @property movementInput The movement input vector for the entity.
          */
-        data class Post(
-            override val entity: LivingEntity,
-            override val movementInput: Vec3d,
-        ) : Entity(), Event
+        class Post private constructor() : Entity(), Recyclable {
+            override lateinit var entity: LivingEntity
+                private set
+            override lateinit var movementInput: Vec3d
+                private set
+
+            constructor(entity: LivingEntity, movementInput: Vec3d) : this() {
+                this.entity = entity
+                this.movementInput = movementInput
+            }
+
+            override fun reset() {}
+
+            companion object {
+                private val pool = EventPool(Post::class, ::Post)
+
+                @JvmStatic
+                fun post(entity: LivingEntity, movementInput: Vec3d) = pool.post {
+                    this.entity = entity
+                    this.movementInput = movementInput
+                }
+            }
+        }
     }
 
     /**
@@ -3,6 +3,8 @@ package com.arc.event.events
 
 import com.arc.event.Event
 import com.arc.event.EventFlow
+import com.arc.event.EventPool
+import com.arc.event.Recyclable
 import com.arc.event.callback.Cancellable
 import com.arc.event.callback.ICancellable
 import com.arc.util.ClientPacket
@@ -20,6 +22,9 @@ import com.arc.util.ServerPacket
  *
  * The [PacketEvent] class is designed to be extended by any class that needs to react to packet events.
  *
+ * All packet events are [Recyclable] and should be posted through their companion `post` functions.
+ * Listeners must not keep references to the events, only to their packets.
+ *
  * @see Send
  * @see Receive
  */
@@ -34,16 +39,48 @@ sealed class PacketEvent {
         /**
          * Represents the event triggered before a packet is sent.
          *
-         * @param packet the packet that is about to be sent.
+         * @property packet the packet that is about to be sent.
          */
-        data class Pre(override val packet: ServerPacket) : Send(), ICancellable by Cancellable()
+        class Pre private constructor() : Send(), ICancellable by Cancellable(), Recyclable {
+            override lateinit var packet: ServerPacket
+                private set
+
+            constructor(packet: ServerPacket) : this() {
+                this.packet = packet
+            }
+
+            override fun reset() = cancelSignal.set(false)
+
+            companion object {
+                private val pool = EventPool(Pre::class, ::Pre)
+
+                @JvmStatic
+                fun post(packet: ServerPacket) = pool.post { this.packet = packet }
+            }
+        }
 
         /**
          * Represents the event triggered after a packet is sent.
          *
-         * @param packet the packet that has been sent.
+         * @property packet the packet that has been sent.
          */
-        data class Post(override val packet: ServerPacket) : Send(), Event
+        class Post private constructor() : Send(), Recyclable {
+            override lateinit var packet: ServerPacket
+                private set
+
+            constructor(packet: ServerPacket) : this() {
+                this.packet = packet
+            }
+
+            override fun reset() {}
+
+            companion object {
+                private val pool = EventPool(Post::class, ::Post)
+
+                @JvmStatic
+                fun post(packet: ServerPacket) = pool.post { this.packet = packet }
+            }
+        }
     }
 
     /**
@@ -56,15 +93,47 @@ sealed class PacketEvent {
         /**
          * Represents the event triggered before a packet is received.
          *
-         * @param packet the packet that is about to be received.
+         * @property packet the packet that is about to be received.
          */
-        data class Pre(override val packet: ClientPacket) : Receive(), ICancellable by Cancellable()
+        class Pre private constructor() : Receive(), ICancellable by Cancellable(), Recyclable {
+            override lateinit var packet: ClientPacket
+                private set
+
+            constructor(packet: ClientPacket) : this() {
+                this.packet = packet
+            }
+
+            override fun reset() = cancelSignal.set(false)
+
+            companion object {
+                private val pool = EventPool(Pre::class, ::Pre)
+
+                @JvmStatic
+                fun post(packet: ClientPacket) = pool.post { this.packet = packet }
+            }
+        }
 
         /**
          * Represents the event triggered after a packet is received.
          *
-         * @param packet the packet that has been received.
+         * @property packet the packet that has been received.
          */
-        data class Post(override val packet: ClientPacket) : Receive(), Event
+        class Post private constructor() : Receive(), Recyclable {
+            override lateinit var packet: ClientPacket
+                private set
+
+            constructor(packet: ClientPacket) : this() {
+                this.packet = packet
+            }
+
+            override fun reset() {}
+
+            companion object {
+                private val pool = EventPool(Post::class, ::Post)
+
+                @JvmStatic
+                fun post(packet: ClientPacket) = pool.post { this.packet = packet }
+            }
+        }
     }
 }
@@ -3,9 +3,12 @@ package com.arc.event.events
 
 import com.arc.context.SafeContext
 import com.arc.event.Event
+import com.arc.event.EventPool
+import com.arc.event.Recyclable
 import com.arc.event.callback.Cancellable
 import com.arc.event.callback.ICancellable
 import com.arc.event.listener.SafeListener.Companion.listen
+import com.arc.graphics.renderer.esp.InstancedBoxes
 import com.arc.graphics.renderer.esp.ShapeBuilder
 import com.arc.graphics.renderer.esp.Treed
 
@@ -13,10 +16,23 @@ fun Any.onStaticRender(block: SafeContext.(ShapeBuilder) -> Unit) =
     listen<RenderEvent.Upload> { block(ShapeBuilder(Treed.Static.faceBuilder, Treed.Static.edgeBuilder)) }
 fun Any.onDynamicRender(block: SafeContext.(ShapeBuilder) -> Unit) =
     listen<RenderEvent.Upload> { block(ShapeBuilder(Treed.Dynamic.faceBuilder, Treed.Dynamic.edgeBuilder)) }
+fun Any.onStaticInstancedRender(block: SafeContext.(InstancedBoxes) -> Unit) =
+    listen<RenderEvent.Upload> { block(InstancedBoxes.Static) }
+fun Any.onDynamicInstancedRender(block: SafeContext.(InstancedBoxes) -> Unit) =
+    listen<RenderEvent.Upload> { block(InstancedBoxes.Dynamic) }
 
 sealed class RenderEvent {
     object Upload : Event
     object Render : Event
 
-    class UpdateTarget : ICancellable by Cancellable()
+    class UpdateTarget : ICancellable by Cancellable(), Recyclable {
+        override fun reset() = cancelSignal.set(false)
+
+        companion object {
+            private val pool = EventPool(UpdateTarget::class, ::UpdateTarget)
+
+            @JvmStatic
+            fun post() = pool.post {}
+        }
+    }
 }
@@ -107,6 +107,8 @@ sealed class WorldEvent {
      * Represents a collision event in the game world.
      *
      * This event is triggered when a collision is detected between an entity or object and a block.
+     * It is only constructed while a listener would receive it, shape overrides that do not depend
+     * on the position should be registered with [com.arc.util.world.CollisionOverrides] instead.
      *
      * @property pos The position of the block involved in the collision.
      * @property state The current state of the block involved in the collision.
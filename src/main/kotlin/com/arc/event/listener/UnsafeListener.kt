@@ -29,14 +29,16 @@ import kotlin.reflect.KProperty
  * The [SafeListener] will keep a reference to the last signal processed by the listener.
  * Allowing use cases where the last signal is needed.
  * ```kotlin
- * val lastPacketReceived by unsafeListener<PacketEvent.Receive.Pre>()
+ * val lastPlayerJoined by unsafeListener<WorldEvent.Player.Join>()
  *
  * unsafeListener<PacketEvent.Send.Pre> { event ->
- *     println("Last packet received: ${lastPacketReceived?.packet}")
- *     // prints the last packet received
- *     // prints null if no packet was received
+ *     println("Last player joined: ${lastPlayerJoined?.name}")
+ *     // prints the name of the last player that joined
+ *     // prints null if no player joined yet
  * }
  * ```
+ * [com.arc.event.Recyclable] events such as [com.arc.event.events.PacketEvent] are reused after their post,
+ * so they must not be retained this way. Store the data they carry, like the packet, instead.
  *
  * @property priority The priority of the listener. Listeners with higher priority are executed first.
  * @property owner The owner of the listener. This is typically the object that created the listener.
@@ -9,6 +9,7 @@ import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.graphics.gl.GlStateUtils.setupGL
 import com.arc.graphics.gl.Matrices
 import com.arc.graphics.gl.Matrices.resetMatrices
+import com.arc.graphics.renderer.esp.InstancedBoxes
 import com.arc.graphics.renderer.esp.Treed
 import com.arc.util.math.Vec2d
 import com.mojang.blaze3d.opengl.GlStateManager
@@ -41,6 +42,8 @@ object RenderMain {
 
             Treed.Static.render()
             Treed.Dynamic.render()
+            InstancedBoxes.Static.render()
+            InstancedBoxes.Dynamic.render()
 
             RenderEvent.Render.post()
         }
@@ -50,11 +53,15 @@ object RenderMain {
         listen<TickEvent.Post> {
             Treed.Static.clear()
             Treed.Dynamic.clear()
+            InstancedBoxes.Static.clear()
+            InstancedBoxes.Dynamic.clear()
 
             RenderEvent.Upload.post()
 
             Treed.Static.upload()
             Treed.Dynamic.upload()
+            InstancedBoxes.Static.upload()
+            InstancedBoxes.Dynamic.upload()
         }
     }
 }
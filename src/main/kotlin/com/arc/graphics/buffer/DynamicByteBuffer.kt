@@ -4,6 +4,7 @@ package com.arc.graphics.buffer
 import org.lwjgl.BufferUtils.createByteBuffer
 import org.lwjgl.system.MemoryUtil.memAddress0
 import org.lwjgl.system.MemoryUtil.memCopy
+import org.lwjgl.system.MemoryUtil.memGetInt
 import org.lwjgl.system.MemoryUtil.memPutByte
 import org.lwjgl.system.MemoryUtil.memPutFloat
 import org.lwjgl.system.MemoryUtil.memPutInt
@@ -20,9 +21,9 @@ import java.nio.ByteBuffer
  * @property pointer Base memory address of the buffer
  * @property position Current write position in memory address space
  */
-class DynamicByteBuffer private constructor(initialCapacity: Int) {
-    var data: ByteBuffer = createByteBuffer(initialCapacity); private set
-    var capacity = initialCapacity; private set
+class DynamicByteBuffer private constructor(initialData: ByteBuffer) {
+    var data: ByteBuffer = initialData; private set
+    var capacity = initialData.capacity(); private set
 
     var pointer = memAddress0(data); private set
     var position = pointer; private set
@@ -109,6 +110,34 @@ class DynamicByteBuffer private constructor(initialCapacity: Int) {
         position += 4
     }
 
+    /**
+     * Copies every byte written to [other] to the current position
+     * @param other The buffer to copy from
+     */
+    fun put(other: DynamicByteBuffer) {
+        val size = other.bytesPut.toInt()
+        require(size)
+        memCopy(other.pointer, position, size.toLong())
+        position += size
+    }
+
+    /**
+     * Copies every 4-byte integer written to [other] to the current position, adding [offset] to each of them
+     * @param other The buffer to copy from
+     * @param offset The value added to every integer
+     */
+    fun putInts(other: DynamicByteBuffer, offset: Int) {
+        if (offset == 0) return put(other)
+
+        require(other.bytesPut.toInt())
+        var from = other.pointer
+        while (from < other.position) {
+            memPutInt(position, memGetInt(from) + offset)
+            position += 4
+            from += 4
+        }
+    }
+
     /**
      * Ensures the buffer has enough remaining space for the requested number of bytes.
      * Automatically grows the buffer if insufficient space remains.
@@ -116,7 +145,7 @@ class DynamicByteBuffer private constructor(initialCapacity: Int) {
      */
     fun require(size: Int) {
         if (capacity - bytesPut > size) return
-        grow(capacity * 2)
+        grow(maxOf(capacity * 2, bytesPut.toInt() + size + 1))
     }
 
     /**
@@ -173,6 +202,14 @@ class DynamicByteBuffer private constructor(initialCapacity: Int) {
          * @param initialCapacity Starting buffer size in bytes
          */
         fun dynamicByteBuffer(initialCapacity: Int) =
-            DynamicByteBuffer(initialCapacity)
+            DynamicByteBuffer(createByteBuffer(initialCapacity))
+
+        /**
+         * Creates a DynamicByteBuffer writing to the memory of [data], such as a mapped buffer range.
+         * The memory is only written to until the buffer has to [grow], which moves the data to a new allocation.
+         * @param data Direct buffer to write to
+         */
+        fun wrap(data: ByteBuffer) =
+            DynamicByteBuffer(data)
     }
 }
@@ -7,7 +7,9 @@ import com.arc.graphics.pipeline.PersistentBuffer
 import org.lwjgl.opengl.GL30C.GL_UNSIGNED_INT
 import org.lwjgl.opengl.GL30C.glBindVertexArray
 import org.lwjgl.opengl.GL30C.glGenVertexArrays
+import org.lwjgl.opengl.GL31C.glDrawArraysInstanced
 import org.lwjgl.opengl.GL32C.glDrawElementsBaseVertex
+import org.lwjgl.opengl.GL42C.glDrawArraysInstancedBaseInstance
 
 class VertexArray(
     private val vertexMode: VertexMode,
@@ -15,35 +17,73 @@ class VertexArray(
 ) {
     private val vao = glGenVertexArrays()
     private var linkedVBO: PersistentBuffer? = null
+    private var linkedBuffer = 0
 
+    /**
+     * Draws the indices uploaded to [ibo] since its last end.
+     *
+     * Streaming index buffers are bound to the vertex array and read from GPU memory,
+     * other index buffers are read from their client memory.
+     */
     fun renderIndices(
         ibo: PersistentBuffer
     ) = linkedVBO?.let { vbo ->
+        // A streaming buffer gets a new name when its storage grows
+        if (vbo.buffer.buffer != linkedBuffer) linkVbo(vbo)
+
         renderInternal(
+            ibo = ibo.takeIf { it.isStreaming },
             indicesSize = ibo.byteBuffer.bytesPut - ibo.uploadOffset,
-            indicesPointer = ibo.byteBuffer.pointer + ibo.uploadOffset,
-            verticesOffset = vbo.uploadOffset
+            indicesPointer =
+                if (ibo.isStreaming) ibo.segmentOffset + ibo.uploadOffset
+                else ibo.byteBuffer.pointer + ibo.uploadOffset,
+            verticesOffset = vbo.segmentOffset + vbo.uploadOffset
         )
     } ?: throw IllegalStateException("Unable to use vertex array without having a VBO linked to it.")
 
+    /**
+     * Draws [vertices] vertices for every instance uploaded to the linked buffer since its last end.
+     * The vertices have no data of their own and are generated from `gl_VertexID` in the vertex shader.
+     */
+    fun renderInstanced(
+        mode: VertexMode,
+        vertices: Int
+    ) = linkedVBO?.let { vbo ->
+        if (vbo.buffer.buffer != linkedBuffer) linkVbo(vbo)
+
+        val instances = ((vbo.byteBuffer.bytesPut - vbo.uploadOffset) / attributes.stride).toInt()
+        if (instances <= 0) return@let
+
+        val baseInstance = ((vbo.segmentOffset + vbo.uploadOffset) / attributes.stride).toInt()
+
+        glBindVertexArray(vao)
+        if (baseInstance == 0) glDrawArraysInstanced(mode.mode, 0, vertices, instances)
+        else glDrawArraysInstancedBaseInstance(mode.mode, 0, vertices, instances, baseInstance)
+        glBindVertexArray(0)
+    } ?: throw IllegalStateException("Unable to use vertex array without having a VBO linked to it.")
+
     private fun renderInternal(
+        ibo: PersistentBuffer?,
         indicesSize: Long,
         indicesPointer: Long,
         verticesOffset: Long
     ) {
         glBindVertexArray(vao)
+        ibo?.buffer?.bind()
         glDrawElementsBaseVertex(
             vertexMode.mode,
             indicesSize.toInt() / Int.SIZE_BYTES,
             GL_UNSIGNED_INT,
             indicesPointer,
-            verticesOffset.toInt() / attributes.stride,
+            (verticesOffset / attributes.stride).toInt(),
         )
+        ibo?.buffer?.unbind()
         glBindVertexArray(0)
     }
 
     fun linkVbo(vbo: PersistentBuffer) {
         linkedVBO = vbo
+        linkedBuffer = vbo.buffer.buffer
 
         glBindVertexArray(vao)
         vbo.buffer.bind { attributes.link() }
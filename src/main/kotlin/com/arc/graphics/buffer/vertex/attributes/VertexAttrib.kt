@@ -62,6 +62,12 @@ sealed class VertexAttrib(
             Vec3, Color
         )
 
+        // Previous min, previous max, min, max, face color, edge color, side mask
+        object BOX_INSTANCE : Group(
+            Vec3(single = true), Vec3(single = true), Vec3(single = true), Vec3(single = true),
+            Color(single = true), Color(single = true), Float(single = true)
+        )
+
         object PARTICLE : Group(
             Vec3, Vec2, Color
         )
@@ -1,28 +1,55 @@
-
 package com.arc.graphics.pipeline
 
 import com.arc.graphics.buffer.Buffer
+import com.arc.graphics.buffer.DynamicByteBuffer
 import com.arc.graphics.buffer.DynamicByteBuffer.Companion.dynamicByteBuffer
 import com.arc.graphics.gl.kibibyte
+import org.lwjgl.opengl.GL
+import org.lwjgl.opengl.GL30.GL_MAP_READ_BIT
 import org.lwjgl.opengl.GL30.GL_MAP_WRITE_BIT
+import org.lwjgl.opengl.GL32.GL_SYNC_FLUSH_COMMANDS_BIT
+import org.lwjgl.opengl.GL32.GL_SYNC_GPU_COMMANDS_COMPLETE
+import org.lwjgl.opengl.GL32.glClientWaitSync
+import org.lwjgl.opengl.GL32.glDeleteSync
+import org.lwjgl.opengl.GL32.glFenceSync
 import org.lwjgl.opengl.GL44.GL_DYNAMIC_STORAGE_BIT
+import org.lwjgl.opengl.GL44.GL_MAP_COHERENT_BIT
+import org.lwjgl.opengl.GL44.GL_MAP_PERSISTENT_BIT
 import org.lwjgl.system.MemoryUtil.memCopy
+import java.nio.ByteBuffer
 
 /**
  * Represents a persistent dynamic coherent buffer for fast opengl rendering purposes
+ *
+ * In streaming mode, the buffer storage is split into [SEGMENTS] ring segments which stay mapped with
+ * `GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT`. The [byteBuffer] writes straight into the current segment,
+ * so an upload is a no-op and no CPU-side snapshot is kept. Every [sync] or [clear] fences the segment the GPU
+ * may still be reading and moves on to the next one, which only blocks if the GPU is [SEGMENTS] frames behind.
+ * Streaming requires `ARB_buffer_storage` and falls back to the regular mode without it.
+ *
+ * @param streaming Whether to stream the data through persistently mapped ring segments
  */
 class PersistentBuffer(
-    target: Int, stride: Int, initialSize: Int = 1.kibibyte
+    target: Int, private val stride: Int, initialSize: Int = 1.kibibyte, streaming: Boolean = false
 ) {
+    /**
+     * Whether the buffer streams through persistently mapped memory
+     */
+    val isStreaming = streaming && GL.getCapabilities().GL_ARB_buffer_storage
+
     /**
      * Resizable byte buffer that stores all data used last frame
+     *
+     * In streaming mode, it points at the mapped memory of the current segment
      */
-    val byteBuffer = dynamicByteBuffer(stride * initialSize)
+    var byteBuffer = dynamicByteBuffer(stride * initialSize); private set
 
     /**
      * Represents a OpenGl Object that store unformatted memory
      */
-    val buffer = Buffer.create(target, GL_MAP_WRITE_BIT or GL_DYNAMIC_STORAGE_BIT) { allocate(byteBuffer.capacity.toLong()) }
+    val buffer =
+        if (isStreaming) Buffer.create(target, GL_MAP_WRITE_BIT or GL_MAP_READ_BIT or GL_MAP_PERSISTENT_BIT or GL_MAP_COHERENT_BIT)
+        else Buffer.create(target, GL_MAP_WRITE_BIT or GL_DYNAMIC_STORAGE_BIT) { allocate(byteBuffer.capacity.toLong()) }
 
     /**
      * Data that has passed through the buffer within previous frame
@@ -34,7 +61,28 @@ class PersistentBuffer(
 
     var uploadOffset = 0L
 
+    private var mapped: ByteBuffer? = null
+    private var segmentView: ByteBuffer? = null
+    private var segmentSize = 0
+    private var segment = 0
+    private val fences = LongArray(SEGMENTS)
+
+    /**
+     * The offset of the current segment in the buffer, always 0 outside of streaming mode
+     */
+    val segmentOffset get() = segment.toLong() * segmentSize
+
+    init {
+        if (isStreaming) allocateSegments(byteBuffer.capacity)
+    }
+
     fun upload() {
+        if (isStreaming) {
+            // The data outgrew the segment and was moved to client memory
+            if (byteBuffer.data !== segmentView) allocateSegments(byteBuffer.capacity)
+            return
+        }
+
         val dataStart = byteBuffer.pointer + uploadOffset
         val dataCount = byteBuffer.bytesPut - uploadOffset
         if (dataCount <= 0) return
@@ -59,6 +107,12 @@ class PersistentBuffer(
     }
 
     fun sync() {
+        if (isStreaming) {
+            nextSegment()
+            uploadOffset = 0
+            return
+        }
+
         memCopy(byteBuffer.pointer, snapshot.pointer, byteBuffer.bytesPut)
         snapshotData = byteBuffer.bytesPut
 
@@ -67,9 +121,80 @@ class PersistentBuffer(
     }
 
     fun clear() {
+        if (isStreaming) {
+            nextSegment()
+            uploadOffset = 0
+            return
+        }
+
         snapshot.resetPosition()
         byteBuffer.resetPosition()
         uploadOffset = 0
         snapshotData = 0
     }
+
+    /**
+     * Fences the current segment and continues writing at the start of the next one
+     */
+    private fun nextSegment() {
+        if (byteBuffer.data !== segmentView) allocateSegments(byteBuffer.capacity)
+
+        fences[segment] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0)
+        segment = (segment + 1) % SEGMENTS
+        awaitSegment(segment)
+
+        byteBuffer = DynamicByteBuffer.wrap(segmentAt(segment))
+    }
+
+    /**
+     * Blocks until the GPU is done reading the segment at [index]
+     */
+    private fun awaitSegment(index: Int) {
+        val fence = fences[index]
+        if (fence == 0L) return
+
+        glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT)
+        glDeleteSync(fence)
+        fences[index] = 0L
+    }
+
+    /**
+     * Creates a new immutable storage with segments of at least [size] bytes, maps it
+     * and moves the pending data to the first segment.
+     * The previous storage is released by the driver once the GPU is done with it.
+     */
+    private fun allocateSegments(size: Int) {
+        fences.forEachIndexed { index, fence ->
+            if (fence != 0L) glDeleteSync(fence)
+            fences[index] = 0L
+        }
+
+        if (mapped != null) buffer.orphan()
+
+        segmentSize = (size + stride - 1) / stride * stride
+        segment = 0
+
+        buffer.storage(segmentSize.toLong() * SEGMENTS)
+        buffer.bind()
+        mapped = buffer.map(0, segmentSize.toLong() * SEGMENTS)
+
+        val pending = byteBuffer
+        byteBuffer = DynamicByteBuffer.wrap(segmentAt(0))
+        if (pending.bytesPut > 0) byteBuffer.put(pending)
+    }
+
+    private fun segmentAt(index: Int): ByteBuffer =
+        checkNotNull(mapped).slice(index * segmentSize, segmentSize).also { segmentView = it }
+
+    companion object {
+        /**
+         * The amount of ring segments, allowing the CPU to write one frame while the GPU still reads two
+         */
+        const val SEGMENTS = 3
+
+        /**
+         * The longest time to wait for the GPU to release a segment, in nanoseconds
+         */
+        private const val FENCE_TIMEOUT = 1_000_000_000L
+    }
 }
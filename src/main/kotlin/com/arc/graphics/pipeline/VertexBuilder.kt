@@ -2,37 +2,48 @@
 package com.arc.graphics.pipeline
 
 import com.arc.graphics.buffer.DynamicByteBuffer
+import com.arc.graphics.buffer.DynamicByteBuffer.Companion.dynamicByteBuffer
 import com.arc.graphics.gl.Matrices
 import org.joml.Vector4d
-import java.util.concurrent.ConcurrentLinkedDeque
 
 /**
  * A builder class for constructing vertex buffer objects (VBOs) with associated vertex attributes and indices.
  * Provides a DSL-like syntax for defining vertices and their attributes in a type-safe manner.
+ *
+ * Without a [direct] pipeline, vertices and indices are written to off-heap staging buffers
+ * which are copied to the pipeline in bulk on upload.
+ * A builder is not thread-safe, each thread meshing in parallel must fill its own builder.
  */
-@Suppress("DuplicatedCode")
 class VertexBuilder(
     private val direct: VertexPipeline? = null
 ) {
-    val vertices = ConcurrentLinkedDeque<Attribute>()
-    val indices = ConcurrentLinkedDeque<Int>()
+    private var vertexStage: DynamicByteBuffer? = null
+    private var indexStage: DynamicByteBuffer? = null
+
+    private val vertexTarget
+        get() = direct?.vertices
+            ?: vertexStage
+            ?: dynamicByteBuffer(INITIAL_VERTEX_CAPACITY).also { vertexStage = it }
+
+    private val indexTarget
+        get() = direct?.indices
+            ?: indexStage
+            ?: dynamicByteBuffer(INITIAL_INDEX_CAPACITY).also { indexStage = it }
 
     private var verticesCounter = 0
 
+    /**
+     * The amount of vertices created by this builder
+     */
+    val vertexCount get() = verticesCounter
+
     /**
      * Adds multiple indices to the index buffer
      * @param indices The indices to add to the element array buffer
      */
     fun build(vararg indices: Int) {
-        direct?.let {
-            indices.forEach { i ->
-                it.indices.putInt(i)
-            }
-
-            return
-        }
-
-        indices.forEach { this.indices += it }
+        val target = indexTarget
+        indices.forEach { target.putInt(it) }
     }
 
     /**
@@ -41,22 +52,13 @@ class VertexBuilder(
     fun buildQuad(
         index1: Int, index2: Int, index3: Int, index4: Int
     ) {
-        direct?.let {
-            it.indices.putInt(index1)
-            it.indices.putInt(index2)
-            it.indices.putInt(index3)
-            it.indices.putInt(index3)
-            it.indices.putInt(index4)
-            it.indices.putInt(index1)
-            return
-        }
-
-        this.indices += index1
-        this.indices += index2
-        this.indices += index3
-        this.indices += index3
-        this.indices += index4
-        this.indices += index1
+        val target = indexTarget
+        target.putInt(index1)
+        target.putInt(index2)
+        target.putInt(index3)
+        target.putInt(index3)
+        target.putInt(index4)
+        target.putInt(index1)
     }
 
     /**
@@ -65,14 +67,9 @@ class VertexBuilder(
     fun buildLine(
         index1: Int, index2: Int,
     ) {
-        direct?.let {
-            it.indices.putInt(index1)
-            it.indices.putInt(index2)
-            return
-        }
-
-        this.indices += index1
-        this.indices += index2
+        val target = indexTarget
+        target.putInt(index1)
+        target.putInt(index2)
     }
 
     /**
@@ -81,16 +78,10 @@ class VertexBuilder(
     fun buildTriangle(
         index1: Int, index2: Int, index3: Int
     ) {
-        direct?.let {
-            it.indices.putInt(index1)
-            it.indices.putInt(index2)
-            it.indices.putInt(index3)
-            return
-        }
-
-        this.indices += index1
-        this.indices += index2
-        this.indices += index3
+        val target = indexTarget
+        target.putInt(index1)
+        target.putInt(index2)
+        target.putInt(index3)
     }
 
     /**
@@ -124,15 +115,11 @@ class VertexBuilder(
     }
 
     fun uploadVertices(buffer: DynamicByteBuffer) {
-        vertices.forEach { attribute ->
-            attribute.upload(buffer)
-        }
+        vertexStage?.let(buffer::put)
     }
 
-    fun uploadIndices(buffer: DynamicByteBuffer) {
-        indices.forEach {
-            buffer.putInt(it)
-        }
+    fun uploadIndices(buffer: DynamicByteBuffer, offset: Int = 0) {
+        indexStage?.let { buffer.putInts(it, offset) }
     }
 
     /**
@@ -146,12 +133,7 @@ class VertexBuilder(
          * @param value The scalar value to add
          */
         fun float(value: Double): Vertex {
-            builder.direct?.let {
-                it.vertices.putFloat(value)
-                return this
-            }
-
-            builder.vertices.add(Attribute.Float(value))
+            builder.vertexTarget.putFloat(value)
             return this
         }
 
@@ -161,12 +143,7 @@ class VertexBuilder(
          * @param y Y-axis component
          */
         fun vec2(x: Double, y: Double): Vertex {
-            builder.direct?.let {
-                it.vertices.putVec2(x, y)
-                return this
-            }
-
-            builder.vertices.add(Attribute.Vec2(x, y))
+            builder.vertexTarget.putVec2(x, y)
             return this
         }
 
@@ -188,12 +165,7 @@ class VertexBuilder(
          * @param z Z-axis component
          */
         fun vec3(x: Double, y: Double, z: Double): Vertex {
-            builder.direct?.let {
-                it.vertices.putVec3(x, y, z)
-                return this
-            }
-
-            builder.vertices.add(Attribute.Vec3(x, y, z))
+            builder.vertexTarget.putVec3(x, y, z)
             return this
         }
 
@@ -214,58 +186,13 @@ class VertexBuilder(
          * @param color Color value using AWT Color class
          */
         fun color(color: java.awt.Color): Vertex {
-            builder.direct?.let {
-                it.vertices.putColor(color)
-                return this
-            }
-
-            builder.vertices.add(Attribute.Color(color))
+            builder.vertexTarget.putColor(color)
             return this
         }
     }
 
-    /**
-     * Sealed hierarchy representing different vertex attribute types.
-     * Each attribute knows how to upload itself to a [DynamicByteBuffer].
-     *
-     * @property upload Arc that handles writing the attribute data to a buffer
-     */
-    sealed class Attribute(
-        val upload: DynamicByteBuffer.() -> Unit
-    ) {
-        /**
-         * Single-precision floating point attribute
-         * @property value Scalar floating point value
-         */
-        data class Float(
-            var value: Double
-        ) : Attribute({ putFloat(value) })
-
-        /**
-         * 2-component vector attribute
-         * @property x X-axis component
-         * @property y Y-axis component
-         */
-        data class Vec2(
-            var x: Double, var y: Double
-        ) : Attribute({ putVec2(x, y) })
-
-        /**
-         * 3-component vector attribute
-         * @property x X-axis component
-         * @property y Y-axis component
-         * @property z Z-axis component
-         */
-        data class Vec3(
-            var x: Double, var y: Double, var z: Double
-        ) : Attribute({ putVec3(x, y, z) })
-
-        /**
-         * Color attribute in RGBA format
-         * @property color Color value using AWT Color class
-         */
-        data class Color(
-            var color: java.awt.Color
-        ) : Attribute({ putColor(color) })
+    companion object {
+        private const val INITIAL_VERTEX_CAPACITY = 1024
+        private const val INITIAL_INDEX_CAPACITY = 512
     }
 }
@@ -13,6 +13,7 @@ import org.lwjgl.opengl.GL32C.GL_ELEMENT_ARRAY_BUFFER
  *
  * @property vertexMode The primitive type used for rendering (e.g., triangles, lines)
  * @property attributes Group of vertex attributes defining the data layout
+ * @param streaming Whether to stream the data through persistently mapped memory, for geometry rewritten every frame or tick
  *
  * @see VertexMode for vertex configuration
  * @see VertexAttrib.Group for attribute configuration
@@ -20,12 +21,13 @@ import org.lwjgl.opengl.GL32C.GL_ELEMENT_ARRAY_BUFFER
  */
 class VertexPipeline(
     private val vertexMode: VertexMode,
-    private val attributes: VertexAttrib.Group
+    private val attributes: VertexAttrib.Group,
+    streaming: Boolean = false,
 ) {
     private val vao = VertexArray(vertexMode, attributes)
 
-    private val vbo = PersistentBuffer(GL_ARRAY_BUFFER, attributes.stride)
-    private val ibo = PersistentBuffer(GL_ELEMENT_ARRAY_BUFFER, Int.SIZE_BYTES)
+    private val vbo = PersistentBuffer(GL_ARRAY_BUFFER, attributes.stride, streaming = streaming)
+    private val ibo = PersistentBuffer(GL_ELEMENT_ARRAY_BUFFER, Int.SIZE_BYTES, streaming = streaming)
 
     init {
         vao.linkVbo(vbo)
@@ -89,6 +91,24 @@ class VertexPipeline(
         uploadInternal()
     }
 
+    /**
+     * Replaces the uploaded data with the data of all [builders], drawn in a single call
+     *
+     * The indices of every builder are shifted by the vertices of the builders before it
+     */
+    fun upload(builders: Iterable<VertexBuilder>) {
+        clear()
+
+        var offset = 0
+        builders.forEach { builder ->
+            builder.uploadVertices(vertices)
+            builder.uploadIndices(indices, offset)
+            offset += builder.vertexCount
+        }
+
+        uploadInternal()
+    }
+
     /**
      * Creates a [VertexBuilder]
      *
@@ -1,23 +1,45 @@
-
 package com.arc.graphics.renderer.esp
 
+import com.arc.Arc.mc
 import com.arc.event.events.RenderEvent
 import com.arc.event.events.TickEvent
 import com.arc.event.events.WorldEvent
 import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.event.listener.SafeListener.Companion.listenConcurrently
+import com.arc.graphics.RenderMain
 import com.arc.module.Module
 import com.arc.module.modules.render.StyleEditor
-import com.arc.threading.awaitMainThread
+import com.arc.util.world.BlockSearch
 import com.arc.util.world.FastVector
 import com.arc.util.world.fastVectorOf
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.ChunkSectionPos
 import net.minecraft.world.World
 import net.minecraft.world.chunk.WorldChunk
+import org.joml.FrustumIntersection
+import java.util.BitSet
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.ConcurrentLinkedDeque
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 
+/**
+ * Meshes the blocks of every loaded chunk with the [update] function of its owner and renders the result.
+ *
+ * Each chunk is meshed per 16³ section. A block update only re-meshes the affected sections,
+ * and sections whose palette contains no state matching the [filter] are skipped without visiting a single block.
+ * In the other sections, only the blocks matching the [filter] are passed to [update].
+ *
+ * @property owner The module the ESP renders for.
+ */
 class ChunkedESP private constructor(
-    owner: Module,
+    val owner: Module,
+    private val filter: ((BlockState) -> Boolean)?,
     private val update: ShapeBuilder.(World, FastVector) -> Unit
 ) {
     private val rendererMap = ConcurrentHashMap<Long, EspChunk>()
@@ -27,25 +49,57 @@ class ChunkedESP private constructor(
     private val uploadQueue = ConcurrentLinkedDeque<() -> Unit>()
     private val rebuildQueue = ConcurrentLinkedDeque<EspChunk>()
 
-    private var ticks = 0
+    private val meshedSections = AtomicLong()
+    private val skippedSections = AtomicLong()
+    private val rebuilds = AtomicLong()
+    private val rebuildNanos = AtomicLong()
+
+    private val visible = ArrayList<Treed>()
+
+    /** The amount of chunks drawn in the last frame */
+    @Volatile
+    var drawnChunks = 0
+        private set
+
+    /** The amount of chunks skipped by frustum or distance culling in the last frame */
+    @Volatile
+    var culledChunks = 0
+        private set
+
+    /** The amount of chunks with a renderer */
+    val chunks get() = rendererMap.size
+
+    /** The amount of chunks waiting to be re-meshed */
+    val queued get() = rebuildQueue.size
+
+    /** The share of sections skipped through their palette */
+    val skipRatio: Double
+        get() {
+            val skipped = skippedSections.get()
+            val total = skipped + meshedSections.get()
+            return if (total == 0L) 0.0 else skipped.toDouble() / total
+        }
+
+    /** The average time it took to re-mesh a chunk */
+    val averageRebuildNanos: Long
+        get() = rebuilds.get().let { if (it == 0L) 0L else rebuildNanos.get() / it }
 
     fun rebuild() {
-        rebuildQueue.clear()
-        rebuildQueue.addAll(rendererMap.values)
+        rendererMap.values.forEach { it.invalidateAll() }
     }
 
     init {
         listen<WorldEvent.BlockUpdate.Client> { event ->
-            world.getWorldChunk(event.pos).renderer.notifyChunks()
+            notifyBlock(event.pos)
         }
 
         listen<WorldEvent.ChunkEvent.Load> { event ->
-            event.chunk.renderer.notifyChunks()
+            event.chunk.renderer.invalidateAll()
         }
 
         listen<WorldEvent.ChunkEvent.Unload> {
             val pos = it.chunk.pos.toLong()
-            rendererMap.remove(pos)?.notifyChunks()
+            rendererMap.remove(pos)
         }
 
         owner.listenConcurrently<TickEvent.Pre> {
@@ -59,41 +113,178 @@ class ChunkedESP private constructor(
         }
 
         owner.listen<RenderEvent.Render> {
-            rendererMap.values.forEach { it.renderer.render() }
+            renderVisible()
+        }
+
+        instances.add(this)
+    }
+
+    /**
+     * Draws the chunks inside the view frustum and the render distance in one batch.
+     */
+    private fun renderVisible() {
+        val camera = mc.gameRenderer.camera.pos
+        val frustum = if (StyleEditor.espFrustumCulling) FrustumIntersection(RenderMain.projModel) else null
+        val maxDistance = StyleEditor.espRenderDistance * 16.0
+        var culled = 0
+
+        visible.clear()
+        rendererMap.values.forEach { chunk ->
+            val renderer = chunk.renderer ?: return@forEach
+            val box = chunk.bounds ?: return@forEach
+
+            val dx = box.minX + 8 - camera.x
+            val dz = box.minZ + 8 - camera.z
+            val isTooFar = dx * dx + dz * dz > maxDistance * maxDistance
+            val isOutside = frustum?.testAab(
+                (box.minX - camera.x).toFloat(), (box.minY - camera.y).toFloat(), (box.minZ - camera.z).toFloat(),
+                (box.maxX - camera.x).toFloat(), (box.maxY - camera.y).toFloat(), (box.maxZ - camera.z).toFloat(),
+            ) == false
+
+            if (isTooFar || isOutside) culled++
+            else visible.add(renderer)
         }
+
+        drawnChunks = visible.size
+        culledChunks = culled
+        Treed.renderAll(visible)
+    }
+
+    /**
+     * Marks the section of [pos] dirty. Sections sharing a face with the block are marked as well,
+     * as their mesh may depend on it.
+     */
+    private fun notifyBlock(pos: BlockPos) {
+        val x = pos.x and 15
+        val y = pos.y and 15
+        val z = pos.z and 15
+
+        notifySection(pos.x, pos.y, pos.z)
+        if (x == 0) notifySection(pos.x - 1, pos.y, pos.z)
+        if (x == 15) notifySection(pos.x + 1, pos.y, pos.z)
+        if (y == 0) notifySection(pos.x, pos.y - 1, pos.z)
+        if (y == 15) notifySection(pos.x, pos.y + 1, pos.z)
+        if (z == 0) notifySection(pos.x, pos.y, pos.z - 1)
+        if (z == 15) notifySection(pos.x, pos.y, pos.z + 1)
     }
 
+    private fun notifySection(x: Int, y: Int, z: Int) {
+        val chunk = rendererMap[ChunkPos.toLong(x shr 4, z shr 4)] ?: return
+        chunk.invalidate(chunk.chunk.getSectionIndex(y))
+    }
+
+    override fun toString() =
+        "${owner.name}: $chunks chunks ($drawnChunks drawn, $culledChunks culled), $queued queued, " +
+                "${"%.2f".format(averageRebuildNanos / 1e6)}ms/rebuild, ${"%.0f".format(skipRatio * 100)}% sections skipped"
+
     companion object {
+        /**
+         * Every created [ChunkedESP], for diagnostics.
+         */
+        val instances = CopyOnWriteArrayList<ChunkedESP>()
+
+        /**
+         * Creates a [ChunkedESP] for the module.
+         *
+         * @param filter Whether a block state can produce a shape. Sections without any matching state in their palette
+         * are skipped. If `null`, every section is meshed block by block.
+         * @param update Builds the shapes of a single block.
+         */
         fun Module.newChunkedESP(
+            filter: ((BlockState) -> Boolean)? = null,
             update: ShapeBuilder.(World, FastVector) -> Unit
-        ) = ChunkedESP(this@newChunkedESP, update)
+        ) = ChunkedESP(this@newChunkedESP, filter, update)
     }
 
     private class EspChunk(val chunk: WorldChunk, val owner: ChunkedESP) {
-        var renderer = Treed(static = true)
-        private val builder: ShapeBuilder
-            get() = ShapeBuilder(renderer.faceBuilder, renderer.edgeBuilder)
+        var renderer: Treed? = null
+
+        /** The box around all non-empty sections, `null` while nothing is meshed */
+        @Volatile
+        var bounds: Box? = null
 
-        /*val neighbors = listOf(1 to 0, 0 to 1, -1 to 0, 0 to -1)
-            .map { ChunkPos(chunk.pos.x + it.first, chunk.pos.z + it.second) }*/
+        private val sections = arrayOfNulls<ShapeBuilder>(chunk.countVerticalSections())
+        private val dirty = BitSet(sections.size)
+        private val queued = AtomicBoolean()
 
-        fun notifyChunks() {
-            owner.rendererMap[chunk.pos.toLong()]?.let {
-                if (!owner.rebuildQueue.contains(it))
-                    owner.rebuildQueue.add(it)
+        fun invalidateAll() {
+            synchronized(dirty) { dirty.set(0, sections.size) }
+            enqueue()
+        }
+
+        fun invalidate(index: Int) {
+            if (index !in sections.indices) return
+            synchronized(dirty) { dirty.set(index) }
+            enqueue()
+        }
+
+        private fun enqueue() {
+            if (owner.rendererMap[chunk.pos.toLong()] !== this) return
+            if (queued.compareAndSet(false, true)) owner.rebuildQueue.add(this)
+        }
+
+        fun rebuild() {
+            queued.set(false)
+            val start = System.nanoTime()
+
+            val indices = synchronized(dirty) {
+                dirty.stream().toArray().also { dirty.clear() }
+            }
+            if (indices.isEmpty()) return
+
+            indices.forEach { sections[it] = meshSection(it) }
+
+            owner.rebuilds.incrementAndGet()
+            owner.rebuildNanos.addAndGet(System.nanoTime() - start)
+
+            val shapes = sections.filterNotNull()
+            val bottom = sections.indexOfFirst { it != null }
+            val top = sections.indexOfLast { it != null }
+            val box = if (bottom < 0) null else Box(
+                chunk.pos.startX.toDouble(),
+                ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(bottom)).toDouble(),
+                chunk.pos.startZ.toDouble(),
+                chunk.pos.endX + 1.0,
+                ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(top)) + 16.0,
+                chunk.pos.endZ + 1.0,
+            )
+
+            owner.uploadQueue.add {
+                bounds = box
+                val renderer = renderer ?: Treed(static = true).also { renderer = it }
+                renderer.upload(shapes)
             }
         }
 
-        suspend fun rebuild() {
-            renderer.clear()
-            renderer = awaitMainThread { Treed(static = true) }
+        /**
+         * Meshes the section at [index], or returns `null` if its palette cannot contain a target.
+         * With a filter, only the blocks matching it are visited.
+         */
+        private fun meshSection(index: Int): ShapeBuilder? {
+            val section = chunk.sectionArray[index]
+            val filter = owner.filter
+            val builder = ShapeBuilder()
+            val bottomY = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(index))
+            val bounds = BlockBox(chunk.pos.startX, bottomY, chunk.pos.startZ, chunk.pos.endX, bottomY + 15, chunk.pos.endZ)
 
-            for (x in chunk.pos.startX..chunk.pos.endX)
-                for (z in chunk.pos.startZ..chunk.pos.endZ)
-                    for (y in chunk.bottomY..chunk.height)
-                        owner.update(builder, chunk.world, fastVectorOf(x, y, z))
+            if (filter != null) {
+                val scanned = BlockSearch.searchSection(section, bounds, bounds, filter) { x, y, z, _ ->
+                    owner.update(builder, chunk.world, fastVectorOf(x, y, z))
+                }
+
+                if (!scanned) {
+                    owner.skippedSections.incrementAndGet()
+                    return null
+                }
+            } else {
+                for (x in bounds.minX..bounds.maxX)
+                    for (z in bounds.minZ..bounds.maxZ)
+                        for (y in bounds.minY..bounds.maxY)
+                            owner.update(builder, chunk.world, fastVectorOf(x, y, z))
+            }
 
-            owner.uploadQueue.add { renderer.upload() }
+            owner.meshedSections.incrementAndGet()
+            return builder.takeIf { it.faces.vertexCount > 0 || it.edges.vertexCount > 0 }
         }
     }
 }
@@ -0,0 +1,104 @@
+package com.arc.graphics.renderer.esp
+
+import com.arc.Arc.mc
+import com.arc.graphics.buffer.vertex.VertexArray
+import com.arc.graphics.buffer.vertex.attributes.VertexAttrib
+import com.arc.graphics.buffer.vertex.attributes.VertexMode
+import com.arc.graphics.gl.GlStateUtils
+import com.arc.graphics.pipeline.PersistentBuffer
+import com.arc.graphics.shader.Shader
+import com.arc.module.modules.render.StyleEditor
+import com.arc.util.extension.partialTicks
+import net.minecraft.util.math.Box
+import org.lwjgl.opengl.GL15C.GL_ARRAY_BUFFER
+import java.awt.Color
+
+/**
+ * Open class for instanced box rendering.
+ *
+ * Unlike [Treed], which expands every box into 8 vertices and up to 60 indices on the CPU,
+ * each box is a single record of its bounds, colors and [DirectionMask] sides.
+ * The faces and edges are expanded in the vertex shader, so a box costs 60 bytes of upload instead of roughly 700.
+ */
+open class InstancedBoxes(private val static: Boolean) {
+    private val attributes = VertexAttrib.Group.BOX_INSTANCE
+    private val buffer = PersistentBuffer(GL_ARRAY_BUFFER, attributes.stride, streaming = !static)
+    private val vao = VertexArray(VertexMode.Triangles, attributes).apply { linkVbo(buffer) }
+
+    /**
+     * The amount of boxes written since the last [clear]
+     */
+    val count get() = (buffer.byteBuffer.bytesPut / attributes.stride).toInt()
+
+    @ShapeDsl
+    fun box(
+        box     : Box,
+        filled  : Color,
+        outline : Color,
+        sides   : Int = DirectionMask.ALL,
+        mode    : DirectionMask.OutlineMode = DirectionMask.OutlineMode.Or,
+    ) = put(box, box, filled, outline, sides, mode)
+
+    @ShapeDsl
+    fun box(
+        box     : DynamicAABB,
+        filled  : Color,
+        outline : Color,
+        sides   : Int = DirectionMask.ALL,
+        mode    : DirectionMask.OutlineMode = DirectionMask.OutlineMode.Or,
+    ) {
+        val (prev, curr) = box.pair ?: return
+        put(prev, curr, filled, outline, sides, mode)
+    }
+
+    private fun put(
+        prev: Box, curr: Box,
+        filled: Color, outline: Color,
+        sides: Int, mode: DirectionMask.OutlineMode,
+    ) = with(buffer.byteBuffer) {
+        putVec3(prev.minX, prev.minY, prev.minZ)
+        putVec3(prev.maxX, prev.maxY, prev.maxZ)
+        putVec3(curr.minX, curr.minY, curr.minZ)
+        putVec3(curr.maxX, curr.maxY, curr.maxZ)
+        putColor(filled)
+        putColor(outline)
+        putFloat((sides or if (mode == DirectionMask.OutlineMode.And) AND_MODE else 0).toDouble())
+    }
+
+    fun upload() = buffer.upload()
+
+    fun render() {
+        if (count == 0) return
+
+        shader.use()
+        shader["u_TickDelta"] = if (static) 1.0 else mc.partialTicks
+
+        shader["u_Edges"] = false
+        GlStateUtils.withFaceCulling { vao.renderInstanced(VertexMode.Triangles, FACE_VERTICES) }
+
+        shader["u_Edges"] = true
+        GlStateUtils.withLineWidth(StyleEditor.outlineWidth) { vao.renderInstanced(VertexMode.Lines, EDGE_VERTICES) }
+    }
+
+    fun clear() = buffer.clear()
+
+    /**
+     * Public object for static instanced rendering. Boxes rendered by this are not interpolated.
+     */
+    object Static : InstancedBoxes(true)
+
+    /**
+     * Public object for dynamic instanced rendering. Boxes are interpolated between their previous and current bounds.
+     */
+    object Dynamic : InstancedBoxes(false)
+
+    companion object {
+        private const val FACE_VERTICES = 36
+        private const val EDGE_VERTICES = 24
+
+        /** Set in the side mask when edges need both touching sides, see [DirectionMask.OutlineMode.And] */
+        private const val AND_MODE = 64
+
+        private val shader = Shader("shaders/vertex/box_instanced.glsl", "shaders/fragment/pos_color.glsl")
+    }
+}
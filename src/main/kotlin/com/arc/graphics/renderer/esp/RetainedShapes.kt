@@ -0,0 +1,140 @@
+package com.arc.graphics.renderer.esp
+
+import com.arc.context.SafeContext
+import com.arc.event.events.RenderEvent
+import com.arc.event.events.TickEvent
+import com.arc.event.listener.SafeListener.Companion.listen
+import com.arc.module.Module
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * A retained set of static shapes owned by a module, keyed by a long such as a packed block position or an entity id.
+ *
+ * Unlike [onStaticRender][com.arc.event.events.onStaticRender], which rebuilds every shape each tick,
+ * a shape is only re-encoded after its key was [invalidated][invalidate].
+ * The merged buffers are uploaded once per tick and only if a shape changed.
+ *
+ * Not thread-safe, all calls are expected on the game thread.
+ *
+ * @property owner The module the shapes render for. Nothing is rebuilt or rendered while it is disabled.
+ */
+class RetainedShapes private constructor(
+    val owner: Module,
+    private val build: SafeContext.(ShapeBuilder, key: Long) -> Unit,
+) {
+    private val shapes = Long2ObjectOpenHashMap<ShapeBuilder>()
+    private val dirty = LongOpenHashSet()
+    private var renderer: Treed? = null
+    private var changed = false
+
+    /** The amount of vertices re-encoded in the last tick */
+    var verticesRebuilt = 0
+        private set
+
+    /** The amount of shapes re-encoded in the last tick */
+    var shapesRebuilt = 0
+        private set
+
+    /** The amount of vertices re-encoded since the creation of this layer */
+    var totalVerticesRebuilt = 0L
+        private set
+
+    /** The amount of keys with a non-empty shape */
+    val size get() = shapes.size
+
+    /**
+     * Marks the shape of [key] for a rebuild on the next tick.
+     */
+    fun invalidate(key: Long) {
+        dirty.add(key)
+    }
+
+    /**
+     * Marks every retained shape for a rebuild on the next tick.
+     */
+    fun invalidateAll() {
+        dirty.addAll(shapes.keys)
+    }
+
+    /**
+     * Drops the shape of [key] without rebuilding it.
+     */
+    fun remove(key: Long) {
+        dirty.remove(key)
+        if (shapes.remove(key) != null) changed = true
+    }
+
+    /**
+     * Drops every shape.
+     */
+    fun clear() {
+        dirty.clear()
+        if (shapes.isEmpty()) return
+        shapes.clear()
+        changed = true
+    }
+
+    init {
+        owner.listen<TickEvent.Post> {
+            rebuildDirty()
+
+            if (!changed) return@listen
+            changed = false
+
+            val renderer = renderer ?: Treed(static = true).also { renderer = it }
+            renderer.upload(shapes.values)
+        }
+
+        owner.listen<RenderEvent.Render> {
+            if (shapes.isNotEmpty()) renderer?.render()
+        }
+
+        instances.add(this)
+    }
+
+    private fun SafeContext.rebuildDirty() {
+        var vertices = 0
+        val rebuilt = dirty.size
+
+        val iterator = dirty.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.nextLong()
+            val builder = ShapeBuilder()
+            build(builder, key)
+
+            val count = builder.faces.vertexCount + builder.edges.vertexCount
+            vertices += count
+
+            val previous =
+                if (count > 0) shapes.put(key, builder)
+                else shapes.remove(key)
+            if (count > 0 || previous != null) changed = true
+        }
+        dirty.clear()
+
+        shapesRebuilt = rebuilt
+        verticesRebuilt = vertices
+        totalVerticesRebuilt += vertices
+    }
+
+    override fun toString() =
+        "${owner.name}: $size shapes, $shapesRebuilt rebuilt ($verticesRebuilt vertices) last tick, " +
+                "$totalVerticesRebuilt vertices total"
+
+    companion object {
+        /**
+         * Every created [RetainedShapes], for diagnostics.
+         */
+        val instances = CopyOnWriteArrayList<RetainedShapes>()
+
+        /**
+         * Creates a [RetainedShapes] layer for the module.
+         *
+         * @param build Builds the shape of a single key. Building nothing removes the key from the layer.
+         */
+        fun Module.retainedShapes(build: SafeContext.(ShapeBuilder, key: Long) -> Unit) =
+            RetainedShapes(this@retainedShapes, build)
+    }
+}
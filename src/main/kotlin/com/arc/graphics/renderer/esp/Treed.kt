@@ -17,8 +17,8 @@ import com.arc.util.extension.partialTicks
 open class Treed(private val static: Boolean) {
     val shader = if (static) staticMode.first else dynamicMode.first
 
-    val faces = VertexPipeline(VertexMode.Triangles, if (static) staticMode.second else dynamicMode.second)
-    val edges = VertexPipeline(VertexMode.Lines, if (static) staticMode.second else dynamicMode.second)
+    val faces = VertexPipeline(VertexMode.Triangles, if (static) staticMode.second else dynamicMode.second, streaming = !static)
+    val edges = VertexPipeline(VertexMode.Lines, if (static) staticMode.second else dynamicMode.second, streaming = !static)
 
     var faceBuilder = VertexBuilder(); private set
     var edgeBuilder = VertexBuilder(); private set
@@ -28,6 +28,14 @@ open class Treed(private val static: Boolean) {
         edges.upload(edgeBuilder)
     }
 
+    /**
+     * Replaces the uploaded data with the merged data of all [shapes]
+     */
+    fun upload(shapes: Collection<ShapeBuilder>) {
+        faces.upload(shapes.map { it.faces })
+        edges.upload(shapes.map { it.edges })
+    }
+
     fun render() {
         shader.use()
 
@@ -59,6 +67,21 @@ open class Treed(private val static: Boolean) {
     object Dynamic : Treed(false)
 
     companion object {
+        /**
+         * Renders all [renderers] with a single shader bind and state setup, instead of one per renderer.
+         * Every renderer must use the same mode.
+         */
+        fun renderAll(renderers: Collection<Treed>) {
+            val first = renderers.firstOrNull() ?: return
+            first.shader.use()
+
+            if (!first.static)
+                first.shader["u_TickDelta"] = mc.partialTicks
+
+            GlStateUtils.withFaceCulling { renderers.forEach { it.faces.render() } }
+            GlStateUtils.withLineWidth(StyleEditor.outlineWidth) { renderers.forEach { it.edges.render() } }
+        }
+
         private val staticMode = Shader("shaders/vertex/box_static.glsl", "shaders/fragment/pos_color.glsl") to VertexAttrib.Group.STATIC_RENDERER
         private val dynamicMode = Shader("shaders/vertex/box_dynamic.glsl", "shaders/fragment/pos_color.glsl") to VertexAttrib.Group.DYNAMIC_RENDERER
     }
@@ -19,6 +19,7 @@ open class AbstractGUIRenderer(
     val shader: Shader
 ) {
     private val pipeline = VertexPipeline(VertexMode.Triangles, attribGroup)
+    private val streamingPipeline by lazy { VertexPipeline(VertexMode.Triangles, attribGroup, streaming = true) }
     private var memoryMapping = true
 
     init {
@@ -27,7 +28,7 @@ open class AbstractGUIRenderer(
         }
 
         listen<TickEvent.Render.Post>(alwaysListen = true) {
-            if (memoryMapping) pipeline.sync()
+            if (memoryMapping) streamingPipeline.sync()
         }
     }
 
@@ -37,6 +38,8 @@ open class AbstractGUIRenderer(
     ) {
         shader.use()
 
+        // With memory mapping, the frame is written straight into mapped memory and drawn in consecutive ranges
+        val pipeline = if (memoryMapping) streamingPipeline else pipeline
         block(pipeline, shader)
 
         shader["u_Shade"] = shade.toInt().toDouble()
@@ -1,10 +1,11 @@
 
 package com.arc.interaction.construction.blueprint
 
+import com.arc.interaction.construction.blueprint.Structure.Companion.buildStructure
 import com.arc.interaction.construction.verify.TargetState
 import com.arc.util.collections.updatableLazy
-import com.arc.util.extension.Structure
 import com.arc.util.math.roundedBlockPos
+import net.minecraft.block.BlockState
 import net.minecraft.structure.StructureTemplate
 import net.minecraft.util.math.BlockBox
 import net.minecraft.util.math.BlockPos
@@ -14,16 +15,7 @@ import net.minecraft.util.math.Vec3d
 abstract class Blueprint {
     abstract val structure: Structure
 
-    val bounds = updatableLazy {
-        if (structure.isEmpty()) return@updatableLazy null
-        val maxX = structure.keys.maxOf { it.x }
-        val maxY = structure.keys.maxOf { it.y }
-        val maxZ = structure.keys.maxOf { it.z }
-        val minX = structure.keys.minOf { it.x }
-        val minY = structure.keys.minOf { it.y }
-        val minZ = structure.keys.minOf { it.z }
-        BlockBox(minX, minY, minZ, maxX, maxY, maxZ)
-    }
+    val bounds = updatableLazy { structure.bounds }
 
     fun getClosestPointTo(target: Vec3d): Vec3d {
         val bounds = bounds.value ?: return target
@@ -38,17 +30,26 @@ abstract class Blueprint {
     val center get() = bounds.value?.center
 
     companion object {
-        fun emptyStructure(): Structure = emptyMap()
+        fun emptyStructure(): Structure = Structure.EMPTY
 
         fun BlockBox.toStructure(targetState: TargetState): Structure =
-            BlockPos.stream(this).toList().associateWith { targetState }
+            buildStructure(blockCountX * blockCountY * blockCountZ) {
+                BlockPos.iterate(minX, minY, minZ, maxX, maxY, maxZ).forEach { put(it, targetState) }
+            }
 
         fun BlockPos.toStructure(targetState: TargetState): Structure =
-            setOf(this).associateWith { targetState }
-
-        fun StructureTemplate.toStructure(): Structure =
-            blockInfoLists
-                .flatMap { it.all }
-                .associate { it.pos to TargetState.State(it.state) }
+            buildStructure(1) { put(this@toStructure, targetState) }
+
+        /**
+         * Converts the template into a [Structure].
+         * Templates mostly repeat a small palette of block states, so each [BlockState] shares one [TargetState].
+         */
+        fun StructureTemplate.toStructure(): Structure {
+            val blocks = blockInfoLists.flatMap { it.all }
+            val palette = HashMap<BlockState, TargetState>()
+            return buildStructure(blocks.size) {
+                blocks.forEach { put(it.pos, palette.getOrPut(it.state) { TargetState.State(it.state) }) }
+            }
+        }
     }
 }
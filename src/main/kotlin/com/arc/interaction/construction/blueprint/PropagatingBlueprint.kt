@@ -2,21 +2,23 @@
 package com.arc.interaction.construction.blueprint
 
 import com.arc.context.SafeContext
+import com.arc.interaction.construction.blueprint.Structure.Companion.toStructure
+import com.arc.interaction.construction.verify.TargetState
 import com.arc.threading.runSafe
-import com.arc.util.extension.Structure
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Vec3i
 
 data class PropagatingBlueprint(
-    val onFinish: SafeContext.(Structure) -> Structure? = { it },
+    val onFinish: SafeContext.(Structure) -> Map<BlockPos, TargetState>? = { it },
 ) : Blueprint() {
     fun next() =
         runSafe {
             onFinish(structure)?.also { new ->
-                structure = new
+                structure = new.toStructure()
             }
         }
 
-    override var structure: Structure = emptyMap()
+    override var structure: Structure = Structure.EMPTY
         private set(value) {
             field = value
             bounds.update()
@@ -25,14 +27,11 @@ data class PropagatingBlueprint(
     override fun toString() = "Propagating Blueprint at ${center?.toShortString()}"
 
     companion object {
-        fun offset(offset: Vec3i): SafeContext.(Structure) -> Structure? = {
-            it.map { (pos, state) ->
-                pos.add(offset) to state
-            }.toMap()
-        }
+        fun offset(offset: Vec3i): SafeContext.(Structure) -> Map<BlockPos, TargetState>? =
+            { it.move(offset) }
 
         fun propagatingBlueprint(
-            onFinish: SafeContext.(Structure) -> Structure?,
+            onFinish: SafeContext.(Structure) -> Map<BlockPos, TargetState>?,
         ) = PropagatingBlueprint(onFinish)
     }
 }
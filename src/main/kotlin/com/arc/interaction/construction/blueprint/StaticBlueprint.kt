@@ -1,8 +1,6 @@
 
 package com.arc.interaction.construction.blueprint
 
-import com.arc.util.extension.Structure
-
 data class StaticBlueprint(
     override val structure: Structure,
 ) : Blueprint() {
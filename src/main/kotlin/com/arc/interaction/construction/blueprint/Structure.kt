@@ -0,0 +1,178 @@
+package com.arc.interaction.construction.blueprint
+
+import com.arc.interaction.construction.verify.TargetState
+import com.arc.util.world.FastVector
+import com.arc.util.world.fastVectorOf
+import com.arc.util.world.toBlockPos
+import com.arc.util.world.toFastVec
+import com.arc.util.world.x
+import com.arc.util.world.y
+import com.arc.util.world.z
+import it.unimi.dsi.fastutil.longs.Long2ObjectMaps
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongSet
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3i
+
+/**
+ * A [Structure] describes which [TargetState] every block position of a [Blueprint] should end up in.
+ *
+ * Positions are stored as packed [FastVector] keys in a primitive open-addressing map, so no [BlockPos]
+ * or hash entry is allocated per block. The [bounds] are tracked while the structure is built,
+ * which makes them available without another pass over the positions.
+ *
+ * A [Structure] is immutable and implements [Map] for compatibility.
+ * Iterating it as a [Map] creates a [BlockPos] per entry, hot paths should use [forEachPacked] instead.
+ *
+ * Usage:
+ * ```kotlin
+ * val structure = buildStructure {
+ *     put(BlockPos(0, 64, 0), TargetState.Air)
+ *     put(fastVectorOf(1, 64, 0), TargetState.Air)
+ * }
+ * ```
+ *
+ * @property bounds The smallest [BlockBox] containing every position, or `null` if the structure is empty.
+ */
+class Structure private constructor(
+    @PublishedApi internal val states: Long2ObjectOpenHashMap<TargetState>,
+    val bounds: BlockBox?,
+) : AbstractMap<BlockPos, TargetState>() {
+    override val size get() = states.size
+
+    override fun isEmpty() = states.isEmpty()
+
+    override fun containsKey(key: BlockPos) = states.containsKey(key.toFastVec())
+
+    override fun get(key: BlockPos): TargetState? = states.get(key.toFastVec())
+
+    /** Returns the [TargetState] at the packed position, or `null` if it is not part of the structure */
+    operator fun get(pos: FastVector): TargetState? = states.get(pos)
+
+    /** Whether the packed position is part of the structure */
+    operator fun contains(pos: FastVector) = states.containsKey(pos)
+
+    /** A read-only view of all packed positions */
+    val packedPositions: LongSet get() = states.keys
+
+    override val entries: Set<Map.Entry<BlockPos, TargetState>> by lazy {
+        object : AbstractSet<Map.Entry<BlockPos, TargetState>>() {
+            override val size get() = states.size
+
+            override fun iterator() = object : Iterator<Map.Entry<BlockPos, TargetState>> {
+                private val delegate = Long2ObjectMaps.fastIterator(states)
+
+                override fun hasNext() = delegate.hasNext()
+
+                override fun next() = delegate.next().let { Entry(it.longKey.toBlockPos(), it.value) }
+            }
+        }
+    }
+
+    /**
+     * Performs the [action] for every position without allocating a [BlockPos].
+     */
+    inline fun forEachPacked(action: (pos: FastVector, state: TargetState) -> Unit) {
+        val iterator = Long2ObjectMaps.fastIterator(states)
+        while (iterator.hasNext()) {
+            val entry = iterator.next()
+            action(entry.longKey, entry.value)
+        }
+    }
+
+    /**
+     * Returns a copy of this structure with every position shifted by [offset].
+     */
+    fun move(offset: Vec3i) = move(offset.x, offset.y, offset.z)
+
+    fun moveX(x: Int) = move(x, 0, 0)
+
+    fun moveY(y: Int) = move(0, y, 0)
+
+    fun moveZ(z: Int) = move(0, 0, z)
+
+    private fun move(dx: Int, dy: Int, dz: Int): Structure {
+        if (dx == 0 && dy == 0 && dz == 0) return this
+
+        return buildStructure(size) {
+            forEachPacked { pos, state ->
+                put(fastVectorOf(pos.x + dx, pos.y + dy, pos.z + dz), state)
+            }
+        }
+    }
+
+    override fun equals(other: Any?) = when {
+        this === other -> true
+        other is Structure -> states == other.states
+        else -> super.equals(other)
+    }
+
+    override fun hashCode() = super.hashCode()
+
+    private class Entry(
+        override val key: BlockPos,
+        override val value: TargetState,
+    ) : Map.Entry<BlockPos, TargetState>
+
+    /**
+     * Collects positions for a new [Structure] while keeping track of its bounds.
+     */
+    class Builder(expectedSize: Int = 16) {
+        private val states = Long2ObjectOpenHashMap<TargetState>(expectedSize)
+
+        private var minX = Int.MAX_VALUE
+        private var minY = Int.MAX_VALUE
+        private var minZ = Int.MAX_VALUE
+        private var maxX = Int.MIN_VALUE
+        private var maxY = Int.MIN_VALUE
+        private var maxZ = Int.MIN_VALUE
+
+        fun put(pos: BlockPos, state: TargetState) = put(pos.toFastVec(), state)
+
+        fun put(pos: FastVector, state: TargetState) {
+            states.put(pos, state)
+
+            val x = pos.x
+            val y = pos.y
+            val z = pos.z
+            if (x < minX) minX = x
+            if (y < minY) minY = y
+            if (z < minZ) minZ = z
+            if (x > maxX) maxX = x
+            if (y > maxY) maxY = y
+            if (z > maxZ) maxZ = z
+        }
+
+        fun putAll(structure: Map<BlockPos, TargetState>) {
+            if (structure is Structure) structure.forEachPacked { pos, state -> put(pos, state) }
+            else structure.forEach { (pos, state) -> put(pos, state) }
+        }
+
+        fun build(): Structure {
+            if (states.isEmpty()) return EMPTY
+
+            states.trim()
+            return Structure(states, BlockBox(minX, minY, minZ, maxX, maxY, maxZ))
+        }
+    }
+
+    companion object {
+        val EMPTY = Structure(Long2ObjectOpenHashMap(0), null)
+
+        /**
+         * Builds a new [Structure] using the given [builder].
+         *
+         * @param expectedSize The amount of positions expected, used to avoid rehashing.
+         */
+        inline fun buildStructure(expectedSize: Int = 16, builder: Builder.() -> Unit) =
+            Builder(expectedSize).apply(builder).build()
+
+        /**
+         * Converts a [Map] of positions to target states into a [Structure].
+         * Returns the same instance if it already is one.
+         */
+        fun Map<BlockPos, TargetState>.toStructure(): Structure =
+            this as? Structure ?: buildStructure(size) { putAll(this@toStructure) }
+    }
+}
@@ -2,21 +2,23 @@
 package com.arc.interaction.construction.blueprint
 
 import com.arc.context.SafeContext
+import com.arc.interaction.construction.blueprint.Structure.Companion.toStructure
+import com.arc.interaction.construction.verify.TargetState
 import com.arc.threading.runSafe
-import com.arc.util.extension.Structure
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Vec3i
 
 data class TickingBlueprint(
-    val onTick: SafeContext.(Structure) -> Structure? = { it },
+    val onTick: SafeContext.(Structure) -> Map<BlockPos, TargetState>? = { it },
 ) : Blueprint() {
     fun tick() =
         runSafe {
             onTick(structure)?.also { new ->
-                structure = new
+                structure = new.toStructure()
             }
         }
 
-    override var structure: Structure = emptyMap()
+    override var structure: Structure = Structure.EMPTY
         private set(value) {
             field = value
             bounds.update()
@@ -25,14 +27,11 @@ data class TickingBlueprint(
     override fun toString() = "Dynamic Blueprint at ${center?.toShortString()}"
 
     companion object {
-        fun offset(offset: Vec3i): SafeContext.(Structure) -> Structure? = {
-            it.map { (pos, state) ->
-                pos.add(offset) to state
-            }.toMap()
-        }
+        fun offset(offset: Vec3i): SafeContext.(Structure) -> Map<BlockPos, TargetState>? =
+            { it.move(offset) }
 
         fun tickingBlueprint(
-            onTick: SafeContext.(Structure) -> Structure?,
+            onTick: SafeContext.(Structure) -> Map<BlockPos, TargetState>?,
         ) = TickingBlueprint(onTick)
     }
 }
@@ -1,53 +1,144 @@
-
 package com.arc.interaction.construction.simulation
 
 import com.arc.context.AutomatedSafeContext
+import com.arc.interaction.construction.blueprint.Structure
+import com.arc.interaction.construction.blueprint.Structure.Companion.toStructure
+import com.arc.interaction.construction.verify.TargetState
 import com.arc.interaction.construction.simulation.result.BuildResult
 import com.arc.interaction.construction.simulation.result.results.PostSimResult
 import com.arc.interaction.construction.simulation.SimInfo.Companion.sim
 import com.arc.interaction.construction.simulation.checks.BreakSim.Companion.simBreak
 import com.arc.interaction.construction.simulation.checks.InteractSim.Companion.simInteraction
+import com.arc.threading.runConcurrent
 import com.arc.util.BlockUtils.blockState
-import com.arc.util.extension.Structure
+import com.arc.util.world.FastVector
+import com.arc.util.world.toBlockPos
+import com.arc.util.world.x
+import com.arc.util.world.y
+import com.arc.util.world.z
 import io.ktor.util.collections.*
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongArrayList
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.supervisorScope
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkSectionPos
 import net.minecraft.util.math.Vec3d
 
 object BuildSimulator : Sim<PostSimResult>() {
+    /**
+     * The maximum amount of threads simulating at the same time.
+     * One core is left for the game so a large simulation can never starve the client.
+     */
+    val parallelism = (Runtime.getRuntime().availableProcessors() - 1).coerceAtLeast(1)
+
+    /**
+     * The bounded pool all simulations run on.
+     */
+    val dispatcher = Dispatchers.Default.limitedParallelism(parallelism)
+
     /**
      * Iterates over the blueprint and performs the best suited simulation. Each simulation adds [BuildResult]s to
-     * the provided concurrent set. This method uses coroutines to perform the simulations in parallel. The results
-     * will likely not be returned in the same order they were simulated due to the parallel nature of the simulations.
+     * the provided concurrent set. The structure is split into chunk section work units which are simulated
+     * in parallel on the bounded [dispatcher]. The results will likely not be returned in the same order they
+     * were simulated due to the parallel nature of the simulations.
+     *
+     * This call blocks until every position is simulated, use [simulateAsync] on the game thread for large structures.
      *
      * @see SimInfo.sim
      * @see simInteraction
      * @see simBreak
      */
     context(automatedSafeContext: AutomatedSafeContext)
-    fun Structure.simulate(
+    fun Map<BlockPos, TargetState>.simulate(
         pov: Vec3d = automatedSafeContext.player.eyePos
-    ): Set<BuildResult> = runBlocking(Dispatchers.Default) {
-        supervisorScope {
-            val concurrentSet = ConcurrentSet<BuildResult>()
+    ): Set<BuildResult> = runBlocking(dispatcher) {
+        val structure = toStructure()
+        val concurrentSet = ConcurrentSet<BuildResult>()
 
+        supervisorScope {
             with(automatedSafeContext) {
-                forEach { (pos, targetState) ->
+                structure.sections().forEach { unit ->
                     launch {
-                        sim(
-	                        pos,
-	                        blockState(pos),
-	                        targetState,
-	                        pov,
-	                        concurrentSet
-						)
+                        unit.forEachTarget(structure) { _, pos, targetState ->
+                            sim(pos, blockState(pos), targetState, pov, concurrentSet)
+                        }
                     }
                 }
             }
+        }
+
+        concurrentSet
+    }
 
-            concurrentSet
+    /**
+     * Starts simulating the structure without blocking the calling thread.
+     *
+     * The returned [SimulationJob] exposes the results of every simulated position right away,
+     * respects the per-tick [budgetMillis] and should be [cancelled](SimulationJob.cancel)
+     * as soon as the structure or the point of view changes.
+     *
+     * @see simulate
+     */
+    context(automatedSafeContext: AutomatedSafeContext)
+    fun Map<BlockPos, TargetState>.simulateAsync(
+        pov: Vec3d = automatedSafeContext.player.eyePos,
+        budgetMillis: Int = automatedSafeContext.buildConfig.simulationBudget,
+    ): SimulationJob {
+        val structure = toStructure()
+        val units = structure.sections()
+        val simulation = SimulationJob(structure, pov, budgetMillis * 1_000_000L, units.size)
+
+        simulation.job = runConcurrent(dispatcher) {
+            supervisorScope {
+                with(automatedSafeContext) {
+                    units.forEach { unit ->
+                        launch {
+                            try {
+                                unit.forEachTarget(structure) { packed, pos, targetState ->
+                                    simulation.awaitBudget()
+                                    val start = System.nanoTime()
+                                    val results = ConcurrentSet<BuildResult>()
+                                    sim(pos, blockState(pos), targetState, pov, results)
+                                    simulation.spend(System.nanoTime() - start)
+                                    simulation.publish(packed, results)
+                                }
+                            } finally {
+                                simulation.completeUnit()
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return simulation
+    }
+
+    private inline fun LongArrayList.forEachTarget(
+        structure: Structure,
+        action: (packed: FastVector, pos: BlockPos, targetState: TargetState) -> Unit,
+    ) {
+        val iterator = longIterator()
+        while (iterator.hasNext()) {
+            val packed = iterator.nextLong()
+            action(packed, packed.toBlockPos(), structure[packed] ?: continue)
+        }
+    }
+
+    /**
+     * Groups the packed positions by chunk section, each group being one unit of work.
+     */
+    private fun Structure.sections(): Collection<LongArrayList> {
+        val sections = Long2ObjectOpenHashMap<LongArrayList>()
+        val iterator = packedPositions.iterator()
+        while (iterator.hasNext()) {
+            val pos = iterator.nextLong()
+            val section = ChunkSectionPos.asLong(pos.x shr 4, pos.y shr 4, pos.z shr 4)
+            sections.computeIfAbsent(section) { _: Long -> LongArrayList() }.add(pos)
         }
+        return sections.values
     }
 }
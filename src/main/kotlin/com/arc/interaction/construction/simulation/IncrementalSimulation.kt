@@ -0,0 +1,302 @@
+package com.arc.interaction.construction.simulation
+
+import com.arc.context.AutomatedSafeContext
+import com.arc.interaction.construction.blueprint.Structure
+import com.arc.interaction.construction.blueprint.Structure.Companion.buildStructure
+import com.arc.interaction.construction.simulation.BuildSimulator.simulateAsync
+import com.arc.interaction.construction.simulation.result.BuildResult
+import com.arc.interaction.construction.simulation.result.Contextual
+import com.arc.util.world.FastVector
+import com.arc.util.world.fastVectorOf
+import com.arc.util.world.toFastVec
+import com.arc.util.world.x
+import com.arc.util.world.y
+import com.arc.util.world.z
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import it.unimi.dsi.fastutil.objects.ReferenceLinkedOpenHashSet
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3d
+import java.util.*
+import java.util.function.LongPredicate
+import kotlin.math.ceil
+
+/**
+ * Keeps the [BuildResult]s of every position of a [Structure] between ticks
+ * and only re-simulates the positions that could have changed.
+ *
+ * A position becomes dirty when:
+ * - it was added to the structure or its target changed,
+ * - its block or one of its neighbours was updated (see [invalidate]),
+ * - its chunk was loaded (see [invalidateChunk]),
+ * - it is within reach of the previous or the current point of view and the player moved,
+ * - a block within reach of the player was updated, which may change what is visible,
+ * - the inventory changed (see [invalidateReach]), which may change what can be placed.
+ *
+ * Dirty positions are simulated with [BuildSimulator.simulateAsync] and their results are picked up on the next [update].
+ * This turns the per-tick cost from the size of the structure into the amount of changes.
+ *
+ * Results are kept ordered as they arrive. [Contextual] results, whose order depends on the current player state,
+ * are only possible within reach and are compared on demand. All other results compare by values fixed
+ * at simulation time and are kept in a tree, so [best] does not sort the whole structure each tick.
+ *
+ * Not thread-safe, all calls are expected on the game thread.
+ */
+class IncrementalSimulation {
+    private val cache = Long2ObjectOpenHashMap<Set<BuildResult>>()
+    private val contextual = ReferenceLinkedOpenHashSet<BuildResult>()
+    private val ranked = TreeMap<BuildResult, ReferenceLinkedOpenHashSet<BuildResult>>()
+    private val dirty = LongOpenHashSet()
+    private val pending = Long2ObjectOpenHashMap<SimulationJob>()
+    private val jobs = mutableListOf<SimulationJob>()
+
+    private var structure = Structure.EMPTY
+    private var pov: Vec3d? = null
+    private var reach = 0.0
+    private var reachChanged = false
+
+    /** The amount of positions simulated since the creation of this simulation */
+    var simulatedPositions = 0L
+        private set
+
+    /** Changes whenever results are added or removed */
+    var revision = 0L
+        private set
+
+    /**
+     * Whether every position of the structure has up-to-date results.
+     */
+    val isComplete get() = dirty.isEmpty() && pending.isEmpty()
+
+    /**
+     * The results of every position simulated so far, the unordered [Contextual] ones first and all others in order.
+     * Dirty positions are left out until they were re-simulated.
+     */
+    val results: Sequence<BuildResult> get() = contextual.asSequence() + ranked.values.asSequence().flatten()
+
+    /**
+     * The [Contextual] results, the only ones that can be acted upon right away.
+     */
+    val actionable: Collection<BuildResult> get() = contextual
+
+    /**
+     * Returns the best result that is not [excluded].
+     *
+     * [Contextual] results always rank before all others, so only they need to be compared.
+     * Otherwise, the first result of the tree is the best.
+     */
+    fun best(excluded: (BuildResult) -> Boolean = { false }): BuildResult? {
+        var best: BuildResult? = null
+        for (result in contextual) {
+            if (!excluded(result) && (best == null || result < best)) best = result
+        }
+        if (best != null) return best
+
+        for (equal in ranked.values) {
+            equal.firstOrNull { !excluded(it) }?.let { return it }
+        }
+        return null
+    }
+
+    /**
+     * Marks the block at [pos] and its neighbours dirty.
+     */
+    fun invalidate(pos: BlockPos) {
+        for (dx in -1..1) for (dy in -1..1) for (dz in -1..1) {
+            markDirty(fastVectorOf(pos.x + dx, pos.y + dy, pos.z + dz))
+        }
+
+        val pov = pov ?: return
+        if (pos.toCenterPos().squaredDistanceTo(pov) <= reach * reach) reachChanged = true
+    }
+
+    /**
+     * Marks every position of the structure inside the chunk at [chunkX] and [chunkZ] dirty.
+     * Positions in unloaded chunks were simulated against missing blocks, so their results are wrong once it loads.
+     */
+    fun invalidateChunk(chunkX: Int, chunkZ: Int) {
+        structure.forEachPacked { pos, _ ->
+            if (pos.x shr 4 == chunkX && pos.z shr 4 == chunkZ) markDirty(pos)
+        }
+
+        // The new blocks may hide or reveal positions in reach outside the chunk
+        val pov = pov ?: return
+        val dx = maxOf((chunkX shl 4) - pov.x, 0.0, pov.x - ((chunkX shl 4) + 16))
+        val dz = maxOf((chunkZ shl 4) - pov.z, 0.0, pov.z - ((chunkZ shl 4) + 16))
+        if (dx * dx + dz * dz <= reach * reach) reachChanged = true
+    }
+
+    /**
+     * Marks every position within reach dirty on the next [update].
+     * Positions out of reach cannot be interacted with, so their results do not depend on the inventory.
+     */
+    fun invalidateReach() {
+        reachChanged = true
+    }
+
+    /**
+     * Collects finished results, applies the changes of the [structure][newStructure] and [pov][newPov]
+     * and starts simulating the dirty positions.
+     */
+    context(automatedSafeContext: AutomatedSafeContext)
+    fun update(newStructure: Structure, newPov: Vec3d) {
+        collect()
+        if (newStructure !== structure) applyStructure(newStructure)
+
+        reach = automatedSafeContext.buildConfig.scanReach + REACH_MARGIN
+        val lastPov = pov
+        if (lastPov == null || lastPov.squaredDistanceTo(newPov) > MOVEMENT_THRESHOLD) {
+            lastPov?.let { markReachable(it) }
+            markReachable(newPov)
+            pov = newPov
+        } else if (reachChanged) {
+            markReachable(newPov)
+        }
+        reachChanged = false
+
+        if (dirty.isEmpty()) return
+
+        val positions = buildStructure(dirty.size) {
+            val iterator = dirty.iterator()
+            while (iterator.hasNext()) {
+                val pos = iterator.nextLong()
+                structure[pos]?.let { put(pos, it) }
+            }
+        }
+        dirty.clear()
+        if (positions.isEmpty()) return
+
+        val job = positions.simulateAsync(newPov)
+        positions.forEachPacked { pos, _ -> pending[pos] = job }
+        jobs.add(job)
+    }
+
+    /**
+     * Stops all running simulations, their positions stay dirty.
+     */
+    fun cancel() {
+        jobs.forEach { it.cancel() }
+        jobs.clear()
+        dirty.addAll(pending.keys)
+        pending.clear()
+    }
+
+    private fun collect() {
+        jobs.removeIf { job ->
+            // Read before draining, everything published before the job finished is drained below
+            val isDone = job.isDone
+            try {
+                job.drain { pos, results ->
+                    if (pending[pos] !== job) return@drain
+                    pending.remove(pos)
+                    store(pos, results)
+                    simulatedPositions++
+                }
+            } finally {
+                if (isDone) release(job)
+            }
+            isDone
+        }
+    }
+
+    /**
+     * Drops the positions a finished [job] never published, because it failed or was cancelled.
+     * They stay without results until they are invalidated again, instead of keeping the simulation incomplete.
+     */
+    private fun release(job: SimulationJob) {
+        job.structure.forEachPacked { pos, _ ->
+            if (pending[pos] === job) pending.remove(pos)
+        }
+    }
+
+    private fun store(pos: FastVector, results: Set<BuildResult>) {
+        cache.put(pos, results)?.forEach { unindex(it) }
+        results.forEach { index(it) }
+    }
+
+    private fun evict(pos: FastVector) {
+        cache.remove(pos)?.forEach { unindex(it) }
+    }
+
+    private fun index(result: BuildResult) {
+        if (result.compareBy is Contextual) contextual.add(result)
+        else ranked.getOrPut(result) { ReferenceLinkedOpenHashSet() }.add(result)
+        revision++
+    }
+
+    private fun unindex(result: BuildResult) {
+        if (result.compareBy is Contextual) contextual.remove(result)
+        else ranked[result]?.let { equal ->
+            equal.remove(result)
+            if (equal.isEmpty()) ranked.remove(result)
+        }
+        revision++
+    }
+
+    private fun applyStructure(newStructure: Structure) {
+        val entries = cache.long2ObjectEntrySet().fastIterator()
+        while (entries.hasNext()) {
+            val entry = entries.next()
+            if (entry.longKey in newStructure) continue
+            entry.value.forEach { unindex(it) }
+            entries.remove()
+        }
+        val removed = LongPredicate { it !in newStructure }
+        pending.keys.removeIf(removed)
+        dirty.removeIf(removed)
+
+        val previous = structure
+        structure = newStructure
+        newStructure.forEachPacked { pos, target ->
+            if (previous[pos] != target) markDirty(pos)
+        }
+    }
+
+    private fun markDirty(pos: FastVector) {
+        if (pos !in structure) return
+        evict(pos)
+        pending.remove(pos)
+        dirty.add(pos)
+    }
+
+    /**
+     * Marks every position of the structure within [reach] of [pov] dirty.
+     * Iterates whichever is smaller, the structure or the cube around the point of view.
+     */
+    private fun markReachable(pov: Vec3d) {
+        val radius = ceil(reach).toInt()
+        val side = radius * 2 + 1
+        val reachSq = reach * reach
+
+        if (structure.size < side * side * side) {
+            structure.forEachPacked { pos, _ ->
+                if (pos.toCenterSquaredDistance(pov) <= reachSq) markDirty(pos)
+            }
+            return
+        }
+
+        val center = BlockPos.ofFloored(pov)
+        BlockPos.iterate(center.add(-radius, -radius, -radius), center.add(radius, radius, radius)).forEach {
+            val pos = it.toFastVec()
+            if (pos in structure && it.toCenterPos().squaredDistanceTo(pov) <= reachSq) markDirty(pos)
+        }
+    }
+
+    private fun FastVector.toCenterSquaredDistance(pov: Vec3d): Double {
+        val dx = x + 0.5 - pov.x
+        val dy = y + 0.5 - pov.y
+        val dz = z + 0.5 - pov.z
+        return dx * dx + dy * dy + dz * dz
+    }
+
+    override fun toString() =
+        "Incremental simulation of ${structure.size} blocks: ${cache.size} cached (${contextual.size} actionable), ${dirty.size} dirty, ${pending.size} pending"
+
+    companion object {
+        /** Distance added to the reach to account for block and player hit boxes */
+        private const val REACH_MARGIN = 2.0
+
+        /** Squared distance the point of view has to move before positions in reach are re-simulated */
+        private const val MOVEMENT_THRESHOLD = 0.01
+    }
+}
@@ -10,6 +10,7 @@ import com.arc.interaction.construction.simulation.result.Drawable
 import com.arc.interaction.construction.simulation.BuildSimulator.simulate
 import com.arc.threading.runSafeAutomated
 import com.arc.util.BlockUtils.blockState
+import com.arc.util.collections.LongLruCache
 import com.arc.util.world.FastVector
 import com.arc.util.world.toBlockPos
 import com.arc.util.world.toVec3d
@@ -24,11 +25,15 @@ data class Simulation(
     val blueprint: Blueprint,
     private val automated: Automated
 ) : Automated by automated {
-    private val cache: MutableMap<FastVector, Set<BuildResult>> = mutableMapOf()
+    private val cache = LongLruCache<Set<BuildResult>>(CACHE_SIZE, CACHE_AGE)
     private fun FastVector.toView(): Vec3d = toVec3d().add(0.5, ClientPlayerEntity.DEFAULT_EYE_HEIGHT.toDouble(), 0.5)
 
-    fun simulate(pos: FastVector) =
-        cache.getOrPut(pos) {
+    @Volatile
+    private var structure = blueprint.structure
+
+    fun simulate(pos: FastVector): Set<BuildResult> {
+        checkStructure()
+        return cache.getOrPut(pos) {
             val pov = pos.toView()
             val isOutOfBounds = blueprint.isOutOfBounds(pov)
             val isTooFar = blueprint.getClosestPointTo(pov).distanceTo(pov) > 10.0
@@ -41,11 +46,39 @@ data class Simulation(
                 blueprint.structure.simulate(pov)
             } ?: emptySet()
         }
+    }
+
+    /**
+     * Drops the cached results that a block update at [pos] could have changed.
+     *
+     * Updates outside the blueprint bounds are ignored. Otherwise every standing position
+     * within reach of the block is forgotten, as only those can interact with it.
+     */
+    fun invalidate(pos: BlockPos) {
+        val bounds = blueprint.bounds.value ?: return
+        if (!bounds.expand(1).contains(pos)) return
+
+        val center = pos.toCenterPos()
+        val reach = buildConfig.scanReach + 1.0
+        cache.invalidateIf { it.toView().squaredDistanceTo(center) <= reach * reach }
+    }
 
-    fun goodPositions() = cache
+    /**
+     * Forgets all results once the blueprint's structure changed.
+     */
+    private fun checkStructure() {
+        val current = blueprint.structure
+        if (current === structure) return
+        if (current != structure) cache.clear()
+        structure = current
+    }
+
+    fun goodPositions() = cache.snapshot()
         .filter { entry -> entry.value.any { it.rank.ordinal < 4 } }
         .map { PossiblePos(it.key.toBlockPos(), it.value.count { it.rank.ordinal < 4 }) }
 
+    override fun toString() = "Simulation of $blueprint, cache: $cache"
+
     class PossiblePos(val pos: BlockPos, val interactions: Int) : Drawable {
         override fun ShapeBuilder.buildRenderer() {
             box(Vec3d.ofBottomCenter(pos).playerBox(), Color(0, 255, 0, 50), Color(0, 255, 0, 50))
@@ -57,6 +90,12 @@ data class Simulation(
     }
 
     companion object {
+        /** The maximum amount of standing positions kept */
+        private const val CACHE_SIZE = 4096
+
+        /** How long the results of a standing position stay valid in milliseconds */
+        private const val CACHE_AGE = 10_000L
+
         fun Vec3d.playerBox(): Box = Box(x - 0.3, y, z - 0.3, x + 0.3, y + 1.8, z + 0.3).contract(1.0E-6)
 
         context(c: Automated)
@@ -0,0 +1,126 @@
+package com.arc.interaction.construction.simulation
+
+import com.arc.event.events.TickEvent
+import com.arc.event.listener.UnsafeListener.Companion.listenUnsafe
+import com.arc.interaction.construction.blueprint.Structure
+import com.arc.interaction.construction.simulation.result.BuildResult
+import com.arc.util.world.FastVector
+import io.ktor.util.collections.*
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.first
+import net.minecraft.util.math.Vec3d
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A running simulation of a [Structure] started by [BuildSimulator.simulateAsync].
+ *
+ * The structure is split into one unit of work per chunk section. As soon as a position is simulated, its
+ * [BuildResult]s are added to [results], so callers can act on partial results while the remaining units are still running.
+ * The results of each position can additionally be taken one by one with [drain].
+ *
+ * All workers of a job share a time budget of [budgetNanos] per game tick, counted by [TickEvent.Pre].
+ * When it is used up, the remaining positions wait for the next tick instead of stealing time from the game.
+ * A lagging game ticks less often, so the simulation slows down with it.
+ *
+ * @property structure The structure being simulated.
+ * @property pov The point of view the structure is simulated from.
+ * @property budgetNanos The worker time this job may use per tick.
+ * @property units The amount of chunk section work units.
+ */
+class SimulationJob internal constructor(
+    val structure: Structure,
+    val pov: Vec3d,
+    val budgetNanos: Long,
+    val units: Int,
+) {
+    internal lateinit var job: Job
+
+    private val collected = ConcurrentSet<BuildResult>()
+
+    @PublishedApi
+    internal val simulated = ConcurrentLinkedQueue<SimulatedPosition>()
+
+    private val completedUnits = AtomicInteger()
+    private val tick = AtomicLong(gameTicks.value)
+    private val spentNanos = AtomicLong()
+
+    /** The results of all simulated positions, grows until the job [isDone] */
+    val results: Set<BuildResult> get() = collected
+
+    /** The amount of units that finished, failed or cancelled ones included */
+    val completed get() = completedUnits.get()
+
+    /** Whether the job finished, either by simulating every unit, failing or being [cancel]led */
+    val isDone get() = job.isCompleted
+
+    /** Whether the job was [cancel]led before it could finish */
+    val isCancelled get() = job.isCancelled
+
+    /**
+     * Stops the simulation. Results of already completed units stay available.
+     */
+    fun cancel() = job.cancel()
+
+    /**
+     * Suspends until every unit has been simulated and returns all results.
+     */
+    suspend fun await(): Set<BuildResult> {
+        job.join()
+        return collected
+    }
+
+    /**
+     * Passes the results of every position simulated since the last call to the [action].
+     */
+    inline fun drain(action: (pos: FastVector, results: Set<BuildResult>) -> Unit) {
+        while (true) {
+            val position = simulated.poll() ?: return
+            action(position.pos, position.results)
+        }
+    }
+
+    internal fun publish(pos: FastVector, posResults: Set<BuildResult>) {
+        collected.addAll(posResults)
+        simulated.add(SimulatedPosition(pos, posResults))
+    }
+
+    internal fun completeUnit() {
+        completedUnits.incrementAndGet()
+    }
+
+    /**
+     * Suspends until the current game tick has budget left.
+     */
+    internal suspend fun awaitBudget() {
+        while (true) {
+            val now = gameTicks.value
+            val last = tick.get()
+            if (now != last && tick.compareAndSet(last, now)) spentNanos.set(0)
+            if (spentNanos.get() < budgetNanos) return
+
+            gameTicks.first { it != now }
+        }
+    }
+
+    internal fun spend(nanos: Long) {
+        spentNanos.addAndGet(nanos)
+    }
+
+    override fun toString() =
+        "Simulation of ${structure.size} blocks: $completed/$units sections, ${collected.size} results"
+
+    @PublishedApi
+    internal class SimulatedPosition(val pos: FastVector, val results: Set<BuildResult>)
+
+    companion object {
+        /** Counts the game ticks, also outside a world so waiting jobs are never stuck */
+        private val gameTicks = MutableStateFlow(0L)
+
+        init {
+            listenUnsafe<TickEvent.Pre> { gameTicks.value++ }
+        }
+    }
+}
@@ -26,16 +26,17 @@ import com.arc.util.NamedEnum
 import com.arc.util.PacketUtils.sendPacket
 import com.arc.util.Timer
 import com.arc.util.collections.LimitedDecayQueue
-import com.arc.util.combat.CombatUtils.crystalDamage
+import com.arc.util.combat.CombatUtils.crystalDamages
 import com.arc.util.extension.fullHealth
-import com.arc.util.math.MathUtils.ceilToInt
 import com.arc.util.math.MathUtils.roundToStep
 import com.arc.util.math.distSq
 import com.arc.util.math.flooredBlockPos
 import com.arc.util.math.getHitVec
 import com.arc.util.math.minus
 import com.arc.util.math.plus
+import com.arc.util.world.BlockIndex
 import com.arc.util.world.fastEntitySearch
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.minecraft.block.Blocks
 import net.minecraft.entity.Entity
 import net.minecraft.entity.LivingEntity
@@ -49,6 +50,7 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Box
 import net.minecraft.util.math.Direction
 import net.minecraft.util.math.Vec3d
+import java.util.concurrent.atomic.AtomicInteger
 import kotlin.concurrent.fixedRateTimer
 import kotlin.math.max
 import kotlin.time.Duration.Companion.milliseconds
@@ -101,6 +103,7 @@ object CrystalAura : Module(
     private var currentTarget: LivingEntity? = null
 
     private val damage = mutableListOf<Opportunity>()
+    private var bases: BlockIndex.Interest? = null
     private val actionMap = mutableMapOf<ActionType, MutableList<Opportunity>>()
     private var actionType = ActionType.Normal
 
@@ -115,6 +118,8 @@ object CrystalAura : Module(
 
     private val decay = LimitedDecayQueue<Int>(10000, 3000L)
 
+    private val candidatesEvaluated = AtomicInteger()
+
     private val collidingOffsets = mutableListOf<BlockPos>().apply {
         for (x in -1..1) {
             for (z in -1..1) {
@@ -155,8 +160,11 @@ object CrystalAura : Module(
         ) {
             if (isDisabled || !debug) return@fixedRateTimer
 
+            val evaluated = candidatesEvaluated.getAndSet(0)
+
             runSafeGameScheduled {
                 info((decay.size.toDouble() * 0.3333).roundToStep(0.1).toString())
+                info("$evaluated candidates/s")
             }
         }
 
@@ -213,6 +221,16 @@ object CrystalAura : Module(
             currentTarget = null
             resetBlueprint()
         }
+
+        // Only index the bases while enabled, bedrock alone fills hundreds of positions per chunk
+        onEnableUnsafe {
+            if (bases == null) bases = BlockIndex.track(Blocks.OBSIDIAN, Blocks.BEDROCK)
+        }
+
+        onDisableUnsafe {
+            bases?.let { BlockIndex.untrack(it) }
+            bases = null
+        }
     }
 
     private fun SafeContext.tick() {
@@ -278,17 +296,12 @@ object CrystalAura : Module(
             resetBlueprint()
 
             fun info(
-                pos: BlockPos,
-                target: LivingEntity,
-                blocked: Boolean,
-                crystal: EndCrystalEntity? = null
+                candidate: Candidate,
+                targetDamage: Double,
+                selfDamage: Double,
             ): Opportunity? {
-                val crystalPos = pos.crystalPosition
-
-                val targetDamage = crystalDamage(crystalPos, target)
                 if (targetDamage < minTargetDamage) return null
 
-                val selfDamage = crystalDamage(crystalPos, player)
                 if (selfDamage > maxSelfDamage ||
                     player.fullHealth - selfDamage <= minPlaceHealth ||
                     (preventDeath && player.fullHealth - selfDamage <= 0)
@@ -301,19 +314,16 @@ object CrystalAura : Module(
                 ) return null
 
                 return Opportunity(
-                    pos.toImmutable(),
+                    candidate.pos,
                     targetDamage,
                     selfDamage,
-                    blocked,
-                    crystal
+                    candidate.blocked,
+                    candidate.crystal
                 )
             }
 
             // Extra checks for placement, because you may explode but not place in special cases(crystal in the air)
-            fun placeInfo(
-                pos: BlockPos,
-                target: LivingEntity
-            ): Opportunity? {
+            fun placeCandidate(pos: BlockPos): Candidate? {
                 // Check if crystals could be placed on the base block
                 val state = blockState(pos)
                 val isOfBlock = state.isOf(Blocks.OBSIDIAN) || state.isOf(Blocks.BEDROCK)
@@ -345,31 +355,35 @@ object CrystalAura : Module(
                     it.boundingBox.intersects(crystalPlaceBox)
                 }
 
-                return info(
-                    pos,
-                    target,
-                    blocked,
-                    baseCrystal
-                )
+                return Candidate(pos.toImmutable(), blocked, baseCrystal)
             }
 
             val range = max(placeRange, explodeRange) + 1
-            val rangeInt = range.ceilToInt()
+
+            val candidates = mutableListOf<Candidate>()
+            val seen = LongOpenHashSet()
 
             // Iterate through existing crystals
-            val crystalBase = BlockPos.Mutable()
             fastEntitySearch<EndCrystalEntity>(range).forEach { crystal ->
-                crystalBase.set(crystal.x, crystal.y - 0.5, crystal.z)
-                damage += info(crystalBase, target, false, crystal) ?: return@forEach
+                val base = crystal.baseBlockPos
+                if (seen.add(base.asLong())) candidates += Candidate(base, false, crystal)
             }
 
-            // Iterate through possible place positions and calculate damage information for each
-            BlockPos.iterateOutwards(player.blockPos.up(), rangeInt, rangeInt, rangeInt).forEach { pos ->
-                if (pos distSq player.pos > range * range) return@forEach
-                if (damage.any { info -> info.blockPos == pos }) return@forEach
+            // Iterate through the obsidian and bedrock in range
+            bases?.forEachInRange(player.blockPos, range + 1) { pos ->
+                if (pos distSq player.pos > range * range) return@forEachInRange
+                if (!seen.add(pos.asLong())) return@forEachInRange
+
+                candidates += placeCandidate(pos) ?: return@forEachInRange
+            }
 
-                damage += placeInfo(pos, target) ?: return@forEach
+            // Calculate the damage information of every candidate in parallel
+            val damages = crystalDamages(candidates.map { it.pos.crystalPosition }, listOf(target, player))
+            candidates.forEachIndexed { index, candidate ->
+                val (targetDamage, selfDamage) = damages[index]
+                damage += info(candidate, targetDamage, selfDamage) ?: return@forEachIndexed
             }
+            candidatesEvaluated.addAndGet(candidates.size)
 
             // Map opportunities
             damage.forEach {
@@ -398,6 +412,15 @@ object CrystalAura : Module(
         activeOpportunity = null
     }
 
+    /**
+     * A position a crystal could explode on, waiting for its damage to be calculated.
+     */
+    private class Candidate(
+        val pos: BlockPos,
+        val blocked: Boolean,
+        val crystal: EndCrystalEntity?,
+    )
+
     /**
      * Represents the damage information resulting from placing an end crystal on a given [blockPos]
      * and causing an explosion that targets current target entity.
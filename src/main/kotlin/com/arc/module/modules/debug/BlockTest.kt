@@ -1,11 +1,17 @@
 
 package com.arc.module.modules.debug
 
+import com.arc.event.events.TickEvent
 import com.arc.event.events.onStaticRender
+import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
+import com.arc.util.world.BlockSearch
 import com.arc.util.world.blockSearch
+import net.minecraft.block.BlockState
 import net.minecraft.block.Blocks
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Vec3i
 import java.awt.Color
 
@@ -20,6 +26,9 @@ object BlockTest : Module(
     private val stepX by setting("Step X", 1, 1..7, 1, "Step X")
     private val stepY by setting("Step Y", 1, 1..7, 1, "Step Y")
     private val stepZ by setting("Step Z", 1, 1..7, 1, "Step Z")
+    private val incremental by setting("Incremental", false, "Search a large radius over multiple ticks")
+    private val searchRadius by setting("Search Radius", 64, 8..256, 8, "Search Radius") { incremental }
+    private val sectionsPerTick by setting("Sections Per Tick", 16, 1..128, 1, "Sections Per Tick") { incremental }
 
     private val range: Vec3i
         get() = Vec3i(rangeX, rangeY, rangeZ)
@@ -30,15 +39,41 @@ object BlockTest : Module(
     private val filledColor = Color(100, 150, 255, 128)
     private val outlineColor = Color(100, 150, 255, 51)
 
+    private var search: BlockSearch.Incremental? = null
+    private var found = emptyMap<BlockPos, BlockState>()
+
     init {
+        listen<TickEvent.Pre> {
+            if (!incremental) return@listen
+
+            val current = search
+            if (current == null || current.isDone || !current.box.contains(player.blockPos)) {
+                val center = player.blockPos
+                search = BlockSearch.Incremental(
+                    BlockBox(center).expand(searchRadius),
+                    sectionsPerTick,
+                ) { it.isOf(Blocks.DIAMOND_BLOCK) }
+            }
+
+            val next = search ?: return@listen
+            if (next.step(world)) found = next.results.long2ObjectEntrySet().associate { BlockPos.fromLong(it.longKey) to it.value }
+        }
+
         onStaticRender {
-            blockSearch(range, step = step) { _, state ->
-                state.isOf(Blocks.DIAMOND_BLOCK)
-            }.forEach { (pos, state) ->
+            val results = if (incremental) found else blockSearch(range, step = step) {
+                it.isOf(Blocks.DIAMOND_BLOCK)
+            }
+
+            results.forEach { (pos, state) ->
                 state.getOutlineShape(world, pos).boundingBoxes.forEach { box ->
                     it.box(box.offset(pos), filledColor, outlineColor)
                 }
             }
         }
+
+        onDisable {
+            search = null
+            found = emptyMap()
+        }
     }
 }
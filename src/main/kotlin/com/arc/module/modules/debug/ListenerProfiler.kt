@@ -0,0 +1,65 @@
+package com.arc.module.modules.debug
+
+import com.arc.event.EventProfiler
+import com.arc.event.events.KeyboardEvent
+import com.arc.event.listener.UnsafeListener.Companion.listenUnsafe
+import com.arc.module.Module
+import com.arc.module.tag.ModuleTag
+import com.arc.util.Communication.info
+import com.arc.util.FolderRegister
+import com.arc.util.FolderRegister.relativeMCPath
+import com.arc.util.Formatting.getTime
+import com.arc.util.KeyCode
+import com.arc.util.text.ClickEvents
+import com.arc.util.text.buildText
+import com.arc.util.text.clickEvent
+import com.arc.util.text.color
+import com.arc.util.text.literal
+import java.awt.Color
+import java.time.format.DateTimeFormatter
+import kotlin.io.path.pathString
+
+object ListenerProfiler : Module(
+    name = "ListenerProfiler",
+    description = "Measures the time every event listener takes and shows the hottest ones in the debug HUD",
+    tag = ModuleTag.DEBUG,
+) {
+    val hudEntries by setting("HUD Entries", 8, 0..20, 1, "Amount of listeners shown in the debug HUD")
+    private val dumpBind by setting("Dump", KeyCode.Unbound, "Writes all recorded timings to a file")
+    private val dumpOnDisable by setting("Dump On Disable", true, "Writes all recorded timings to a file when the module is disabled")
+
+    private val fileFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss.SSS")
+
+    init {
+        onEnableUnsafe {
+            EventProfiler.reset()
+            EventProfiler.isEnabled = true
+        }
+
+        onDisableUnsafe {
+            EventProfiler.isEnabled = false
+            if (dumpOnDisable) dump()
+        }
+
+        listenUnsafe<KeyboardEvent.Press> { event ->
+            if (!event.isPressed || !event.satisfies(dumpBind)) return@listenUnsafe
+
+            dump()
+        }
+    }
+
+    private fun dump() {
+        if (EventProfiler.stats.isEmpty()) return
+
+        val file = FolderRegister.profiler.resolve("listeners-${getTime(fileFormatter)}.csv").toFile()
+        EventProfiler.dump(file)
+
+        info(buildText {
+            clickEvent(ClickEvents.openFile(file.relativeMCPath.pathString)) {
+                literal("Listener timings written to ")
+                color(Color.YELLOW) { literal(file.name) }
+                literal(" (click to open)")
+            }
+        })
+    }
+}
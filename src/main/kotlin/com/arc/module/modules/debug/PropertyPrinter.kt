@@ -17,19 +17,21 @@ object PropertyPrinter : Module(
         onEnable {
             val file = FolderRegister.arc.resolve("property-print").resolveFile("property-print.txt")
             file.parentFile.mkdirs()
-            file.writeText("")
-            StateInfo.propertyFields.forEach properties@{ property ->
-                file.appendText("${property.value.name}\n")
-                Blocks::class.java.declaredFields.forEach blocks@{ field ->
-                    field.isAccessible = true
-                    val block = field.get(null)
-                    if (!Block::class.java.isAssignableFrom(block::class.java)) return@blocks
-                    if (property.key in (block as Block).defaultState.properties) {
-                        file.appendText("    $block\n")
-                    }
+
+            val blocks = Blocks::class.java.declaredFields.mapNotNull { field ->
+                field.isAccessible = true
+                field.get(null) as? Block
+            }
+
+            val text = StringBuilder()
+            StateInfo.propertyFields.forEach { property ->
+                text.append(property.value.name).append('\n')
+                blocks.forEach { block ->
+                    if (property.key in block.defaultState.properties) text.append("    ").append(block).append('\n')
                 }
-                file.appendText("\n\n\n\n\n")
+                text.append("\n\n\n\n\n")
             }
+            file.writeText(text.toString())
             disable()
         }
     }
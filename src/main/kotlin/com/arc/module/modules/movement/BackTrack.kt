@@ -5,7 +5,7 @@ import com.arc.context.SafeContext
 import com.arc.event.events.ConnectionEvent
 import com.arc.event.events.PacketEvent
 import com.arc.event.events.TickEvent
-import com.arc.event.events.onDynamicRender
+import com.arc.event.events.onDynamicInstancedRender
 import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.graphics.renderer.esp.DynamicAABB
 import com.arc.gui.components.ClickGuiLayout
@@ -94,8 +94,8 @@ object BackTrack : Module(
             poolPackets()
         }
 
-        onDynamicRender {
-            val target = target ?: return@onDynamicRender
+        onDynamicInstancedRender {
+            val target = target ?: return@onDynamicInstancedRender
 
             val c1 = ClickGuiLayout.primaryColor
             val c2 = Color.RED
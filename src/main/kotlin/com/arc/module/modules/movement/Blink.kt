@@ -4,7 +4,7 @@ package com.arc.module.modules.movement
 import com.arc.context.SafeContext
 import com.arc.event.events.PacketEvent
 import com.arc.event.events.RenderEvent
-import com.arc.event.events.onDynamicRender
+import com.arc.event.events.onDynamicInstancedRender
 import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.graphics.renderer.esp.DynamicAABB
 import com.arc.gui.components.ClickGuiLayout
@@ -51,7 +51,7 @@ object Blink : Module(
             poolPackets()
         }
 
-        onDynamicRender {
+        onDynamicInstancedRender {
             val color = ClickGuiLayout.primaryColor
             it.box(box.update(lastBox), color.setAlpha(0.3), color)
         }
@@ -77,10 +77,11 @@ object Blink : Module(
         listen<PacketEvent.Receive.Pre> { event ->
             if (!isActive || !shiftVelocity) return@listen
 
-            if (event.packet !is EntityVelocityUpdateS2CPacket) return@listen
-            if (event.packet.entityId != player.id) return@listen
+            val packet = event.packet
+            if (packet !is EntityVelocityUpdateS2CPacket) return@listen
+            if (packet.entityId != player.id) return@listen
 
-            lastVelocity = event.packet
+            lastVelocity = packet
             event.cancel()
             return@listen
         }
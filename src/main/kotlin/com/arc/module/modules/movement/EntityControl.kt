@@ -30,10 +30,11 @@ object EntityControl : Module(
 
         listen<PacketEvent.Send.Pre> { event ->
             if (!forceMount) return@listen
-            if (event.packet !is PlayerInteractEntityC2SPacket) return@listen
-            if (event.packet.type !is PlayerInteractEntityC2SPacket.InteractAtHandler) return@listen
+            val packet = event.packet
+            if (packet !is PlayerInteractEntityC2SPacket) return@listen
+            if (packet.type !is PlayerInteractEntityC2SPacket.InteractAtHandler) return@listen
 
-            val entity = world.getEntityById(event.packet.entityId) ?: return@listen
+            val entity = world.getEntityById(packet.entityId) ?: return@listen
             if (entity !is AbstractHorseEntity) return@listen
 
             event.cancel()
@@ -5,7 +5,6 @@ import com.arc.context.SafeContext
 import com.arc.event.events.MovementEvent
 import com.arc.event.events.PlayerPacketEvent
 import com.arc.event.events.TickEvent
-import com.arc.event.events.WorldEvent
 import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
@@ -16,6 +15,7 @@ import com.arc.util.math.minus
 import com.arc.util.player.MovementUtils.isInputting
 import com.arc.util.player.MovementUtils.motionY
 import com.arc.util.player.MovementUtils.setSpeed
+import com.arc.util.world.CollisionOverrides
 import net.minecraft.block.Blocks
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.Vec3d
@@ -111,12 +111,8 @@ object Jesus : Module(
             }
         }
 
-        listen<WorldEvent.Collision> { event ->
-            if (!shouldWork || goUp || !mode.collision) return@listen
-
-            if (event.state.block == Blocks.WATER) {
-                event.shape = fullShape
-            }
+        CollisionOverrides.register(this, fullShape, Blocks.WATER) {
+            shouldWork && !goUp && mode.collision
         }
 
         listen<MovementEvent.InputUpdate> {
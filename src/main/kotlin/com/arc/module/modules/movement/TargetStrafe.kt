@@ -10,6 +10,9 @@ import com.arc.module.modules.combat.KillAura
 import com.arc.module.tag.ModuleTag
 import com.arc.util.math.distSq
 import com.arc.util.player.MovementUtils.update
+import com.arc.util.player.prediction.BatchPrediction
+import com.arc.util.player.prediction.BatchPrediction.Companion.predictMovement
+import net.minecraft.util.math.Vec3d
 import kotlin.math.pow
 
 object TargetStrafe : Module(
@@ -20,6 +23,7 @@ object TargetStrafe : Module(
     private val targetDistance by setting("Strafe Distance", 1.0, 0.0..5.0, 0.1)
     private val jitterCompensation by setting("Jitter Compensation", 0.0, 0.0..1.0, 0.1)
     private val stabilize by setting("Stabilize", StabilizationMode.Normal)
+    private val predictTicks by setting("Predict Ticks", 0, 0..20, 1, "Strafe around the position the target will have in this many ticks", " ticks")
 
     enum class StabilizationMode {
         None, Weak, Normal, Strong
@@ -28,10 +32,22 @@ object TargetStrafe : Module(
     private var forwardDirection = 1.0
     private var strafeDirection = 1.0
 
+    private val prediction = BatchPrediction(1)
+    private var targetPos: Vec3d? = null
+
     @JvmStatic
     val isActive get() = isEnabled && KillAura.isEnabled && KillAura.target != null
 
     init {
+        listen<TickEvent.Pre> {
+            val target = KillAura.target
+            targetPos = when {
+                target == null -> null
+                predictTicks == 0 -> target.pos
+                else -> predictMovement(listOf(target), predictTicks, prediction).position(0, predictTicks)
+            }
+        }
+
         listen<TickEvent.Post> {
             if (player.horizontalCollision) strafeDirection *= -1
 
@@ -43,9 +59,10 @@ object TargetStrafe : Module(
 
         listen<RotationEvent.StrafeInput> { event ->
             KillAura.target?.let { target ->
-                event.strafeYaw = player.eyePos.rotationTo(target.boundingBox.center).yaw
+                val position = targetPos ?: target.pos
+                event.strafeYaw = player.eyePos.rotationTo(position.add(0.0, target.height / 2.0, 0.0)).yaw
 
-                val distSq = player.pos distSq target.pos
+                val distSq = player.pos distSq position
                 val keepRange = 0.5 * jitterCompensation
 
                 forwardDirection = when {
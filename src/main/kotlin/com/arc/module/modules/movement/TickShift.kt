@@ -96,9 +96,10 @@ object TickShift : Module(
 
         listen<PacketEvent.Send.Pre> { event ->
             if (!isActive || !grim || event.isCanceled()) return@listen
-            if (event.packet !is CommonPongC2SPacket) return@listen
+            val packet = event.packet
+            if (packet !is CommonPongC2SPacket) return@listen
 
-            pingPool.add(event.packet)
+            pingPool.add(packet)
             event.cancel()
             return@listen
         }
@@ -106,10 +107,11 @@ object TickShift : Module(
         listen<PacketEvent.Receive.Pre> { event ->
             if (!isActive || !grim || !shiftVelocity || event.isCanceled()) return@listen
 
-            if (event.packet !is EntityVelocityUpdateS2CPacket) return@listen
-            if (event.packet.entityId != player.id) return@listen
+            val packet = event.packet
+            if (packet !is EntityVelocityUpdateS2CPacket) return@listen
+            if (packet.entityId != player.id) return@listen
 
-            lastVelocity = event.packet
+            lastVelocity = packet
             event.cancel()
             return@listen
         }
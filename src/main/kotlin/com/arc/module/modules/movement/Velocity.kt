@@ -19,8 +19,8 @@ object Velocity : Module(
 
     init {
         listenUnsafe <PacketEvent.Receive.Pre> { event ->
-            when (event.packet) {
-                is EntityVelocityUpdateS2CPacket if (knockback && event.packet.entityId == mc.player?.id) -> event.cancel()
+            when (val packet = event.packet) {
+                is EntityVelocityUpdateS2CPacket if (knockback && packet.entityId == mc.player?.id) -> event.cancel()
             }
         }
     }
@@ -53,10 +53,11 @@ object PacketDelay : Module(
                 }
 
                 Mode.Pulse -> {
+                    val packet = event.packet
                     runConcurrent {
                         delay(outboundDelay)
                         runGameScheduled {
-                            connection.sendPacketSilently(event.packet)
+                            connection.sendPacketSilently(packet)
                         }
                     }
                     event.cancel()
@@ -74,10 +75,11 @@ object PacketDelay : Module(
                 }
 
                 Mode.Pulse -> {
+                    val packet = event.packet
                     runConcurrent {
                         delay(inboundDelay)
                         runGameScheduled {
-                            connection.handlePacketSilently(event.packet)
+                            connection.handlePacketSilently(packet)
                         }
                     }
                     event.cancel()
@@ -1,4 +1,3 @@
-
 package com.arc.module.modules.network
 
 import com.arc.event.events.PacketEvent
@@ -6,7 +5,7 @@ import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
 import com.arc.util.Communication.info
-import com.arc.util.collections.LimitedDecayQueue
+import com.arc.util.collections.SlidingWindow
 import com.arc.util.reflections.className
 import net.minecraft.network.packet.c2s.common.CommonPongC2SPacket
 import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket.Full
@@ -14,23 +13,25 @@ import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket.LookAndOnGround
 import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket.OnGroundOnly
 import net.minecraft.network.packet.c2s.play.PlayerMoveC2SPacket.PositionAndOnGround
 import net.minecraft.network.packet.c2s.play.TeleportConfirmC2SPacket
+import java.util.concurrent.ConcurrentHashMap
 
-// ToDo: HUD info
 object PacketLimiter : Module(
 	name = "PacketLimiter",
 	description = "Limits the amount of packets sent to the server",
 	tag = ModuleTag.NETWORK,
 ) {
-	private var packetQueueMap = mutableMapOf<String, LimitedDecayQueue<PacketEvent.Send.Pre>>()
-	private val globalQueue = LimitedDecayQueue<PacketEvent.Send.Pre>(1, 1)
+	private val windows = ConcurrentHashMap<Class<*>, SlidingWindow>()
+
+	@Volatile
+	private var globalWindow = SlidingWindow(1, 1)
 
 	private val limit by setting("Limit per packet", 99, 1..100, 1, "The maximum amount of packets to send per given time interval", unit = " packets")
-		.onValueChange { _, to -> packetQueueMap.forEach { (t, u) -> u.setSizeLimit(to) } }
+		.onValueChange { _, _ -> windows.clear() }
 	private val globalLimit by setting("Global Limit", 1000, 100..5000, 50, "The maximum amount of packets to send overall per given time interval", unit = " packets")
-		.onValueChange { _, to -> globalQueue.setSizeLimit(to) }
+		.onValueChange { _, to -> globalWindow = SlidingWindow(to, interval) }
 
 	private val interval by setting("Duration", 4000L, 1L..10000L, 50L, "The interval / duration in milliseconds to limit packets for", unit = " ms")
-		.onValueChange { _, to -> packetQueueMap.forEach { (t, u) -> u.setDecayTime(to) }; globalQueue.setDecayTime(to) }
+		.onValueChange { _, to -> windows.clear(); globalWindow = SlidingWindow(globalLimit, to) }
 
 	private val defaultIgnorePackets = setOf(
 		nameOf<CommonPongC2SPacket>(),
@@ -46,28 +47,54 @@ object PacketLimiter : Module(
 	// ToDo: Find a way to have a list of serverbound packets
 	private val ignorePackets by setting("Ignore Packets", defaultIgnorePackets, description = "Packets to ignore when limiting")
 
+	/**
+	 * The packets per second sent through the limiter, averaged over the interval.
+	 */
+	val globalRate get() = globalWindow.rate()
+
+	/**
+	 * The packets per second sent of every limited packet type, averaged over the interval, highest first.
+	 */
+	fun rates(): List<Pair<Class<*>, Double>> {
+		val now = System.nanoTime()
+		return windows.map { (type, window) -> type to window.rate(now) }
+			.filter { it.second > 0 }
+			.sortedByDescending { it.second }
+	}
+
+	/**
+	 * The amount of packets dropped since the limiter was enabled or its limits changed.
+	 */
+	val dropped get() = globalWindow.rejected + windows.values.sumOf { it.rejected }
+
 	init {
 		onEnable {
-			packetQueueMap.clear()
-			globalQueue.setDecayTime(interval)
-			globalQueue.setSizeLimit(globalLimit)
+			windows.clear()
+			globalWindow = SlidingWindow(globalLimit, interval)
 		}
 
 		listen<PacketEvent.Send.Pre>(Int.MAX_VALUE) {
-			if (it.packet::class.java.name in ignorePackets) return@listen
+			val type = it.packet.javaClass
+			if (type.name in ignorePackets) return@listen
 
-			if (!globalQueue.add(it)) {
+			val now = System.nanoTime()
+			if (!globalWindow.tryAcquire(now)) {
 				it.cancel()
 				return@listen
 			}
-			//            this@PacketLimiter.info("Packet sent: ${it.packet::class.simpleName} (${packetQueue.size} / $limit) ${Instant.now()}")
-			val queue = packetQueueMap.getOrPut(it.packet::class.java.name) {
-				LimitedDecayQueue(limit, interval)
-			}
-			if (queue.add(it)) return@listen
+
+			val window = windows[type] ?: windows.computeIfAbsent(type) { SlidingWindow(limit, interval) }
+			if (window.tryAcquire(now)) return@listen
 
 			it.cancel()
-			this@PacketLimiter.info("Packet limit reached, dropping packet: ${it.packet::class.simpleName} (${queue.size} / $limit)")
+			this@PacketLimiter.info("Packet limit reached, dropping packet: ${type.simpleName} (${window.count(now)} / $limit)")
 		}
 	}
+
+	/**
+	 * The global rate, drops and the busiest packet types, for diagnostics.
+	 */
+	val summary
+		get() = "${"%.1f".format(globalRate)} packets/s, $dropped dropped" +
+					rates().take(3).joinToString("") { (type, rate) -> ", ${type.simpleName} ${"%.1f".format(rate)}/s" }
 }
@@ -9,9 +9,11 @@ import com.arc.event.listener.UnsafeListener.Companion.listenUnsafe
 import com.arc.event.listener.UnsafeListener.Companion.listenConcurrentlyUnsafe
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
+import com.arc.network.capture.PacketCapture
 import com.arc.threading.runIO
 import com.arc.util.Communication
 import com.arc.util.Communication.info
+import com.arc.util.Communication.logError
 import com.arc.util.DynamicReflectionSerializer.dynamicString
 import com.arc.util.FolderRegister
 import com.arc.util.FolderRegister.relativeMCPath
@@ -21,12 +23,15 @@ import com.arc.util.text.buildText
 import com.arc.util.text.clickEvent
 import com.arc.util.text.color
 import com.arc.util.text.literal
+import io.netty.buffer.ByteBuf
 import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.flow.MutableSharedFlow
 import net.minecraft.network.packet.Packet
+import net.minecraft.network.state.NetworkState
 import java.awt.Color
 import java.io.File
 import java.time.format.DateTimeFormatter
+import kotlin.io.path.createDirectories
 import kotlin.io.path.pathString
 
 object PacketLogger : Module(
@@ -35,25 +40,38 @@ object PacketLogger : Module(
     tag = ModuleTag.NETWORK,
     autoDisable = true
 ) {
-    private val logToChat by setting("Log To Chat", false, "Log packets to chat")
+    private val format by setting("Format", Format.Text, "Text serializes every packet while logging, Binary captures the raw packet bytes to be decoded later with the packetcapture command")
+    private val logToChat by setting("Log To Chat", false, "Log packets to chat") { format == Format.Text }
 
     // ToDo: Implement HUD logging when HUD is done
 //    private val logToHUD by setting("Log To HUD", false, "Log packets to HUD")
     private val networkSide by setting("Network Side", NetworkSide.Any, "Side of the network to log packets from")
-    private val logTicks by setting("Log Ticks", true, "Show game ticks in the log")
+    private val logTicks by setting("Log Ticks", true, "Show game ticks in the log") { format == Format.Text }
     private val scope by setting("Scope", Scope.Any, "Scope of packets to log")
 
 //    val packetList = getInstances<Packet<*>>()
     // ToDo: Add a packet list
     //private val whitelist by setting<String>("Whitelist Packets", emptyList<String>(), emptyList<String>(), "Packets to whitelist", { JsonPrimitive(it) }, { it.asString }) { scope == Scope.Whitelist }
     //private val blacklist by setting<String>("Blacklist Packets", emptyList<String>(), emptyList<String>(), "Packets to blacklist", { JsonPrimitive(it) }, { it.asString }) { scope == Scope.Blacklist }
-    private val maxRecursionDepth by setting("Max Recursion Depth", 6, 1..10, 1, "Maximum recursion depth for packet serialization")
-    private val logConcurrent by setting("Build Data Concurrent", false, "Whether to serialize packets concurrently. Will not save packets in chronological order but wont lag the game.")
+    private val maxRecursionDepth by setting("Max Recursion Depth", 6, 1..10, 1, "Maximum recursion depth for packet serialization") { format == Format.Text }
+    private val logConcurrent by setting("Build Data Concurrent", false, "Whether to serialize packets concurrently. Will not save packets in chronological order but wont lag the game.") { format == Format.Text }
 
     private var file: File? = null
+
+    @Volatile
+    @Volatile
+    private var capture: PacketCapture? = null
+
+    @Volatile
+    private var tick = 0
+
     private val entryFormatter = DateTimeFormatter.ofPattern("HH:mm:ss.SSSS")
     private val fileFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss.SSS")
 
+    enum class Format {
+        Text, Binary
+    }
+
     enum class NetworkSide {
         Any, Client, Server;
 
@@ -85,6 +103,12 @@ object PacketLogger : Module(
         }
 
         onEnableUnsafe {
+            tick = 0
+            if (format == Format.Binary) {
+                startCapture()
+                return@onEnableUnsafe
+            }
+
             val fileName = "packet-log-${getTime(fileFormatter)}.txt"
 
             // ToDo: Organize files with FolderRegister.worldBoundDirectory
@@ -131,6 +155,12 @@ object PacketLogger : Module(
         }
 
         onDisableUnsafe {
+            capture?.let {
+                capture = null
+                it.close()
+                this@PacketLogger.info(fileInfo("Stopped capturing ${it.records} packets to ", it.path.toFile()))
+            }
+
             file?.let {
                 val info = buildText {
                     literal("Stopped logging packets to ")
@@ -146,13 +176,15 @@ object PacketLogger : Module(
         }
 
         listenUnsafe<TickEvent.Pre> {
-            if (!logTicks) return@listenUnsafe
+            tick++
+            if (format != Format.Text || !logTicks) return@listenUnsafe
 
             storageFlow.tryEmit("Started tick at ${getTime(entryFormatter)}\n\n")
         }
 
         listenUnsafe<PacketEvent.Receive.Pre> {
             if (logConcurrent
+                || format != Format.Text
                 || !scope.shouldLog(it.packet)
                 || !networkSide.shouldLog(NetworkSide.Server)
             ) return@listenUnsafe
@@ -162,6 +194,7 @@ object PacketLogger : Module(
 
         listenUnsafe<PacketEvent.Send.Pre> {
             if (logConcurrent
+                || format != Format.Text
                 || !scope.shouldLog(it.packet)
                 || !networkSide.shouldLog(NetworkSide.Client)
             ) return@listenUnsafe
@@ -172,6 +205,7 @@ object PacketLogger : Module(
 
         listenConcurrentlyUnsafe<PacketEvent.Receive.Pre> {
             if (!logConcurrent
+                || format != Format.Text
                 || !scope.shouldLog(it.packet)
                 || !networkSide.shouldLog(NetworkSide.Server)
             ) return@listenConcurrentlyUnsafe
@@ -181,6 +215,7 @@ object PacketLogger : Module(
 
         listenConcurrentlyUnsafe<PacketEvent.Send.Pre> {
             if (!logConcurrent
+                || format != Format.Text
                 || !scope.shouldLog(it.packet)
                 || !networkSide.shouldLog(NetworkSide.Client)
             ) return@listenConcurrentlyUnsafe
@@ -189,6 +224,45 @@ object PacketLogger : Module(
         }
     }
 
+    /**
+     * Records the encoded bytes of a packet while capturing in the binary format.
+     * Called by the netty threads for every packet [decoded] or encoded with [state].
+     */
+    @JvmStatic
+    fun capture(state: NetworkState<*>, buf: ByteBuf, decoded: Boolean) {
+        val direction = PacketCapture.direction(state, decoded) ?: return
+        PacketCapture.remember(state, direction)
+
+        val capture = capture ?: return
+        val side = if (direction == PacketCapture.Direction.Inbound) NetworkSide.Server else NetworkSide.Client
+        if (!networkSide.shouldLog(side)) return
+
+        capture.record(direction, state.id(), tick, buf)
+    }
+
+    private fun startCapture() {
+        val fileName = "packet-capture-${getTime(fileFormatter)}.arccap"
+        val label = mc.currentServerEntry?.address ?: if (mc.isIntegratedServerRunning) "Integrated server" else "Main Menu"
+
+        val path = FolderRegister.packetLogs.resolve(fileName)
+
+        FolderRegister.packetLogs.createDirectories()
+        capture = PacketCapture(path, label) { error ->
+            if (capture?.path == path) capture = null
+            this@PacketLogger.logError("Packet capture to $fileName failed, stopped capturing", error)
+        }
+
+        this@PacketLogger.info(fileInfo("Packet capture started: ", path.toFile()))
+    }
+
+    private fun fileInfo(message: String, file: File) = buildText {
+        literal(message)
+        clickEvent(ClickEvents.openFile(file.relativeMCPath.pathString)) {
+            color(Color.YELLOW) { literal(file.name) }
+            literal(" (click to open)")
+        }
+    }
+
     private fun Packet<*>.logReceived() {
         storageFlow.tryEmit("Received at ${getTime(entryFormatter)}\n${dynamicString(maxRecursionDepth)}\n")
     }
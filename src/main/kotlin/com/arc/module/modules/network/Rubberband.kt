@@ -30,14 +30,15 @@ object Rubberband : Module(
     init {
         listen<PacketEvent.Receive.Pre> { event ->
             if (!showRubberbandInfo) return@listen
-            if (event.packet !is PlayerPositionLookS2CPacket) return@listen
+            val packet = event.packet
+            if (packet !is PlayerPositionLookS2CPacket) return@listen
 
             if (PlayerPacketHandler.configurations.isEmpty()) {
                 this@Rubberband.warn("Position was reverted")
                 return@listen
             }
 
-            val newPos = event.packet.change.position
+            val newPos = packet.change.position
             val last = PlayerPacketHandler.configurations.minBy {
                 it.position distSq newPos
             }
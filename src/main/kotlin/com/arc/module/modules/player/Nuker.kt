@@ -12,8 +12,10 @@ import com.arc.task.RootTask.run
 import com.arc.task.Task
 import com.arc.task.tasks.BuildTask.Companion.build
 import com.arc.util.BlockUtils.blockPos
+import com.arc.util.world.blockSearch
 import net.minecraft.block.Blocks
 import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Vec3i
 
 object Nuker : Module(
     name = "Nuker",
@@ -41,10 +43,9 @@ object Nuker : Module(
             task = tickingBlueprint {
                 if (onGround && !player.isOnGround) return@tickingBlueprint emptyMap()
 
-                val selection = BlockPos.iterateOutwards(player.blockPos, width, height, width)
+                val selection = blockSearch(Vec3i(width, height, width)) { !it.isAir }
+                    .keys
                     .asSequence()
-                    .map { it.blockPos }
-                    .filter { !world.isAir(it) }
                     .filter { !flatten || it.y >= player.blockPos.y }
                     .filter { pos ->
                         if (!baritoneSelection) true
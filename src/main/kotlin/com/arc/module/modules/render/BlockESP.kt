@@ -44,6 +44,13 @@ object BlockESP : Module(
     @JvmStatic
     val barrier by setting("Solid Barrier Block", true, "Render barrier blocks")
 
+    /**
+     * Whether [state] is a barrier that should be rendered as a solid block.
+     * Compares the block first, as this is called for every block state the chunk builder renders.
+     */
+    @JvmStatic
+    fun isSolidBarrier(state: BlockState) = state.block === Blocks.BARRIER && isEnabled && barrier
+
     // ToDo: I wanted to render this as a transparent / translucent block with a red tint.
     //  Like the red stained glass block without the texture sprite.
     //  Creating a custom baked model for this would be needed but seems really hard to do.
@@ -51,7 +58,7 @@ object BlockESP : Module(
     @JvmStatic
     val model: BlockStateModel get() = mc.bakedModelManager.missingModel
 
-    private val esp = newChunkedESP { world, position ->
+    private val esp = newChunkedESP(filter = { it.block in blocks }) { world, position ->
         val state = world.getBlockState(position)
         if (state.block !in blocks) return@newChunkedESP
 
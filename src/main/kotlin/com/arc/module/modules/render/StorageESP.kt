@@ -2,9 +2,13 @@
 package com.arc.module.modules.render
 
 import com.arc.context.SafeContext
+import com.arc.event.events.TickEvent
+import com.arc.event.events.WorldEvent
 import com.arc.event.events.onStaticRender
+import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.graphics.renderer.esp.DirectionMask
 import com.arc.graphics.renderer.esp.DirectionMask.buildSideMesh
+import com.arc.graphics.renderer.esp.RetainedShapes.Companion.retainedShapes
 import com.arc.graphics.renderer.esp.ShapeBuilder
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
@@ -15,6 +19,7 @@ import com.arc.util.extension.outlineShape
 import com.arc.util.math.setAlpha
 import com.arc.util.world.blockEntitySearch
 import com.arc.util.world.entitySearch
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
 import net.minecraft.block.entity.BarrelBlockEntity
 import net.minecraft.block.entity.BlastFurnaceBlockEntity
 import net.minecraft.block.entity.BlockEntity
@@ -31,6 +36,8 @@ import net.minecraft.entity.Entity
 import net.minecraft.entity.decoration.ItemFrameEntity
 import net.minecraft.entity.vehicle.AbstractMinecartEntity
 import net.minecraft.entity.vehicle.MinecartEntity
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Direction
 import java.awt.Color
 
 object StorageESP : Module(
@@ -39,18 +46,18 @@ object StorageESP : Module(
     tag = ModuleTag.RENDER,
 ) {
     /* General settings */
-    private val distance by setting("Distance", 64.0, 10.0..256.0, 1.0, "Maximum distance for rendering").group(Group.General)
+    private val distance by setting("Distance", 64.0, 10.0..MAX_DISTANCE, 1.0, "Maximum distance for rendering").onValueChange(::refresh).group(Group.General)
 
     /* Render settings */
-    private var drawFaces: Boolean by setting("Draw Faces", true, "Draw faces of blocks").onValueChange { _, to -> drawEdges = !to && !drawFaces }.group(Group.Render)
-    private var drawEdges: Boolean by setting("Draw Edges", true, "Draw edges of blocks").onValueChange { _, to -> drawFaces = !to && !drawEdges }.group(Group.Render)
-    private val mode by setting("Outline Mode", DirectionMask.OutlineMode.And, "Outline mode").group(Group.Render)
-    private val mesh by setting("Mesh", true, "Connect similar adjacent blocks").group(Group.Render)
+    private var drawFaces: Boolean by setting("Draw Faces", true, "Draw faces of blocks").onValueChange { _, to -> drawEdges = !to && !drawFaces }.onValueChange(::refresh).group(Group.Render)
+    private var drawEdges: Boolean by setting("Draw Edges", true, "Draw edges of blocks").onValueChange { _, to -> drawFaces = !to && !drawEdges }.onValueChange(::refresh).group(Group.Render)
+    private val mode by setting("Outline Mode", DirectionMask.OutlineMode.And, "Outline mode").onValueChange(::refresh).group(Group.Render)
+    private val mesh by setting("Mesh", true, "Connect similar adjacent blocks").onValueChange(::refresh).group(Group.Render)
 
     /* Color settings */
-    private val useBlockColor by setting("Use Block Color", true, "Use the color of the block instead").group(Group.Color)
-    private val facesAlpha by setting("Faces Alpha", 0.3, 0.1..1.0, 0.05).group(Group.Color)
-    private val edgesAlpha by setting("Edges Alpha", 0.3, 0.1..1.0, 0.05).group(Group.Color)
+    private val useBlockColor by setting("Use Block Color", true, "Use the color of the block instead").onValueChange(::refresh).group(Group.Color)
+    private val facesAlpha by setting("Faces Alpha", 0.3, 0.1..1.0, 0.05).onValueChange(::refresh).group(Group.Color)
+    private val edgesAlpha by setting("Edges Alpha", 0.3, 0.1..1.0, 0.05).onValueChange(::refresh).group(Group.Color)
 
     // TODO:
     //  val blockColors by setting("Block Colors", mapOf<String, Color>()) { page == Page.Color && !useBlockColor }
@@ -65,19 +72,19 @@ object StorageESP : Module(
     //    ... console.log(color & 0xFF)
     //    ... }
 
-    private val barrelColor by setting("Barrel Color", Color(143, 119, 72)) { !useBlockColor }.group(Group.Color)
-    private val blastFurnaceColor by setting("Blast Furnace Color", Color(153, 153, 153)) { !useBlockColor }.group(Group.Color)
-    private val brewingStandColor by setting("Brewing Stand Color", Color(167, 167, 167)) { !useBlockColor }.group(Group.Color)
-    private val trappedChestColor by setting("Trapped Chest Color", Color(216, 127, 51)) { !useBlockColor }.group(Group.Color)
-    private val chestColor by setting("Chest Color", Color(216, 127, 51)) { !useBlockColor }.group(Group.Color)
-    private val dispenserColor by setting("Dispenser Color", Color(153, 153, 153)) { !useBlockColor }.group(Group.Color)
-    private val enderChestColor by setting("Ender Chest Color", Color(127, 63, 178)) { !useBlockColor }.group(Group.Color)
-    private val furnaceColor by setting("Furnace Color", Color(153, 153, 153)) { !useBlockColor }.group(Group.Color)
-    private val hopperColor by setting("Hopper Color", Color(76, 76, 76)) { !useBlockColor }.group(Group.Color)
-    private val smokerColor by setting("Smoker Color", Color(112, 112, 112)) { !useBlockColor }.group(Group.Color)
-    private val shulkerColor by setting("Shulker Color", Color(178, 76, 216)) { !useBlockColor }.group(Group.Color)
-    private val itemFrameColor by setting("Item Frame Color", Color(216, 127, 51)) { !useBlockColor }.group(Group.Color)
-    private val cartColor by setting("Minecart Color", Color(102, 127, 51)) { !useBlockColor }.group(Group.Color)
+    private val barrelColor by setting("Barrel Color", Color(143, 119, 72)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val blastFurnaceColor by setting("Blast Furnace Color", Color(153, 153, 153)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val brewingStandColor by setting("Brewing Stand Color", Color(167, 167, 167)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val trappedChestColor by setting("Trapped Chest Color", Color(216, 127, 51)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val chestColor by setting("Chest Color", Color(216, 127, 51)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val dispenserColor by setting("Dispenser Color", Color(153, 153, 153)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val enderChestColor by setting("Ender Chest Color", Color(127, 63, 178)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val furnaceColor by setting("Furnace Color", Color(153, 153, 153)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val hopperColor by setting("Hopper Color", Color(76, 76, 76)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val smokerColor by setting("Smoker Color", Color(112, 112, 112)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val shulkerColor by setting("Shulker Color", Color(178, 76, 216)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val itemFrameColor by setting("Item Frame Color", Color(216, 127, 51)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
+    private val cartColor by setting("Minecart Color", Color(102, 127, 51)) { !useBlockColor }.onValueChange(::refresh).group(Group.Color)
 
     private val entities = setOf(
         BarrelBlockEntity::class,
@@ -96,12 +103,56 @@ object StorageESP : Module(
         MinecartEntity::class,
     )
 
+    /** Positions of every loaded storage block entity, in or out of range */
+    private val storages = LongOpenHashSet()
+
+    /** Positions of [storages] that were within [distance] on the last range check */
+    private val inRange = LongOpenHashSet()
+    private var lastCenter: BlockPos? = null
+
+    private val shapes = retainedShapes { builder, key ->
+        val pos = BlockPos.fromLong(key)
+        if (!player.blockPos.isWithinDistance(pos, distance)) return@retainedShapes
+
+        val blockEntity = world.getBlockEntity(pos) ?: return@retainedShapes
+        if (blockEntity::class !in entities) return@retainedShapes
+
+        with(builder) { build(blockEntity, excludedSides(blockEntity)) }
+    }
+
     init {
-        onStaticRender { builder ->
-            blockEntitySearch<BlockEntity>(distance)
-                .filter { it::class in entities }
-                .forEach { with(builder) { build(it, excludedSides(it)) } }
+        onEnable {
+            reset()
+            blockEntitySearch<BlockEntity>(MAX_DISTANCE).forEach { track(it.pos, it) }
+        }
+
+        onDisable { reset() }
 
+        listen<WorldEvent.Join> { reset() }
+
+        listen<WorldEvent.ChunkEvent.Load> { event ->
+            event.chunk.blockEntities.values.forEach { track(it.pos, it) }
+        }
+
+        listen<WorldEvent.ChunkEvent.Unload> { event ->
+            event.chunk.blockEntities.keys.forEach { pos ->
+                val key = pos.asLong()
+                storages.remove(key)
+                inRange.remove(key)
+                shapes.remove(key)
+            }
+        }
+
+        listen<WorldEvent.BlockUpdate.Client> { event ->
+            track(event.pos, world.getBlockEntity(event.pos))
+        }
+
+        listen<TickEvent.Pre> {
+            if (player.blockPos != lastCenter) updateRange()
+        }
+
+        // Entities move every tick, so they are still rebuilt every tick
+        onStaticRender { builder ->
             val mineCarts = entitySearch<AbstractMinecartEntity>(distance)
             val itemFrames = entitySearch<ItemFrameEntity>(distance)
             (mineCarts + itemFrames)
@@ -109,6 +160,62 @@ object StorageESP : Module(
         }
     }
 
+    /**
+     * Adds or removes the storage at [pos] and invalidates its shape and the shapes of its neighbours,
+     * whose meshed sides depend on it.
+     */
+    private fun SafeContext.track(pos: BlockPos, blockEntity: BlockEntity?) {
+        val key = pos.asLong()
+        val isStorage = blockEntity != null && blockEntity::class in entities
+        if (!isStorage && !storages.remove(key)) return
+
+        if (isStorage) {
+            storages.add(key)
+            if (player.blockPos.isWithinDistance(pos, distance)) inRange.add(key)
+        } else inRange.remove(key)
+
+        shapes.invalidate(key)
+        Direction.entries.forEach { direction ->
+            val neighbor = BlockPos.offset(key, direction)
+            if (neighbor in storages) shapes.invalidate(neighbor)
+        }
+    }
+
+    /**
+     * Invalidates the storages that entered or left the [distance] since the last check.
+     */
+    private fun SafeContext.updateRange() {
+        val center = player.blockPos
+        lastCenter = center
+
+        val iterator = storages.iterator()
+        while (iterator.hasNext()) {
+            val key = iterator.nextLong()
+            val isInRange = center.isWithinDistance(BlockPos.fromLong(key), distance)
+            if (isInRange == key in inRange) continue
+
+            if (isInRange) inRange.add(key)
+            else inRange.remove(key)
+            shapes.invalidate(key)
+        }
+    }
+
+    private fun reset() {
+        storages.clear()
+        inRange.clear()
+        lastCenter = null
+        shapes.clear()
+    }
+
+    /**
+     * Rebuilds every shape after a setting changed. Shapes that are no longer in range build nothing and are dropped.
+     */
+    private fun refresh(ctx: SafeContext, from: Any?, to: Any?) {
+        inRange.clear()
+        lastCenter = null
+        shapes.invalidateAll()
+    }
+
     private fun SafeContext.excludedSides(blockEntity: BlockEntity): Int {
         val isFullCube = blockEntity.cachedState.isFullCube(world, blockEntity.pos)
         return if (mesh && isFullCube) {
@@ -170,6 +277,8 @@ object StorageESP : Module(
             else -> null
         }
 
+    private const val MAX_DISTANCE = 256.0
+
     private enum class Group(override val displayName: String) : NamedEnum {
         General("General"),
         Render("Render"),
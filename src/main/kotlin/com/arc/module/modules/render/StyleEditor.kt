@@ -39,6 +39,8 @@ object StyleEditor : Module(
     val rebuildsPerTick by setting("Rebuilds", 64, 1..256, 1, unit = " chunks/tick").group(Group.ESP)
     val updateFrequency by setting("Update Frequency", 2, 1..10, 1, "Frequency of block updates", unit = " ticks").group(Group.ESP)
     val outlineWidth by setting("Outline Width", 1.0, 0.1..5.0, 0.1, "Width of block outlines", unit = "px").group(Group.ESP)
+    val espFrustumCulling by setting("Frustum Culling", true, "Skip drawing chunks outside of the view").group(Group.ESP)
+    val espRenderDistance by setting("Render Distance", 64, 1..64, 1, "Maximum horizontal distance to draw chunks at", unit = " chunks").group(Group.ESP)
 
     private enum class Group(override val displayName: String): NamedEnum {
         General("General"),
@@ -1,8 +1,14 @@
 
 package com.arc.module.modules.render
 
+import com.arc.config.settings.collections.CollectionSetting.Companion.onDeselect
+import com.arc.config.settings.collections.CollectionSetting.Companion.onSelect
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.module.Module
 import com.arc.module.tag.ModuleTag
+import com.arc.threading.runSafe
+import net.minecraft.block.Block
 import net.minecraft.block.BlockState
 import net.minecraft.block.Blocks
 
@@ -29,11 +35,49 @@ object XRay : Module(
         .onValueChange { _, _ -> if (isEnabled) mc.worldRenderer.reload() }
 
     private val selection by setting("Block Selection", defaultBlocks, description = "Block selection that will be shown (whitelist) or hidden (blacklist)")
-        .onValueChange { _, _ -> if (isEnabled) mc.worldRenderer.reload() }
+        .onValueSet { _, _ -> invalidate() }
+        .onSelect { invalidate() }
+        .onDeselect { invalidate() }
     private val mode by setting("Selection Mode", Selection.Whitelist, "The mode of the block selection")
+        .onValueSet { _, _ -> invalidate() }
+
+    /**
+     * Bit `i` is set if the block state with the raw id `i` is shown, compiled from [selection] and [mode].
+     * Replaced as a whole after a change, so chunk builder threads never see a partially built table.
+     */
+    @Volatile
+    private var shown: LongArray? = null
 
     @JvmStatic
-    fun isSelected(blockState: BlockState) = mode.select(blockState)
+    fun isSelected(blockState: BlockState): Boolean {
+        val shown = shown ?: compile()
+        val id = Block.getRawIdFromState(blockState)
+        val word = id ushr 6
+
+        if (word >= shown.size) return mode.select(blockState)
+        return shown[word] and (1L shl id) != 0L
+    }
+
+    @Synchronized
+    private fun compile(): LongArray {
+        shown?.let { return it }
+
+        val select = mode.select
+        val compiled = LongArray((Block.STATE_IDS.size() + 63) ushr 6)
+
+        for (id in 0 until Block.STATE_IDS.size()) {
+            val state = Block.STATE_IDS.get(id) ?: continue
+            if (select(state)) compiled[id ushr 6] = compiled[id ushr 6] or (1L shl id)
+        }
+
+        return compiled.also { shown = it }
+    }
+
+    private fun invalidate() {
+        // Waits for a running compile, so that it cannot publish a table of the old selection
+        synchronized(this) { shown = null }
+        if (isEnabled) runSafe { mc.worldRenderer.reload() }
+    }
 
     enum class Selection(val select: (BlockState) -> Boolean) {
         Whitelist({ it.block in selection }),
@@ -41,7 +85,10 @@ object XRay : Module(
     }
 
     init {
+        listen<WorldEvent.Join> { invalidate() }
+
         onToggle {
+            shown = null
             mc.worldRenderer.reload()
         }
     }
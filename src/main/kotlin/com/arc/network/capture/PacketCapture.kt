@@ -0,0 +1,200 @@
+package com.arc.network.capture
+
+import com.arc.threading.runIO
+import io.netty.buffer.ByteBuf
+import kotlinx.coroutines.channels.Channel
+import net.minecraft.SharedConstants
+import net.minecraft.network.NetworkPhase
+import net.minecraft.network.NetworkSide
+import net.minecraft.network.codec.PacketCodec
+import net.minecraft.network.packet.Packet
+import net.minecraft.network.state.NetworkState
+import java.io.ByteArrayOutputStream
+import java.io.Closeable
+import java.io.DataOutputStream
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.Path
+import java.nio.file.StandardOpenOption
+import java.util.concurrent.atomic.AtomicReferenceArray
+import java.util.zip.Deflater
+
+/**
+ * Records the encoded bytes of packets into an append-only capture file.
+ *
+ * Recording only copies the packet bytes into the current block, so it is cheap enough for the netty threads.
+ * Full blocks are compressed and appended by a single writer on the IO dispatcher.
+ * If writing fails, the capture closes itself, drops the pending blocks and reports the error to [onFailure].
+ * Use [PacketCaptureReader] and [PacketCaptureDecoder] to read a capture.
+ *
+ * The file starts with a header:
+ * - the [MAGIC] bytes, the format [VERSION] as a byte and the protocol version as an int
+ * - the start time in epoch milliseconds as a long and a [label] as a modified UTF-8 string
+ *
+ * followed by blocks of an int raw size, an int compressed size and the deflated records.
+ * A record is a var-long of nanoseconds since the start, a var-int tick, a byte of `direction | phase << 1`,
+ * a var-int length and the packet bytes, starting with the var-int packet id.
+ */
+class PacketCapture(
+    val path: Path,
+    label: String,
+    private val onFailure: (Throwable) -> Unit = {},
+) : Closeable {
+    private val start = System.nanoTime()
+    private val file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)
+    private val blocks = Channel<ByteArray>(Channel.UNLIMITED)
+
+    private var block = ByteArray(BLOCK_SIZE)
+    private var size = 0
+    @Volatile
+    private var closed = false
+
+    /** The amount of recorded packets */
+    @Volatile
+    var records = 0L
+        private set
+
+    /** The amount of bytes written to the file so far */
+    @Volatile
+    var written = 0L
+        private set
+
+    init {
+        val header = ByteArrayOutputStream()
+        DataOutputStream(header).apply {
+            write(MAGIC)
+            writeByte(VERSION)
+            writeInt(SharedConstants.getProtocolVersion())
+            writeLong(System.currentTimeMillis())
+            writeUTF(label)
+        }
+        write(ByteBuffer.wrap(header.toByteArray()))
+
+        runIO {
+            val deflater = Deflater(Deflater.BEST_SPEED)
+            try {
+                for (raw in blocks) writeBlock(raw, deflater)
+            } catch (e: Exception) {
+                synchronized(this@PacketCapture) {
+                    closed = true
+                    blocks.cancel()
+                }
+                onFailure(e)
+            } finally {
+                deflater.end()
+                file.close()
+            }
+        }
+    }
+
+    /**
+     * Appends the readable bytes of [buf] as a packet, without moving its reader index.
+     */
+    fun record(direction: Direction, phase: NetworkPhase, tick: Int, buf: ByteBuf) {
+        val length = buf.readableBytes()
+        val time = System.nanoTime() - start
+
+        synchronized(this) {
+            if (closed) return
+            ensureCapacity(size + length + MAX_RECORD_HEADER)
+
+            writeVarLong(time)
+            writeVarLong(tick.toLong())
+            block[size++] = (direction.ordinal or (phase.ordinal shl 1)).toByte()
+            writeVarLong(length.toLong())
+            buf.getBytes(buf.readerIndex(), block, size, length)
+            size += length
+            records++
+
+            if (size >= BLOCK_SIZE) flush()
+        }
+    }
+
+    /**
+     * Hands the remaining records to the writer, which closes the file once everything is written.
+     */
+    override fun close() {
+        synchronized(this) {
+            if (closed) return
+            flush()
+            closed = true
+            blocks.close()
+        }
+    }
+
+    private fun flush() {
+        if (size == 0) return
+        blocks.trySend(block.copyOf(size))
+        size = 0
+    }
+
+    private fun ensureCapacity(capacity: Int) {
+        if (capacity > block.size) block = block.copyOf(maxOf(capacity, block.size * 2))
+    }
+
+    private fun writeVarLong(value: Long) {
+        var remaining = value
+        while (remaining and 0x7FL.inv() != 0L) {
+            block[size++] = (remaining and 0x7FL or 0x80L).toByte()
+            remaining = remaining ushr 7
+        }
+        block[size++] = remaining.toByte()
+    }
+
+    private fun writeBlock(raw: ByteArray, deflater: Deflater) {
+        deflater.reset()
+        deflater.setInput(raw)
+        deflater.finish()
+
+        val compressed = ByteArrayOutputStream(raw.size / 2)
+        val chunk = ByteArray(8192)
+        while (!deflater.finished()) compressed.write(chunk, 0, deflater.deflate(chunk))
+
+        write(ByteBuffer.allocate(8).putInt(raw.size).putInt(compressed.size()).flip())
+        write(ByteBuffer.wrap(compressed.toByteArray()))
+    }
+
+    private fun write(buffer: ByteBuffer) {
+        while (buffer.hasRemaining()) written += file.write(buffer)
+    }
+
+    /**
+     * The direction of a captured packet, seen from the client.
+     */
+    enum class Direction { Inbound, Outbound }
+
+    companion object {
+        val MAGIC = "ARCCAP".toByteArray()
+        const val VERSION = 1
+        const val BLOCK_SIZE = 1 shl 16
+        private const val MAX_RECORD_HEADER = 10 + 5 + 1 + 5
+
+        private val codecs = AtomicReferenceArray<PacketCodec<ByteBuf, out Packet<*>>>(NetworkPhase.entries.size * 2)
+
+        /**
+         * Returns the direction of a packet [decoded] or encoded with [state],
+         * or `null` if the state belongs to a connection of an integrated server.
+         */
+        fun direction(state: NetworkState<*>, decoded: Boolean) = when {
+            decoded && state.side() == NetworkSide.CLIENTBOUND -> Direction.Inbound
+            !decoded && state.side() == NetworkSide.SERVERBOUND -> Direction.Outbound
+            else -> null
+        }
+
+        /**
+         * Remembers the packet codec of a client [state], as a fallback for packets
+         * the vanilla codecs built by [PacketCaptureDecoder] fail to decode.
+         */
+        fun remember(state: NetworkState<*>, direction: Direction) {
+            val index = state.id().ordinal * 2 + direction.ordinal
+            val codec = state.codec()
+            if (codecs.get(index) !== codec) codecs.set(index, codec)
+        }
+
+        /**
+         * Returns the codec last seen for the [phase] and [direction], or `null` if it was not used in this session.
+         */
+        fun codec(phase: Int, direction: Direction): PacketCodec<ByteBuf, out Packet<*>>? =
+            codecs.get(phase * 2 + direction.ordinal)
+    }
+}
@@ -0,0 +1,159 @@
+package com.arc.network.capture
+
+import com.arc.Arc.mc
+import com.arc.network.capture.PacketCapture.Direction
+import com.arc.network.capture.PacketCaptureReader.Record
+import com.arc.util.DynamicReflectionSerializer.dynamicName
+import com.arc.util.DynamicReflectionSerializer.dynamicString
+import com.arc.util.NamedEnum
+import com.google.gson.stream.JsonWriter
+import io.netty.buffer.ByteBuf
+import io.netty.buffer.Unpooled
+import net.minecraft.SharedConstants
+import net.minecraft.network.NetworkPhase
+import net.minecraft.network.RegistryByteBuf
+import net.minecraft.network.codec.PacketCodec
+import net.minecraft.network.packet.Packet
+import net.minecraft.network.state.ConfigurationStates
+import net.minecraft.network.state.HandshakeStates
+import net.minecraft.network.state.LoginStates
+import net.minecraft.network.state.PlayStateFactories
+import net.minecraft.network.state.QueryStates
+import net.minecraft.registry.DynamicRegistryManager
+import net.minecraft.registry.Registries
+import java.io.Writer
+import java.nio.file.Path
+import kotlin.io.path.bufferedWriter
+import kotlin.io.path.nameWithoutExtension
+
+/**
+ * Renders captures written by [PacketCapture] as text or JSON.
+ *
+ * Packets are decoded with codecs built from the vanilla network states, if the capture was taken with the protocol
+ * of the running game. Play packets are bound to the registries of the current connection, or the builtin ones.
+ * Packets these codecs fail to decode are retried with the codecs of the current session, see [PacketCapture.remember].
+ * Packets that still fail to decode, or of another protocol, are rendered as hex.
+ */
+object PacketCaptureDecoder {
+    enum class Format(override val displayName: String, val extension: String) : NamedEnum {
+        Text("Text", "txt"),
+        Json("JSON", "json"),
+    }
+
+    /**
+     * Renders the [capture] next to it and returns the path of the rendered file.
+     */
+    fun decode(capture: Path, format: Format, maxRecursionDepth: Int = 6): Path {
+        val output = capture.resolveSibling("${capture.nameWithoutExtension}.${format.extension}")
+
+        PacketCaptureReader(capture).use { reader ->
+            output.bufferedWriter().use { writer ->
+                when (format) {
+                    Format.Text -> writer.renderText(reader, maxRecursionDepth)
+                    Format.Json -> writer.renderJson(reader, maxRecursionDepth)
+                }
+            }
+        }
+
+        return output
+    }
+
+    private fun Writer.renderText(reader: PacketCaptureReader, maxRecursionDepth: Int) {
+        val header = reader.header
+        appendLine("Packet capture '${header.label}' of protocol ${header.protocol}, started at ${header.startedAt}")
+        appendLine()
+
+        val codecs = Codecs(header.protocol)
+        reader.forEach { record ->
+            val packet = codecs.decode(record)
+            appendLine(
+                "%.3fms, tick %d: %s %s 0x%02x (%d bytes)".format(
+                    record.time / 1e6, record.tick, record.direction, record.phaseName, record.packetId, record.data.size
+                )
+            )
+            appendLine(packet?.dynamicString(maxRecursionDepth) ?: record.hex)
+        }
+    }
+
+    private fun Writer.renderJson(reader: PacketCaptureReader, maxRecursionDepth: Int) {
+        val header = reader.header
+
+        JsonWriter(this).apply {
+            setIndent("  ")
+            beginObject()
+            name("label").value(header.label)
+            name("protocol").value(header.protocol)
+            name("startedAt").value(header.startedAt)
+
+            val codecs = Codecs(header.protocol)
+            name("packets").beginArray()
+            reader.forEach { record ->
+                val packet = codecs.decode(record)
+
+                beginObject()
+                name("time").value(record.time)
+                name("tick").value(record.tick)
+                name("direction").value(record.direction.name)
+                name("phase").value(record.phaseName)
+                name("id").value(record.packetId)
+                name("size").value(record.data.size)
+                if (packet != null) {
+                    name("type").value(packet::class.dynamicName(remap = true))
+                    name("packet").value(packet.dynamicString(maxRecursionDepth))
+                } else {
+                    name("bytes").value(record.hex)
+                }
+                endObject()
+            }
+            endArray()
+
+            endObject()
+            flush()
+        }
+    }
+
+    /**
+     * The codecs to decode a capture of the [protocol] with, built lazily per phase and direction.
+     */
+    private class Codecs(private val protocol: Int) {
+        private val vanilla = HashMap<Int, PacketCodec<ByteBuf, out Packet<*>>?>()
+
+        private val registries by lazy {
+            mc.networkHandler?.registryManager ?: DynamicRegistryManager.of(Registries.REGISTRIES)
+        }
+
+        fun decode(record: Record): Packet<*>? {
+            if (protocol != SharedConstants.getProtocolVersion()) return null
+
+            val key = record.phase * 2 + record.direction.ordinal
+            val codec = vanilla.getOrPut(key) { runCatching { build(record.phase, record.direction) }.getOrNull() }
+
+            return codec?.tryDecode(record.data)
+                ?: PacketCapture.codec(record.phase, record.direction)?.tryDecode(record.data)
+        }
+
+        private fun build(phase: Int, direction: Direction): PacketCodec<ByteBuf, out Packet<*>>? {
+            val outbound = direction == Direction.Outbound
+            val state = when (NetworkPhase.entries.getOrNull(phase)) {
+                NetworkPhase.HANDSHAKING -> if (outbound) HandshakeStates.C2S else null
+                NetworkPhase.STATUS -> if (outbound) QueryStates.C2S else QueryStates.S2C
+                NetworkPhase.LOGIN -> if (outbound) LoginStates.C2S else LoginStates.S2C
+                NetworkPhase.CONFIGURATION -> if (outbound) ConfigurationStates.C2S else ConfigurationStates.S2C
+                NetworkPhase.PLAY -> {
+                    val buffers = RegistryByteBuf.makeFactory(registries)
+                    if (outbound) PlayStateFactories.C2S.bind(buffers) { true }
+                    else PlayStateFactories.S2C.bind(buffers)
+                }
+                null -> null
+            }
+            return state?.codec()
+        }
+
+        private fun PacketCodec<ByteBuf, out Packet<*>>.tryDecode(data: ByteArray) =
+            runCatching { decode(Unpooled.wrappedBuffer(data)) }.getOrNull()
+    }
+
+    private val Record.phaseName get() = NetworkPhase.entries.getOrNull(phase)?.name ?: "$phase"
+
+    private val Record.hex get() = data.joinToString("") { "%02x".format(it) }
+}
@@ -0,0 +1,114 @@
+package com.arc.network.capture
+
+import com.arc.network.capture.PacketCapture.Direction
+import com.arc.util.VarIntIterator
+import java.io.BufferedInputStream
+import java.io.Closeable
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.IOException
+import java.nio.file.Path
+import java.util.zip.Inflater
+import kotlin.io.path.inputStream
+
+/**
+ * Reads the records of a capture written by [PacketCapture], block by block.
+ */
+class PacketCaptureReader(path: Path) : Closeable {
+    private val input = DataInputStream(BufferedInputStream(path.inputStream()))
+    private val inflater = Inflater()
+
+    val header: Header
+
+    init {
+        val magic = ByteArray(PacketCapture.MAGIC.size)
+        input.readFully(magic)
+        if (!magic.contentEquals(PacketCapture.MAGIC)) throw IOException("Not a packet capture: $path")
+
+        val version = input.readUnsignedByte()
+        if (version != PacketCapture.VERSION) throw IOException("Unsupported packet capture version $version")
+
+        header = Header(version, input.readInt(), input.readLong(), input.readUTF())
+    }
+
+    /**
+     * Visits every record in the order they were captured.
+     * A block cut short by a crash ends the capture.
+     */
+    fun forEach(action: (Record) -> Unit) {
+        while (true) {
+            val block = readBlock() ?: return
+            var offset = 0
+
+            while (offset < block.size) {
+                val time = readVarLong(block, offset).also { offset = it.second }.first
+                val tick = readVarLong(block, offset).also { offset = it.second }.first.toInt()
+                val flags = block[offset++].toInt()
+                val length = readVarLong(block, offset).also { offset = it.second }.first.toInt()
+
+                action(Record(time, tick, Direction.entries[flags and 1], flags ushr 1, block.copyOfRange(offset, offset + length)))
+                offset += length
+            }
+        }
+    }
+
+    private fun readBlock(): ByteArray? {
+        val rawSize: Int
+        val compressed: ByteArray
+
+        try {
+            rawSize = input.readInt()
+            compressed = ByteArray(input.readInt())
+            input.readFully(compressed)
+        } catch (_: EOFException) {
+            return null
+        }
+
+        inflater.reset()
+        inflater.setInput(compressed)
+
+        val raw = ByteArray(rawSize)
+        var read = 0
+        while (read < rawSize && !inflater.finished()) read += inflater.inflate(raw, read, rawSize - read)
+        return raw
+    }
+
+    private fun readVarLong(bytes: ByteArray, start: Int): Pair<Long, Int> {
+        var offset = start
+        var value = 0L
+        var shift = 0
+
+        do {
+            val byte = bytes[offset++].toLong()
+            value = value or (byte and 0x7F shl shift)
+            shift += 7
+        } while (byte and 0x80 != 0L)
+
+        return value to offset
+    }
+
+    override fun close() {
+        inflater.end()
+        input.close()
+    }
+
+    /**
+     * The header of a capture.
+     *
+     * @property protocol The protocol version of the game that wrote the capture.
+     * @property startedAt The start of the capture in epoch milliseconds.
+     */
+    data class Header(val version: Int, val protocol: Int, val startedAt: Long, val label: String)
+
+    /**
+     * A captured packet.
+     *
+     * @property time The nanoseconds since the start of the capture.
+     * @property phase The ordinal of the [net.minecraft.network.NetworkPhase] the packet was sent in.
+     * @property data The encoded packet, starting with its var-int id.
+     */
+    class Record(val time: Long, val tick: Int, val direction: Direction, val phase: Int, val data: ByteArray) {
+        /** The id of the packet within its phase and direction */
+        val packetId get() = VarIntIterator(data).next()
+    }
+}
@@ -7,16 +7,21 @@ import com.arc.config.AutomationConfig.Companion.DEFAULT
 import com.arc.config.groups.EatConfig.Companion.reasonEating
 import com.arc.context.Automated
 import com.arc.context.SafeContext
+import com.arc.event.events.InventoryEvent
 import com.arc.event.events.TickEvent
+import com.arc.event.events.WorldEvent
 import com.arc.event.listener.SafeListener.Companion.listen
 import com.arc.interaction.BaritoneManager
 import com.arc.interaction.construction.blueprint.Blueprint
 import com.arc.interaction.construction.blueprint.Blueprint.Companion.toStructure
+import com.arc.interaction.construction.blueprint.Structure
+import com.arc.interaction.construction.blueprint.Structure.Companion.toStructure
 import com.arc.interaction.construction.blueprint.PropagatingBlueprint
 import com.arc.interaction.construction.blueprint.StaticBlueprint.Companion.toBlueprint
 import com.arc.interaction.construction.blueprint.TickingBlueprint
 import com.arc.interaction.construction.simulation.BuildGoal
-import com.arc.interaction.construction.simulation.BuildSimulator.simulate
+import com.arc.interaction.construction.simulation.IncrementalSimulation
+import com.arc.interaction.construction.simulation.Simulation
 import com.arc.interaction.construction.simulation.Simulation.Companion.simulation
 import com.arc.interaction.construction.simulation.context.BuildContext
 import com.arc.interaction.construction.simulation.result.BuildResult
@@ -37,7 +42,6 @@ import com.arc.task.Task
 import com.arc.task.tasks.EatTask.Companion.eat
 import com.arc.threading.runSafeAutomated
 import com.arc.util.Formatting.format
-import com.arc.util.extension.Structure
 import com.arc.util.extension.inventorySlots
 import com.arc.util.item.ItemUtils.block
 import com.arc.util.player.SlotUtils.hotbarAndStorage
@@ -63,6 +67,12 @@ class BuildTask private constructor(
     private val dropsToCollect = mutableSetOf<ItemEntity>()
     var eatTask: EatTask? = null
 
+    private val simulation = IncrementalSimulation()
+    private var goalSimulation: Simulation? = null
+
+    private var drawables = emptyList<Drawable>()
+    private var drawnRevision = -1L
+
     private val onItemDrop: ((item: ItemEntity) -> Unit)?
         get() = if (collectDrops) { item ->
             dropsToCollect.add(item)
@@ -72,6 +82,10 @@ class BuildTask private constructor(
         iteratePropagating()
     }
 
+    override fun SafeContext.onCancel() {
+        simulation.cancel()
+    }
+
     init {
         listen<TickEvent.Pre> {
             when {
@@ -94,6 +108,23 @@ class BuildTask private constructor(
             simulateAndProcess()
         }
 
+        listen<WorldEvent.BlockUpdate.Client> { event ->
+            simulation.invalidate(event.pos)
+            goalSimulation?.invalidate(event.pos)
+        }
+
+        listen<WorldEvent.ChunkEvent.Load> { event ->
+            simulation.invalidateChunk(event.chunk.pos.x, event.chunk.pos.z)
+        }
+
+        listen<InventoryEvent.SlotUpdate> {
+            simulation.invalidateReach()
+        }
+
+        listen<InventoryEvent.FullUpdate> {
+            simulation.invalidateReach()
+        }
+
         listen<TickEvent.Post> {
             if (finishOnDone && blueprint.structure.isEmpty()) {
                 failure("Structure is empty")
@@ -103,21 +134,23 @@ class BuildTask private constructor(
     }
 
     private fun SafeContext.simulateAndProcess() {
-        val results = runSafeAutomated { blueprint.structure.simulate() }
-
-        DEFAULT.drawables = results
-            .filterIsInstance<Drawable>()
-            .plus(pendingInteractions.toList())
+        runSafeAutomated { simulation.update(blueprint.structure, player.eyePos) }
+        val isComplete = simulation.isComplete
 
-        val resultsNotBlocked = results
-            .filter { result -> pendingInteractions.none { it.blockPos == result.pos } }
-            .sorted()
+        if (simulation.revision != drawnRevision) {
+            drawables = simulation.results.filterIsInstance<Drawable>().toList()
+            drawnRevision = simulation.revision
+        }
+        DEFAULT.drawables = drawables + pendingInteractions
 
-        val bestResult = resultsNotBlocked.firstOrNull() ?: return
-        handleResult(bestResult, resultsNotBlocked)
+        val isBlocked = { result: BuildResult -> pendingInteractions.any { it.blockPos == result.pos } }
+        val bestResult = simulation.best(isBlocked) ?: return
+        // Partial results can only tell what to interact with next, not whether the structure is done
+        if (!isComplete && bestResult !is Contextual && bestResult !is Dependent) return
+        handleResult(bestResult, simulation.actionable.filterNot(isBlocked))
     }
 
-    private fun SafeContext.handleResult(result: BuildResult, allResults: List<BuildResult>) {
+    private fun SafeContext.handleResult(result: BuildResult, allResults: Collection<BuildResult>) {
         if (result !is Dependent && result !is Contextual && pendingInteractions.isNotEmpty())
             return
 
@@ -138,7 +171,7 @@ class BuildTask private constructor(
             is GenericResult.NotVisible,
             is InteractResult.NoIntegrity -> {
                 if (!buildConfig.pathing) return
-                val sim = blueprint.simulation()
+                val sim = goalSimulation ?: blueprint.simulation().also { goalSimulation = it }
                 val goal = BuildGoal(sim, player.blockPos)
                 BaritoneManager.setGoalAndPath(goal)
             }
@@ -221,11 +254,11 @@ class BuildTask private constructor(
 
         @Ta5kBuilder
         context(automated: Automated)
-        fun Structure.build(
+        fun Map<BlockPos, TargetState>.build(
             finishOnDone: Boolean = true,
             collectDrops: Boolean = automated.buildConfig.collectDrops,
             lifeMaintenance: Boolean = false
-        ) = BuildTask(toBlueprint(), finishOnDone, collectDrops, lifeMaintenance, automated)
+        ) = BuildTask(toStructure().toBlueprint(), finishOnDone, collectDrops, lifeMaintenance, automated)
 
         @Ta5kBuilder
         context(automated: Automated)
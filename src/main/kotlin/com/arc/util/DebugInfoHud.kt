@@ -4,8 +4,15 @@ package com.arc.util
 import com.arc.Arc
 import com.arc.Arc.mc
 import com.arc.command.CommandRegistry
+import com.arc.config.groups.TargetSelector
 import com.arc.event.EventFlow
+import com.arc.event.EventProfiler
+import com.arc.graphics.renderer.esp.ChunkedESP
+import com.arc.graphics.renderer.esp.RetainedShapes
+import com.arc.module.Module
 import com.arc.module.ModuleRegistry
+import com.arc.module.modules.debug.ListenerProfiler
+import com.arc.module.modules.network.PacketLimiter
 import com.arc.util.Formatting.format
 import com.arc.util.extension.tickDelta
 import net.minecraft.util.Formatting
@@ -21,6 +28,26 @@ object DebugInfoHud {
         add("Commands: ${CommandRegistry.commands.size}")
         add("Synchronous Listeners: ${EventFlow.syncListeners.size}")
         add("Concurrent Listeners: ${EventFlow.concurrentListeners.size}")
+        add("Event Lanes: ${EventFlow.activeLanes.size} (${EventFlow.activeLanes.sumOf { it.dropped }} dropped)")
+
+        ChunkedESP.instances
+            .filter { it.owner.isEnabled }
+            .forEach { add("ESP $it") }
+
+        RetainedShapes.instances
+            .filter { it.owner.isEnabled }
+            .forEach { add("Retained $it") }
+
+        if (PacketLimiter.isEnabled) add("Packet Limiter: ${PacketLimiter.summary}")
+
+        TargetSelector.instances
+            .filter { (it.owner as? Module)?.isEnabled != false }
+            .forEach { add("Targeting $it") }
+
+        if (EventProfiler.isEnabled) {
+            add("Hottest Listeners:")
+            EventProfiler.hottest(ListenerProfiler.hudEntries).forEach { add("  $it") }
+        }
 
         when (val hit = mc.crosshairTarget) {
             is BlockHitResult -> {
@@ -1,6 +1,6 @@
-
 package com.arc.util
 
+import com.arc.event.EventFlow
 import com.arc.module.ModuleRegistry.modules
 
 object Diagnostics {
@@ -15,5 +15,11 @@ object Diagnostics {
                         append("\t\t${setting.name} -> ${setting.value}")
                     }
             }
+
+        appendLine()
+        appendLine("Event lanes:")
+        EventFlow.activeLanes
+            .sortedByDescending { it.dropped }
+            .forEach { lane -> appendLine("\t$lane") }
     }
-}
\ No newline at end of file
+}
@@ -24,14 +24,15 @@ import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkPos
 import org.apache.logging.log4j.Logger
 import java.io.File
-import java.lang.reflect.InaccessibleObjectException
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.Field
+import java.lang.reflect.Modifier
 import java.util.*
 import kotlin.jvm.optionals.getOrDefault
 import kotlin.reflect.KClass
 import kotlin.reflect.KProperty1
-import kotlin.reflect.full.memberProperties
-import kotlin.reflect.jvm.javaField
-import kotlin.reflect.jvm.jvmErasure
 
 object DynamicReflectionSerializer : Loadable {
     // Classes that should not be recursively serialized
@@ -111,89 +112,176 @@ object DynamicReflectionSerializer : Loadable {
             if (simple) name.simpleRemappedName else name.remappedName
         else name
 
+    /**
+     * Renders the fields of the object and, up to [maxRecursionDepth], the fields of their values.
+     *
+     * The fields of a class are resolved once into a [ClassPlan], so repeated calls only invoke cached getters.
+     * Without a [builder], a builder pooled per thread is used.
+     */
     fun Any.dynamicString(
 	    maxRecursionDepth: Int = 6,
 	    currentDepth: Int = 0,
 	    indent: String = "",
-	    visitedObjects: MutableSet<Any> = HashSet(),
-	    builder: StringBuilder = StringBuilder(),
+	    visitedObjects: MutableSet<Any> = Collections.newSetFromMap(IdentityHashMap()),
+	    builder: StringBuilder? = null,
 	    remap: Boolean = !Arc.isDebug,
 	    simple: Boolean = true
     ): String {
-        if (visitedObjects.contains(this)) {
-            builder.appendLine("$indent${this::class.dynamicName(remap, simple)} (Circular Reference)")
+        if (builder != null) {
+            appendFields(maxRecursionDepth, currentDepth, indent, visitedObjects, builder, remap, simple)
             return builder.toString()
         }
 
-        visitedObjects.add(this)
-        builder.appendLine("$indent${this::class.dynamicName(remap, simple)}")
+        val pooled = builders.get() ?: StringBuilder()
+        builders.set(null)
 
-        this::class.memberProperties
-            .forEach { processField(it, indent, builder, currentDepth, maxRecursionDepth, visitedObjects, remap) }
-
-        return builder.toString()
+        try {
+            appendFields(maxRecursionDepth, currentDepth, indent, visitedObjects, pooled, remap, simple)
+            return pooled.toString()
+        } finally {
+            pooled.setLength(0)
+            if (pooled.capacity() <= MAX_POOLED_CAPACITY) builders.set(pooled)
+        }
     }
 
-    private fun <T : Any> T.processField(
-        field: KProperty1<out T, *>,
-        indent: String,
-        builder: StringBuilder,
-        currentDepth: Int,
+    private fun Any.appendFields(
         maxRecursionDepth: Int,
+        currentDepth: Int,
+        indent: String,
         visitedObjects: MutableSet<Any>,
+        builder: StringBuilder,
         remap: Boolean,
+        simple: Boolean,
     ) {
-        if (skipFields.any { it.isInstance(field) }) return
+        val plan = plans.get(javaClass)
 
-        try {
-            field.javaField?.isAccessible = true
-        } catch (_: InaccessibleObjectException) {
+        if (!visitedObjects.add(this)) {
+            builder.append(indent).append(plan.name(remap, simple)).appendLine(" (Circular Reference)")
             return
         }
 
-        val fieldValue = field.javaField?.get(this)
+        builder.append(indent).appendLine(plan.name(remap, simple))
+
         val fieldIndent = "$indent${" ".repeat(INDENT)}"
-        builder.appendLine("$fieldIndent${field.dynamicName(remap)}: ${fieldValue.formatFieldValue(remap)}")
-
-        if (currentDepth < maxRecursionDepth
-            && fieldValue != null
-            && !field.returnType.jvmErasure.java.isPrimitive
-            && !field.returnType.jvmErasure.java.isArray
-            && !field.returnType.jvmErasure.java.isEnum
-            && skipables.none { it.isInstance(field.returnType.jvmErasure) }
-        ) {
-            fieldValue.dynamicString(
-                maxRecursionDepth,
-                currentDepth + 1,
-                "$fieldIndent${" ".repeat(INDENT)}",
-                visitedObjects,
-                builder,
-                remap
-            )
+        plan.fields.forEach { field ->
+            val fieldValue = field.get(this)
+            builder.append(fieldIndent).append(field.name(remap)).append(": ")
+            fieldValue.formatFieldValue(remap, builder)
+            builder.appendLine()
+
+            if (currentDepth < maxRecursionDepth && fieldValue != null && field.recurse) {
+                fieldValue.appendFields(
+                    maxRecursionDepth,
+                    currentDepth + 1,
+                    "$fieldIndent${" ".repeat(INDENT)}",
+                    visitedObjects,
+                    builder,
+                    remap,
+                    true
+                )
+            }
         }
     }
 
-    private fun Any?.formatFieldValue(remap: Boolean): String =
+    private fun Any?.formatFieldValue(remap: Boolean, builder: StringBuilder) {
         when (this) {
-            is String -> "\"${this}\""
-            is Collection<*> -> "[${joinToString(", ") { it.formatFieldValue(remap) }}]"
-            is Array<*> -> "[${joinToString(", ") { it.formatFieldValue(remap) }}]"
-            is Map<*, *> -> "{${
-                entries.joinToString(", ") { (k, v) ->
-                    "${k.formatFieldValue(remap)}: ${v.formatFieldValue(remap)}"
+            is String -> builder.append('"').append(this).append('"')
+            is Collection<*> -> formatAll(this, remap, builder)
+            is Array<*> -> formatAll(asList(), remap, builder)
+            is Map<*, *> -> {
+                builder.append('{')
+                entries.forEachIndexed { i, (k, v) ->
+                    if (i > 0) builder.append(", ")
+                    k.formatFieldValue(remap, builder)
+                    builder.append(": ")
+                    v.formatFieldValue(remap, builder)
                 }
-            }}"
+                builder.append('}')
+            }
 
-            is Text -> string
-            is Identifier -> "$namespace:$path"
-            is NbtCompound -> asString().getOrDefault("")
-            is RegistryEntry<*> -> "${value()}"
-            null -> "null"
+            is Text -> builder.append(string)
+            is Identifier -> builder.append(namespace).append(':').append(path)
+            is NbtCompound -> builder.append(asString().getOrDefault(""))
+            is RegistryEntry<*> -> builder.append(value())
+            null -> builder.append("null")
             else -> {
-                if (this::class.qualifiedName?.contains("minecraft") == true) "${this::class.dynamicName(remap)}@${Integer.toHexString(hashCode())}"
-                else this.toString()
+                val plan = plans.get(javaClass)
+                if (plan.isMinecraft) builder.append(plan.name(remap, true)).append('@').append(Integer.toHexString(hashCode()))
+                else builder.append(this)
             }
         }
+    }
+
+    private fun formatAll(values: Collection<*>, remap: Boolean, builder: StringBuilder) {
+        builder.append('[')
+        values.forEachIndexed { i, value ->
+            if (i > 0) builder.append(", ")
+            value.formatFieldValue(remap, builder)
+        }
+        builder.append(']')
+    }
+
+    private val builders = ThreadLocal.withInitial { StringBuilder(1024) }
+    private const val MAX_POOLED_CAPACITY = 1 shl 20
+
+    private val plans = object : ClassValue<ClassPlan>() {
+        override fun computeValue(type: Class<*>) = ClassPlan(type)
+    }
+
+    /**
+     * The names and readable instance fields of a class, resolved on first use.
+     */
+    private class ClassPlan(type: Class<*>) {
+        private val simpleName = type.kotlin.simpleName
+        private val qualifiedName = type.kotlin.qualifiedName
+        private val remappedSimpleName = qualifiedName?.simpleRemappedName
+        private val remappedQualifiedName = qualifiedName?.remappedName
+
+        val isMinecraft = qualifiedName?.contains("minecraft") == true
+
+        val fields = generateSequence(type) { it.superclass }
+            .flatMap { it.declaredFields.asSequence() }
+            .filter { !Modifier.isStatic(it.modifiers) }
+            .filter { field -> skipFields.none { it.java.isAssignableFrom(field.type) } }
+            .mapNotNull { FieldPlan.of(it) }
+            .toList()
+            .toTypedArray()
+
+        fun name(remap: Boolean, simple: Boolean) =
+            if (remap) if (simple) remappedSimpleName else remappedQualifiedName
+            else if (simple) simpleName else qualifiedName
+    }
+
+    /**
+     * A field with a cached getter and the decision whether its value is serialized recursively.
+     */
+    private class FieldPlan(field: Field, private val getter: MethodHandle) {
+        private val name = field.name
+        private val remappedName = field.name.simpleRemappedName
+
+        val recurse = !field.type.isPrimitive
+                && !field.type.isArray
+                && !field.type.isEnum
+                && skipables.none { it.java.isAssignableFrom(field.type) }
+
+        fun name(remap: Boolean) = if (remap) remappedName else name
+
+        fun get(instance: Any): Any? = getter.invokeExact(instance) as Any?
+
+        companion object {
+            private val lookup = MethodHandles.lookup()
+
+            fun of(field: Field): FieldPlan? {
+                if (!field.trySetAccessible()) return null
+
+                val getter = runCatching {
+                    lookup.unreflectGetter(field).asType(MethodType.methodType(Any::class.java, Any::class.java))
+                }.getOrNull() ?: return null
+
+                return FieldPlan(field, getter)
+            }
+        }
+    }
 
     override fun load() = "Loaded ${qualifiedMappings.size} deobfuscated qualifier"
 }
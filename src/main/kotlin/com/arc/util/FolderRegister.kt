@@ -21,11 +21,12 @@ object FolderRegister : Loadable {
     val capes: Path = cache.resolve("capes")
     val structure: Path = arc.resolve("structure")
     val maps: Path = arc.resolve("maps")
+    val profiler: Path = arc.resolve("profiler")
 
     val File.relativeMCPath: Path get() = minecraft.relativize(toPath())
 
     override fun load(): String {
-        val folders = listOf(arc, config, packetLogs, replay, cache, capes, structure, maps)
+        val folders = listOf(arc, config, packetLogs, replay, cache, capes, structure, maps, profiler)
         val createdFolders = folders.mapNotNull {
             if (it.notExists()) {
                 it.createDirectories()
@@ -0,0 +1,194 @@
+package com.arc.util.collections
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A thread-safe cache with primitive long keys that holds at most [maxSize] entries,
+ * each for at most [maxAge] milliseconds.
+ *
+ * When the cache is full, the least recently used entry is evicted.
+ * Values are computed outside the lock, so a slow computation never blocks other readers.
+ * Two threads missing the same key at once may both compute it, the last one wins.
+ * A value is only stored if its key was not invalidated while it was computed, as it may be based on stale state.
+ *
+ * Hits, misses and evictions are counted for diagnostics.
+ */
+class LongLruCache<V : Any>(
+    private val maxSize: Int,
+    private val maxAge: Long,
+) {
+    init {
+        require(maxSize > 0) { "Cache size must be positive, got $maxSize" }
+    }
+
+    private val entries = Long2ObjectLinkedOpenHashMap<Entry<V>>(maxSize)
+
+    private val hitCount = AtomicLong()
+    private val missCount = AtomicLong()
+    private val evictionCount = AtomicLong()
+
+    /** Counts the invalidations, stamping when a computation started and when its key was invalidated */
+    private var invalidations = 0L
+
+    /** The amount of running computations per key */
+    private val computing = Long2IntOpenHashMap()
+
+    /** The latest invalidation of each key that is being computed */
+    private val invalidatedAt = Long2LongOpenHashMap().apply { defaultReturnValue(-1) }
+
+    /** The amount of lookups answered from the cache */
+    val hits get() = hitCount.get()
+
+    /** The amount of lookups that had to compute their value */
+    val misses get() = missCount.get()
+
+    /** The amount of entries removed because the cache was full or they expired */
+    val evictions get() = evictionCount.get()
+
+    val size: Int
+        @Synchronized get() = entries.size
+
+    /**
+     * Returns the cached value of [key] or `null` if it is absent or expired.
+     */
+    @Synchronized
+    operator fun get(key: Long): V? {
+        val entry = entries.getAndMoveToLast(key) ?: return null
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key)
+            evictionCount.incrementAndGet()
+            return null
+        }
+        return entry.value
+    }
+
+    @Synchronized
+    operator fun set(key: Long, value: V) {
+        entries.putAndMoveToLast(key, Entry(value, System.currentTimeMillis()))
+        while (entries.size > maxSize) {
+            entries.removeFirst()
+            evictionCount.incrementAndGet()
+        }
+    }
+
+    /**
+     * Returns the cached value of [key], or computes, stores and returns it.
+     * The computed value is returned but not stored if [key] was invalidated during the computation.
+     */
+    inline fun getOrPut(key: Long, compute: () -> V): V {
+        get(key)?.let {
+            recordHit()
+            return it
+        }
+
+        recordMiss()
+        val stamp = startComputing(key)
+        val value = try {
+            compute()
+        } catch (e: Throwable) {
+            finishComputing(key, null, stamp)
+            throw e
+        }
+        finishComputing(key, value, stamp)
+        return value
+    }
+
+    @Synchronized
+    @PublishedApi
+    internal fun startComputing(key: Long): Long {
+        computing.addTo(key, 1)
+        return invalidations
+    }
+
+    /**
+     * Stores the [value] computed since [stamp], unless the computation failed or [key] was invalidated meanwhile.
+     */
+    @Synchronized
+    @PublishedApi
+    internal fun finishComputing(key: Long, value: V?, stamp: Long) {
+        if (value != null && invalidatedAt.get(key) <= stamp) set(key, value)
+
+        if (computing.addTo(key, -1) == 1) {
+            computing.remove(key)
+            invalidatedAt.remove(key)
+        }
+    }
+
+    /**
+     * Marks [key] as invalidated if it is being computed, so the running computations do not store their value.
+     */
+    private fun markInvalidated(key: Long) {
+        if (computing.containsKey(key)) invalidatedAt.put(key, invalidations)
+    }
+
+    /**
+     * Removes the entry of [key].
+     */
+    @Synchronized
+    fun invalidate(key: Long) {
+        invalidations++
+        markInvalidated(key)
+        entries.remove(key)
+    }
+
+    /**
+     * Removes every entry whose key matches the [predicate].
+     */
+    @Synchronized
+    fun invalidateIf(predicate: (Long) -> Boolean) {
+        invalidations++
+        val keys = computing.keys.iterator()
+        while (keys.hasNext()) {
+            val key = keys.nextLong()
+            if (predicate(key)) markInvalidated(key)
+        }
+
+        val iterator = entries.long2ObjectEntrySet().fastIterator()
+        while (iterator.hasNext()) {
+            if (predicate(iterator.next().longKey)) iterator.remove()
+        }
+    }
+
+    @Synchronized
+    fun clear() {
+        invalidations++
+        val keys = computing.keys.iterator()
+        while (keys.hasNext()) markInvalidated(keys.nextLong())
+        entries.clear()
+    }
+
+    /**
+     * Returns a snapshot of all entries that did not expire yet.
+     */
+    @Synchronized
+    fun snapshot(): Map<Long, V> {
+        val now = System.currentTimeMillis()
+        return buildMap(entries.size) {
+            val iterator = entries.long2ObjectEntrySet().fastIterator()
+            while (iterator.hasNext()) {
+                val entry = iterator.next()
+                if (!entry.value.isExpired(now)) put(entry.longKey, entry.value.value)
+            }
+        }
+    }
+
+    @PublishedApi
+    internal fun recordHit() {
+        hitCount.incrementAndGet()
+    }
+
+    @PublishedApi
+    internal fun recordMiss() {
+        missCount.incrementAndGet()
+    }
+
+    private fun Entry<V>.isExpired(now: Long) = now - createdAt > maxAge
+
+    private class Entry<V>(val value: V, val createdAt: Long)
+
+    override fun toString() =
+        "$size/$maxSize entries, $hits hits, $misses misses, $evictions evictions"
+}
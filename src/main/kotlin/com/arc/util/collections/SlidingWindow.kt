@@ -0,0 +1,69 @@
+package com.arc.util.collections
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+
+/**
+ * Admits at most [limit] events per [window] milliseconds, deciding in constant time without locks.
+ *
+ * The admission times of the last [limit] events are kept in a ring buffer of primitive timestamps.
+ * An event is admitted if the oldest of them has left the window, and then takes its slot.
+ * The slot is taken with a compare-and-set on its timestamp, so concurrent callers can never admit more than [limit].
+ * Unlike [LimitedDecayQueue], neither the events nor any expired entries are retained.
+ */
+class SlidingWindow(val limit: Int, val window: Long) {
+    private val windowNanos = window * 1_000_000
+    private val times = AtomicLongArray(limit).apply { for (i in 0 until limit) set(i, EMPTY) }
+    private val head = AtomicLong()
+    private val rejections = AtomicLong()
+
+    /** The amount of events rejected since creation */
+    val rejected get() = rejections.get()
+
+    /**
+     * Admits an event at [now] if fewer than [limit] events were admitted during the last [window].
+     */
+    fun tryAcquire(now: Long = System.nanoTime()): Boolean {
+        while (true) {
+            val position = head.get()
+            val slot = (position % limit).toInt()
+            val oldest = times.get(slot)
+
+            if (oldest != EMPTY && now - oldest < windowNanos) {
+                // Another caller advanced meanwhile, the slot read may not be the oldest anymore
+                if (head.get() != position) continue
+
+                rejections.incrementAndGet()
+                return false
+            }
+
+            // Claiming the slot is the admission, so two callers can never both take it
+            if (times.compareAndSet(slot, oldest, now)) {
+                head.compareAndSet(position, position + 1)
+                return true
+            }
+        }
+    }
+
+    /**
+     * Returns the amount of events admitted during the last [window].
+     * Scans the whole ring, meant for diagnostics rather than admission.
+     */
+    fun count(now: Long = System.nanoTime()): Int {
+        var count = 0
+        for (i in 0 until limit) {
+            val time = times.get(i)
+            if (time != EMPTY && now - time < windowNanos) count++
+        }
+        return count
+    }
+
+    /**
+     * Returns the admitted events per second, averaged over the last [window].
+     */
+    fun rate(now: Long = System.nanoTime()) = count(now) * 1000.0 / window
+
+    private companion object {
+        const val EMPTY = Long.MIN_VALUE
+    }
+}
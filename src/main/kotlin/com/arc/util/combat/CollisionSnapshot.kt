@@ -0,0 +1,63 @@
+package com.arc.util.combat
+
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.util.shape.VoxelShapes
+import net.minecraft.world.BlockView
+
+/**
+ * An immutable copy of the block collision shapes inside a [region] of the world.
+ *
+ * Raycasts against a snapshot give the same result as a collider raycast through the world without fluids,
+ * but can run on any thread while the world keeps changing. Positions outside the region have no collision.
+ *
+ * @param shape Provides the collision shape of a block inside the region, only called in the constructor.
+ */
+class CollisionSnapshot(
+    val region: Box,
+    shape: (BlockPos) -> VoxelShape,
+) {
+    private val minX = MathHelper.floor(region.minX)
+    private val minY = MathHelper.floor(region.minY)
+    private val minZ = MathHelper.floor(region.minZ)
+    private val sizeX = MathHelper.floor(region.maxX) - minX + 1
+    private val sizeY = MathHelper.floor(region.maxY) - minY + 1
+    private val sizeZ = MathHelper.floor(region.maxZ) - minZ + 1
+
+    private val shapes = Array(sizeX * sizeY * sizeZ) { index ->
+        val x = index % sizeX
+        val y = index / sizeX % sizeY
+        val z = index / (sizeX * sizeY)
+        shape(BlockPos(minX + x, minY + y, minZ + z))
+    }
+
+    /**
+     * Returns the collision shape of the block at the given position.
+     */
+    fun shape(x: Int, y: Int, z: Int): VoxelShape {
+        val dx = x - minX
+        val dy = y - minY
+        val dz = z - minZ
+        if (dx !in 0 until sizeX || dy !in 0 until sizeY || dz !in 0 until sizeZ) return VoxelShapes.empty()
+        return shapes[dx + sizeX * (dy + sizeY * dz)]
+    }
+
+    /**
+     * Returns whether a block collision lies between [start] and [end].
+     */
+    fun isObstructed(start: Vec3d, end: Vec3d): Boolean =
+        BlockView.raycast(start, end, this, { snapshot, pos ->
+            if (snapshot.shape(pos.x, pos.y, pos.z).raycast(start, end, pos) != null) true else null
+        }, { false }) == true
+
+    companion object {
+        /**
+         * Copies the collision shapes of the blocks inside the [region].
+         */
+        fun BlockView.collisionSnapshot(region: Box) =
+            CollisionSnapshot(region) { getBlockState(it).getCollisionShape(this, it) }
+    }
+}
@@ -1,18 +1,38 @@
-
 package com.arc.util.combat
 
 import com.arc.context.SafeContext
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.SafeListener.Companion.listen
+import com.arc.util.combat.CollisionSnapshot.Companion.collisionSnapshot
 import com.arc.util.combat.DamageUtils.scale
 import com.arc.util.extension.fullHealth
 import com.arc.util.math.dist
 import com.arc.util.world.fastEntitySearch
+import kotlinx.coroutines.Dispatchers
 import net.minecraft.entity.LivingEntity
 import net.minecraft.entity.decoration.EndCrystalEntity
+import net.minecraft.util.math.Box
 import net.minecraft.util.math.Vec3d
 import net.minecraft.world.explosion.Explosion
 import net.minecraft.world.explosion.ExplosionImpl
+import java.util.concurrent.atomic.AtomicLong
 
 object CombatUtils {
+    private val version = AtomicLong()
+
+    private val exposureCache = Exposure.Cache(MAX_CACHED_EXPOSURES)
+
+    /**
+     * Counts changes to the blocks of the world. Cached exposures are only valid for the version they were calculated in.
+     */
+    val worldVersion get() = version.get()
+
+    init {
+        listen<WorldEvent.BlockUpdate.Client> { version.incrementAndGet() }
+        listen<WorldEvent.ChunkEvent.Load> { version.incrementAndGet() }
+        listen<WorldEvent.Join> { version.incrementAndGet() }
+    }
+
     /**
      * Returns whether there is a deadly end crystal in proximity of the player
      *
@@ -27,9 +47,10 @@ object CombatUtils {
      *
      * @param position The position of the explosion
      * @param entity The entity to calculate the damage for
+     * @param snapshot The collisions to raycast against, the live world if `null`
      */
-    fun SafeContext.crystalDamage(position: Vec3d, entity: LivingEntity) =
-        explosionDamage(position, entity, 6.0)
+    fun SafeContext.crystalDamage(position: Vec3d, entity: LivingEntity, snapshot: CollisionSnapshot? = null) =
+        explosionDamage(position, entity, CRYSTAL_POWER, snapshot)
 
     /**
      * Calculates the damage dealt by an explosion to a living entity
@@ -42,18 +63,82 @@ object CombatUtils {
 
     /**
      * Calculates the damage dealt by an explosion to a living entity.
+     * Entities further away than twice the power are not affected.
      *
      * @param position The position of the explosion
      * @param entity The entity to calculate the damage for
      * @param power The [power of the explosion](https://minecraft.wiki/w/Explosion#Damage)
+     * @param snapshot The collisions to raycast against, the live world if `null`
+     */
+    fun SafeContext.explosionDamage(
+        position: Vec3d,
+        entity: LivingEntity,
+        power: Double,
+        snapshot: CollisionSnapshot? = null,
+    ): Double {
+        if (entity dist position > power * 2) return 0.0
+
+        val box = entity.boundingBox
+        val exposure = exposureCache.getOrCalculate(position, box, worldVersion) {
+            snapshot?.let { Exposure.calculate(position, box, it) }
+                ?: ExplosionImpl.calculateReceivedDamage(position, entity).toDouble()
+        }
+
+        return explosionDamage(position, entity, power, exposure)
+    }
+
+    /**
+     * Applies the damage formula and the armor, effects and difficulty of the [entity] to an [exposure].
+     * Reads the live entity, so it must run on the game thread.
      */
-    fun SafeContext.explosionDamage(position: Vec3d, entity: LivingEntity, power: Double): Double {
+    private fun SafeContext.explosionDamage(position: Vec3d, entity: LivingEntity, power: Double, exposure: Double): Double {
         val distance = entity dist position
 
         val range = power * 2
-        val impact = (1 - distance / range) * ExplosionImpl.calculateReceivedDamage(position, entity)
+        if (distance > range) return 0.0
+
+        val impact = (1 - distance / range) * exposure
         val damage = (impact * impact + impact) / 2.0 * 7.0 * range + 1
 
         return Explosion.createDamageSource(world, null).scale(world, entity, damage)
     }
+
+    /**
+     * Calculates the damage of a crystal exploding at each of the [positions] to each of the [entities].
+     *
+     * The block collisions around the positions and the boxes of the entities are copied on the calling thread.
+     * Only the exposure raycasts against that copy run in parallel on [Dispatchers.Default],
+     * the damage is then scaled on the calling thread, as it reads the armor, attributes and effects of the entities.
+     *
+     * @return For every position, the damage to every entity in the order of [entities]
+     */
+    fun SafeContext.crystalDamages(positions: List<Vec3d>, entities: List<LivingEntity>): List<DoubleArray> {
+        if (positions.isEmpty()) return emptyList()
+
+        var region = Box(positions.first(), positions.first())
+        positions.forEach { region = region.union(Box(it, it)) }
+        entities.forEach { region = region.union(it.boundingBox) }
+
+        val snapshot = world.collisionSnapshot(region)
+        val version = worldVersion
+        val origins = entities.map { it.pos }
+        val boxes = entities.map { it.boundingBox }
+
+        val exposures = Exposure.parallelMap(positions) { position ->
+            DoubleArray(entities.size) { i ->
+                if (origins[i] dist position > CRYSTAL_POWER * 2) 0.0
+                else exposureCache.getOrCalculate(position, boxes[i], version) {
+                    Exposure.calculate(position, boxes[i], snapshot)
+                }
+            }
+        }
+
+        return positions.mapIndexed { index, position ->
+            val exposure = exposures[index]
+            DoubleArray(entities.size) { explosionDamage(position, entities[it], CRYSTAL_POWER, exposure[it]) }
+        }
+    }
+
+    private const val CRYSTAL_POWER = 6.0
+    private const val MAX_CACHED_EXPOSURES = 16384
 }
@@ -0,0 +1,103 @@
+package com.arc.util.combat
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import java.util.concurrent.ConcurrentHashMap
+import kotlin.math.floor
+
+/**
+ * Raycasts how exposed a box is to an explosion, against a [CollisionSnapshot] instead of the live world.
+ *
+ * Nothing in here reads game state, so it is safe to run on any thread.
+ * Damage formulas and scaling, which read armor, attributes and effects of entities, belong to [CombatUtils].
+ */
+object Exposure {
+    private val PARALLELISM = Runtime.getRuntime().availableProcessors()
+    private const val MIN_CHUNK_SIZE = 16
+
+    /**
+     * Returns the fraction of sample points of the [box] which the explosion at [position] can reach,
+     * matching `ExplosionImpl.calculateReceivedDamage`.
+     */
+    fun calculate(position: Vec3d, box: Box, snapshot: CollisionSnapshot): Double {
+        val stepX = 1.0 / ((box.maxX - box.minX) * 2.0 + 1.0)
+        val stepY = 1.0 / ((box.maxY - box.minY) * 2.0 + 1.0)
+        val stepZ = 1.0 / ((box.maxZ - box.minZ) * 2.0 + 1.0)
+        if (stepX < 0.0 || stepY < 0.0 || stepZ < 0.0) return 0.0
+
+        val offsetX = (1.0 - floor(1.0 / stepX) * stepX) / 2.0
+        val offsetZ = (1.0 - floor(1.0 / stepZ) * stepZ) / 2.0
+
+        var reached = 0
+        var total = 0
+
+        var x = 0.0
+        while (x <= 1.0) {
+            var y = 0.0
+            while (y <= 1.0) {
+                var z = 0.0
+                while (z <= 1.0) {
+                    val sample = Vec3d(
+                        MathHelper.lerp(x, box.minX, box.maxX) + offsetX,
+                        MathHelper.lerp(y, box.minY, box.maxY),
+                        MathHelper.lerp(z, box.minZ, box.maxZ) + offsetZ,
+                    )
+                    if (!snapshot.isObstructed(sample, position)) reached++
+                    total++
+                    z += stepZ
+                }
+                y += stepY
+            }
+            x += stepX
+        }
+
+        return reached.toDouble() / total
+    }
+
+    /**
+     * Maps the [items] in parallel on [Dispatchers.Default], keeping their order.
+     * The [transform] must not touch game state.
+     */
+    fun <T, R> parallelMap(items: List<T>, transform: (T) -> R): List<R> {
+        val chunkSize = (items.size / PARALLELISM + 1).coerceAtLeast(MIN_CHUNK_SIZE)
+        if (items.size <= chunkSize) return items.map(transform)
+
+        return runBlocking(Dispatchers.Default) {
+            items.chunked(chunkSize)
+                .map { chunk -> async { chunk.map(transform) } }
+                .awaitAll()
+                .flatten()
+        }
+    }
+
+    /**
+     * Caches exposures per explosion position and box for as long as the version of the blocks does not change.
+     * Thread-safe, a version change or reaching [maxSize] drops every entry.
+     */
+    class Cache(private val maxSize: Int) {
+        private val exposures = ConcurrentHashMap<Key, Double>()
+
+        @Volatile
+        private var version = Long.MIN_VALUE
+
+        /**
+         * Returns the exposure cached for [position] and [box] in [currentVersion], or calculates and caches it.
+         */
+        fun getOrCalculate(position: Vec3d, box: Box, currentVersion: Long, calculate: () -> Double): Double {
+            if (version != currentVersion || exposures.size > maxSize) {
+                exposures.clear()
+                version = currentVersion
+            }
+
+            val key = Key(position, box)
+            return exposures[key] ?: calculate().also { exposures[key] = it }
+        }
+
+        private data class Key(val position: Vec3d, val box: Box)
+    }
+}
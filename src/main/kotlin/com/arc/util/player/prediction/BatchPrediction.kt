@@ -0,0 +1,355 @@
+package com.arc.util.player.prediction
+
+import com.arc.context.SafeContext
+import com.arc.util.player.prediction.MovementArea.Companion.movementArea
+import net.minecraft.entity.LivingEntity
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.math.Vec3d
+import kotlin.math.abs
+import kotlin.math.max
+import kotlin.math.min
+import kotlin.math.sqrt
+
+/**
+ * Predicts the movement of many entities over many ticks at once.
+ *
+ * Unlike [PredictionEntity], which replays the inputs of the local player through `Vec3d` arithmetic,
+ * the state of every entity lives in primitive arrays and collisions are resolved against a [MovementArea].
+ * A simulation does not allocate, so an instance can be refilled and simulated every tick.
+ *
+ * The inputs of other entities are unknown, so each entity is assumed to keep accelerating the way
+ * it moved in its last tick. Jumping, liquids, climbing and elytra flight are not simulated.
+ *
+ * ```kotlin
+ * private val prediction = BatchPrediction()
+ *
+ * prediction.clear()
+ * targets.forEach { prediction.add(it) }
+ * prediction.simulate(world.movementArea(prediction.region(20)), 20)
+ *
+ * val position = prediction.position(0, 20)
+ * ```
+ */
+class BatchPrediction(initialCapacity: Int = 8) {
+    /** The amount of entities in the batch */
+    var size = 0
+        private set
+
+    /** The amount of ticks of the last simulation */
+    var ticks = 0
+        private set
+
+    private var capacity = initialCapacity
+
+    private var x = DoubleArray(capacity)
+    private var y = DoubleArray(capacity)
+    private var z = DoubleArray(capacity)
+    private var velocityX = DoubleArray(capacity)
+    private var velocityY = DoubleArray(capacity)
+    private var velocityZ = DoubleArray(capacity)
+    private var inputX = DoubleArray(capacity)
+    private var inputZ = DoubleArray(capacity)
+    private var halfWidth = DoubleArray(capacity)
+    private var height = DoubleArray(capacity)
+    private var stepHeight = DoubleArray(capacity)
+    private var gravity = DoubleArray(capacity)
+    private var onGround = BooleanArray(capacity)
+
+    /** The positions of every entity for every tick, `[entity][tick][x, y, z]` */
+    private var trajectory = DoubleArray(0)
+
+    /**
+     * Adds an entity to the batch, estimating its input from the movement of its last tick.
+     *
+     * @return The index of the entity in the batch
+     */
+    fun add(entity: LivingEntity): Int {
+        val movedX = entity.x - entity.lastX
+        val movedY = entity.y - entity.lastY
+        val movedZ = entity.z - entity.lastZ
+        val grounded = entity.isOnGround
+        val gravity = entity.finalGravity
+
+        return add(
+            entity.x, entity.y, entity.z,
+            movedX, (if (grounded) -gravity else movedY - gravity) * VERTICAL_DRAG, movedZ,
+            entity.width.toDouble(), entity.height.toDouble(),
+            grounded, entity.stepHeight.toDouble(), gravity,
+        )
+    }
+
+    /**
+     * Adds an entity to the batch.
+     *
+     * The horizontal input is estimated by assuming the entity moved by [movedX] and [movedZ]
+     * in a steady state, where its acceleration makes up for the friction.
+     *
+     * @param velocityY The vertical velocity at the start of the next tick, gravity already applied
+     *
+     * @return The index of the entity in the batch
+     */
+    fun add(
+        x: Double, y: Double, z: Double,
+        movedX: Double, velocityY: Double, movedZ: Double,
+        width: Double, height: Double,
+        onGround: Boolean,
+        stepHeight: Double = 0.6,
+        gravity: Double = 0.08,
+    ): Int {
+        if (size == capacity) grow()
+        val index = size++
+
+        val friction = if (onGround) GROUND_FRICTION * MovementArea.DEFAULT_SLIPPERINESS else AIR_FRICTION
+        val acceleration = if (onGround) 1.0 else AIR_ACCELERATION
+
+        this.x[index] = x
+        this.y[index] = y
+        this.z[index] = z
+        this.velocityX[index] = movedX * friction
+        this.velocityY[index] = velocityY
+        this.velocityZ[index] = movedZ * friction
+        this.inputX[index] = movedX * (1 - friction) / acceleration
+        this.inputZ[index] = movedZ * (1 - friction) / acceleration
+        this.halfWidth[index] = width / 2
+        this.height[index] = height
+        this.stepHeight[index] = stepHeight
+        this.gravity[index] = gravity
+        this.onGround[index] = onGround
+
+        return index
+    }
+
+    /**
+     * Removes every entity from the batch, keeping the allocated arrays.
+     */
+    fun clear() {
+        size = 0
+        ticks = 0
+    }
+
+    /**
+     * Returns the box every entity of the batch can reach within [ticks], for building a [MovementArea].
+     */
+    fun region(ticks: Int): Box {
+        var minX = Double.MAX_VALUE
+        var minY = Double.MAX_VALUE
+        var minZ = Double.MAX_VALUE
+        var maxX = -Double.MAX_VALUE
+        var maxY = -Double.MAX_VALUE
+        var maxZ = -Double.MAX_VALUE
+
+        for (i in 0 until size) {
+            val speed = sqrt(velocityX[i] * velocityX[i] + velocityZ[i] * velocityZ[i])
+            val horizontal = min(MAX_REACH, (speed + MIN_SPEED) * ticks) + halfWidth[i]
+            val fall = min(MAX_REACH, gravity[i] * ticks * ticks / 2 + abs(velocityY[i]) * ticks)
+
+            minX = min(minX, x[i] - horizontal)
+            minY = min(minY, y[i] - fall - 1)
+            minZ = min(minZ, z[i] - horizontal)
+            maxX = max(maxX, x[i] + horizontal)
+            maxY = max(maxY, y[i] + height[i] + stepHeight[i] + max(0.0, velocityY[i]) * ticks)
+            maxZ = max(maxZ, z[i] + horizontal)
+        }
+
+        return if (size == 0) Box(0.0, 0.0, 0.0, 0.0, 0.0, 0.0) else Box(minX, minY, minZ, maxX, maxY, maxZ)
+    }
+
+    /**
+     * Simulates every entity of the batch for [ticks] ticks.
+     * The positions of every tick are available through [x], [y], [z] and [position] afterward.
+     */
+    fun simulate(area: MovementArea, ticks: Int) {
+        this.ticks = ticks
+
+        val required = size * (ticks + 1) * 3
+        if (trajectory.size < required) trajectory = DoubleArray(required)
+
+        for (i in 0 until size) {
+            record(i, 0)
+
+            for (tick in 1..ticks) {
+                tick(i, area)
+                record(i, tick)
+            }
+        }
+    }
+
+    fun x(index: Int, tick: Int) = trajectory[offset(index, tick)]
+    fun y(index: Int, tick: Int) = trajectory[offset(index, tick) + 1]
+    fun z(index: Int, tick: Int) = trajectory[offset(index, tick) + 2]
+
+    /**
+     * Returns the predicted position of the entity at [index] after [tick] ticks.
+     */
+    fun position(index: Int, tick: Int) = Vec3d(x(index, tick), y(index, tick), z(index, tick))
+
+    /**
+     * Returns the predicted bounding box of the entity at [index] after [tick] ticks.
+     */
+    fun boundingBox(index: Int, tick: Int): Box {
+        val x = x(index, tick)
+        val y = y(index, tick)
+        val z = z(index, tick)
+        return Box(x - halfWidth[index], y, z - halfWidth[index], x + halfWidth[index], y + height[index], z + halfWidth[index])
+    }
+
+    private fun offset(index: Int, tick: Int): Int {
+        require(index in 0 until size && tick in 0..ticks) { "No prediction for entity $index at tick $tick" }
+        return (index * (ticks + 1) + tick) * 3
+    }
+
+    private fun record(index: Int, tick: Int) {
+        val offset = (index * (ticks + 1) + tick) * 3
+        trajectory[offset] = x[index]
+        trajectory[offset + 1] = y[index]
+        trajectory[offset + 2] = z[index]
+    }
+
+    /** @see net.minecraft.entity.LivingEntity.travel */
+    private fun tick(i: Int, area: MovementArea) {
+        if (abs(velocityX[i]) < MIN_VELOCITY) velocityX[i] = 0.0
+        if (abs(velocityY[i]) < MIN_VELOCITY) velocityY[i] = 0.0
+        if (abs(velocityZ[i]) < MIN_VELOCITY) velocityZ[i] = 0.0
+
+        val slipperiness = if (onGround[i]) {
+            area.slipperiness(
+                MathHelper.floor(x[i]),
+                MathHelper.floor(y[i] - VELOCITY_AFFECTING_OFFSET),
+                MathHelper.floor(z[i]),
+            ).toDouble()
+        } else 1.0
+
+        /** @see net.minecraft.entity.LivingEntity.getMovementSpeed */
+        val acceleration = if (onGround[i]) DEFAULT_SLIPPERINESS_CUBED / (slipperiness * slipperiness * slipperiness) else AIR_ACCELERATION
+        velocityX[i] += inputX[i] * acceleration
+        velocityZ[i] += inputZ[i] * acceleration
+
+        move(i, area)
+
+        val friction = if (onGround[i]) GROUND_FRICTION * slipperiness else AIR_FRICTION
+        velocityX[i] *= friction
+        velocityY[i] = (velocityY[i] - gravity[i]) * VERTICAL_DRAG
+        velocityZ[i] *= friction
+    }
+
+    /** @see net.minecraft.entity.Entity.move */
+    private fun move(i: Int, area: MovementArea) {
+        val dx = velocityX[i]
+        val dy = velocityY[i]
+        val dz = velocityZ[i]
+
+        val minX = x[i] - halfWidth[i]
+        val minY = y[i]
+        val minZ = z[i] - halfWidth[i]
+        val maxX = x[i] + halfWidth[i]
+        val maxY = y[i] + height[i]
+        val maxZ = z[i] + halfWidth[i]
+
+        // Vertical first, then the larger horizontal axis, see Entity.adjustMovementForCollisions
+        var moveY = area.clip(1, dy, minX, minY, minZ, maxX, maxY, maxZ)
+        collideHorizontal(area, dx, dz, minX, minY + moveY, minZ, maxX, maxY + moveY, maxZ)
+        var moveX = resultX
+        var moveZ = resultZ
+
+        val landed = dy != moveY && dy < 0
+        val blocked = moveX != dx || moveZ != dz
+
+        if (blocked && (onGround[i] || landed) && stepHeight[i] > 0) {
+            val step = area.clip(1, stepHeight[i], minX, minY, minZ, maxX, maxY, maxZ)
+            collideHorizontal(area, dx, dz, minX, minY + step, minZ, maxX, maxY + step, maxZ)
+            val stepX = resultX
+            val stepZ = resultZ
+
+            if (stepX * stepX + stepZ * stepZ > moveX * moveX + moveZ * moveZ) {
+                val down = area.clip(
+                    1, dy - step,
+                    minX + stepX, minY + step, minZ + stepZ,
+                    maxX + stepX, maxY + step, maxZ + stepZ,
+                )
+                moveX = stepX
+                moveY = step + down
+                moveZ = stepZ
+            }
+        }
+
+        x[i] += moveX
+        y[i] += moveY
+        z[i] += moveZ
+
+        val verticalCollision = !MathHelper.approximatelyEquals(moveY, dy)
+        onGround[i] = verticalCollision && dy < 0
+
+        if (!MathHelper.approximatelyEquals(moveX, dx)) velocityX[i] = 0.0
+        if (verticalCollision) velocityY[i] = 0.0
+        if (!MathHelper.approximatelyEquals(moveZ, dz)) velocityZ[i] = 0.0
+    }
+
+    // Results of collideHorizontal, kept in fields to avoid allocating a pair
+    private var resultX = 0.0
+    private var resultZ = 0.0
+
+    private fun collideHorizontal(
+        area: MovementArea, dx: Double, dz: Double,
+        minX: Double, minY: Double, minZ: Double,
+        maxX: Double, maxY: Double, maxZ: Double,
+    ) {
+        if (abs(dx) < abs(dz)) {
+            resultZ = area.clip(2, dz, minX, minY, minZ, maxX, maxY, maxZ)
+            resultX = area.clip(0, dx, minX, minY, minZ + resultZ, maxX, maxY, maxZ + resultZ)
+        } else {
+            resultX = area.clip(0, dx, minX, minY, minZ, maxX, maxY, maxZ)
+            resultZ = area.clip(2, dz, minX + resultX, minY, minZ, maxX + resultX, maxY, maxZ)
+        }
+    }
+
+    private fun grow() {
+        capacity *= 2
+        x = x.copyOf(capacity)
+        y = y.copyOf(capacity)
+        z = z.copyOf(capacity)
+        velocityX = velocityX.copyOf(capacity)
+        velocityY = velocityY.copyOf(capacity)
+        velocityZ = velocityZ.copyOf(capacity)
+        inputX = inputX.copyOf(capacity)
+        inputZ = inputZ.copyOf(capacity)
+        halfWidth = halfWidth.copyOf(capacity)
+        height = height.copyOf(capacity)
+        stepHeight = stepHeight.copyOf(capacity)
+        gravity = gravity.copyOf(capacity)
+        onGround = onGround.copyOf(capacity)
+    }
+
+    companion object {
+        private const val GROUND_FRICTION = 0.91
+        private const val AIR_FRICTION = 0.91
+        private const val VERTICAL_DRAG = 0.98
+        private const val MIN_VELOCITY = 0.003
+        private const val VELOCITY_AFFECTING_OFFSET = 0.5000001
+
+        /** Air control relative to ground control, a sprinting player accelerates with 0.026 in air and 0.13 on ground */
+        private const val AIR_ACCELERATION = 0.2
+
+        private const val DEFAULT_SLIPPERINESS_CUBED = 0.6 * 0.6 * 0.6
+
+        /** Entities are assumed to reach at least this far per tick, so that standing entities still get an area */
+        private const val MIN_SPEED = 0.3
+        private const val MAX_REACH = 24.0
+
+        /**
+         * Predicts the positions of the [entities] for the next [ticks] ticks in one batch.
+         *
+         * @param into A batch to reuse
+         */
+        fun SafeContext.predictMovement(
+            entities: List<LivingEntity>,
+            ticks: Int,
+            into: BatchPrediction = BatchPrediction(entities.size.coerceAtLeast(1)),
+        ): BatchPrediction {
+            into.clear()
+            entities.forEach { into.add(it) }
+            into.simulate(world.movementArea(into.region(ticks)), ticks)
+            return into
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.arc.util.player.prediction
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.MathHelper
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.world.World
+
+/**
+ * The block collision boxes and slipperiness inside a [region], flattened into primitive arrays.
+ *
+ * Built once per prediction, so that simulating many entities over many ticks never touches the world
+ * or allocates. Positions outside the region have no collision and the default slipperiness.
+ *
+ * @param shape Provides the collision shape of a block inside the region, only called in the constructor.
+ * @param slipperiness Provides the slipperiness of a block inside the region, only called in the constructor.
+ */
+class MovementArea(
+    val region: Box,
+    shape: (BlockPos) -> VoxelShape,
+    slipperiness: (BlockPos) -> Float,
+) {
+    private val minX = MathHelper.floor(region.minX)
+    private val minY = MathHelper.floor(region.minY)
+    private val minZ = MathHelper.floor(region.minZ)
+    private val sizeX = MathHelper.floor(region.maxX) - minX + 1
+    private val sizeY = MathHelper.floor(region.maxY) - minY + 1
+    private val sizeZ = MathHelper.floor(region.maxZ) - minZ + 1
+
+    private val slip = FloatArray(sizeX * sizeY * sizeZ)
+
+    /** The boxes of cell `i` are `boxStart[i] until boxStart[i + 1]`, each box is 6 values in [boxes] */
+    private val boxStart = IntArray(sizeX * sizeY * sizeZ + 1)
+    private val boxes: DoubleArray
+
+    init {
+        val collected = DoubleArrayList()
+        val pos = BlockPos.Mutable()
+
+        for (index in slip.indices) {
+            pos.set(minX + index % sizeX, minY + index / sizeX % sizeY, minZ + index / (sizeX * sizeY))
+            slip[index] = slipperiness(pos)
+
+            boxStart[index] = collected.size / 6
+            shape(pos).forEachBox { x1, y1, z1, x2, y2, z2 ->
+                collected.add(x1 + pos.x); collected.add(y1 + pos.y); collected.add(z1 + pos.z)
+                collected.add(x2 + pos.x); collected.add(y2 + pos.y); collected.add(z2 + pos.z)
+            }
+        }
+
+        boxStart[slip.size] = collected.size / 6
+        boxes = collected.toDoubleArray()
+    }
+
+    /** The amount of collision boxes in the area */
+    val boxCount get() = boxes.size / 6
+
+    /**
+     * Returns the slipperiness of the block at the given position.
+     */
+    fun slipperiness(x: Int, y: Int, z: Int): Float {
+        val cell = cell(x, y, z)
+        return if (cell < 0) DEFAULT_SLIPPERINESS else slip[cell]
+    }
+
+    /**
+     * Clips the movement [delta] of the box along [axis] against every collision box in the way,
+     * like `VoxelShapes.calculateMaxOffset`.
+     *
+     * @param axis 0 for x, 1 for y and 2 for z
+     */
+    fun clip(
+        axis: Int, delta: Double,
+        minX: Double, minY: Double, minZ: Double,
+        maxX: Double, maxY: Double, maxZ: Double,
+    ): Double {
+        if (delta == 0.0) return 0.0
+
+        val sweepMinX = if (axis == 0 && delta < 0) minX + delta else minX
+        val sweepMaxX = if (axis == 0 && delta > 0) maxX + delta else maxX
+        val sweepMinY = if (axis == 1 && delta < 0) minY + delta else minY
+        val sweepMaxY = if (axis == 1 && delta > 0) maxY + delta else maxY
+        val sweepMinZ = if (axis == 2 && delta < 0) minZ + delta else minZ
+        val sweepMaxZ = if (axis == 2 && delta > 0) maxZ + delta else maxZ
+
+        val fromX = MathHelper.floor(sweepMinX - EPSILON)
+        val toX = MathHelper.floor(sweepMaxX + EPSILON)
+        // Shapes like fences reach into the block above them
+        val fromY = MathHelper.floor(sweepMinY - EPSILON) - 1
+        val toY = MathHelper.floor(sweepMaxY + EPSILON)
+        val fromZ = MathHelper.floor(sweepMinZ - EPSILON)
+        val toZ = MathHelper.floor(sweepMaxZ + EPSILON)
+
+        var result = delta
+        for (y in fromY..toY) for (z in fromZ..toZ) for (x in fromX..toX) {
+            val cell = cell(x, y, z)
+            if (cell < 0) continue
+
+            for (box in boxStart[cell] until boxStart[cell + 1]) {
+                val offset = box * 6
+                val boxMinX = boxes[offset]
+                val boxMinY = boxes[offset + 1]
+                val boxMinZ = boxes[offset + 2]
+                val boxMaxX = boxes[offset + 3]
+                val boxMaxY = boxes[offset + 4]
+                val boxMaxZ = boxes[offset + 5]
+
+                val overlapsX = boxMaxX - EPSILON > minX && boxMinX + EPSILON < maxX
+                val overlapsY = boxMaxY - EPSILON > minY && boxMinY + EPSILON < maxY
+                val overlapsZ = boxMaxZ - EPSILON > minZ && boxMinZ + EPSILON < maxZ
+
+                result = when (axis) {
+                    0 -> if (overlapsY && overlapsZ) clipAxis(result, minX, maxX, boxMinX, boxMaxX) else result
+                    1 -> if (overlapsX && overlapsZ) clipAxis(result, minY, maxY, boxMinY, boxMaxY) else result
+                    else -> if (overlapsX && overlapsY) clipAxis(result, minZ, maxZ, boxMinZ, boxMaxZ) else result
+                }
+            }
+        }
+
+        return result
+    }
+
+    private fun clipAxis(delta: Double, min: Double, max: Double, boxMin: Double, boxMax: Double) = when {
+        delta > 0 && boxMin >= max - EPSILON -> minOf(delta, boxMin - max)
+        delta < 0 && boxMax <= min + EPSILON -> maxOf(delta, boxMax - min)
+        else -> delta
+    }
+
+    private fun cell(x: Int, y: Int, z: Int): Int {
+        val dx = x - minX
+        val dy = y - minY
+        val dz = z - minZ
+        if (dx !in 0 until sizeX || dy !in 0 until sizeY || dz !in 0 until sizeZ) return -1
+        return dx + sizeX * (dy + sizeY * dz)
+    }
+
+    companion object {
+        const val DEFAULT_SLIPPERINESS = 0.6f
+        private const val EPSILON = 1.0E-7
+
+        /**
+         * Copies the collision boxes and slipperiness of the blocks inside the [region].
+         */
+        fun World.movementArea(region: Box) = MovementArea(
+            region,
+            { getBlockState(it).getCollisionShape(this, it) },
+            { getBlockState(it).block.slipperiness },
+        )
+    }
+}
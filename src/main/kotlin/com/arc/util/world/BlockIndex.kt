@@ -0,0 +1,203 @@
+package com.arc.util.world
+
+import com.arc.core.Loadable
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.SafeListener.Companion.listen
+import com.arc.threading.runSafe
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
+import net.minecraft.block.Block
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkPos
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.world.chunk.WorldChunk
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicReferenceArray
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+import kotlin.math.ceil
+
+/**
+ * Keeps the positions of registered block types in the loaded chunks.
+ *
+ * Loaded chunks are scanned once through their section palettes with [BlockSearch],
+ * block updates add and remove single positions and unloaded chunks are dropped.
+ * Queries then cost time proportional to the amount of matching blocks instead of the volume around them.
+ *
+ * Tracking costs memory and scan time for every loaded chunk, so interests should only be held while needed:
+ * ```kotlin
+ * onEnableUnsafe { bases = BlockIndex.track(Blocks.OBSIDIAN, Blocks.BEDROCK) }
+ * onDisableUnsafe { bases?.let { BlockIndex.untrack(it) } }
+ *
+ * bases?.forEachInRange(player.blockPos, 6.0) { pos -> ... }
+ * ```
+ */
+object BlockIndex : Loadable {
+    private val interests = CopyOnWriteArrayList<Interest>()
+
+    override fun load() = "Loaded Block Index"
+
+    init {
+        listen<WorldEvent.ChunkEvent.Load> { event ->
+            interests.forEach { it.index(event.chunk) }
+        }
+
+        listen<WorldEvent.ChunkEvent.Unload> { event ->
+            interests.forEach { it.drop(event.chunk.pos.toLong()) }
+        }
+
+        listen<WorldEvent.BlockUpdate.Client> { event ->
+            if (event.oldState.block === event.newState.block) return@listen
+            interests.forEach { it.update(event.pos, event.oldState.block, event.newState.block) }
+        }
+
+        listen<WorldEvent.Join> {
+            interests.forEach { it.clear() }
+        }
+    }
+
+    /**
+     * Starts tracking the positions of the given [blocks].
+     * An interest in the same set of blocks is shared between its users, every call must be paired with an [untrack].
+     */
+    @Synchronized
+    fun track(vararg blocks: Block): Interest {
+        val set = blocks.toSet()
+        interests.firstOrNull { it.blocks == set }?.let { interest ->
+            interest.users++
+            return interest
+        }
+
+        return Interest(set).also { interest ->
+            interest.users++
+            interests.add(interest)
+            runSafe { interest.indexLoaded(world.chunkManager.chunks.chunks) }
+        }
+    }
+
+    /**
+     * Releases one use of the [interest]. Once its last user released it, it stops being tracked and its positions are discarded.
+     */
+    @Synchronized
+    fun untrack(interest: Interest) {
+        if (interest.users == 0 || --interest.users > 0) return
+
+        interests.remove(interest)
+        interest.clear()
+    }
+
+    /**
+     * The positions of a set of tracked [blocks], as [FastVector]s grouped by block type and chunk.
+     *
+     * Reads are guarded by a read-write lock, so an interest can be queried from worker threads.
+     */
+    class Interest internal constructor(val blocks: Set<Block>) {
+        private val lock = ReentrantReadWriteLock()
+
+        /** The amount of [track] calls not yet released by [untrack], guarded by [BlockIndex] */
+        internal var users = 0
+        private val positions = Reference2ObjectOpenHashMap<Block, Long2ObjectOpenHashMap<LongOpenHashSet>>()
+
+        /**
+         * The amount of tracked positions
+         */
+        val size: Int
+            get() = lock.read {
+                var count = 0
+                positions.values.forEach { chunks -> chunks.values.forEach { count += it.size } }
+                count
+            }
+
+        /**
+         * Returns whether a tracked block is at [pos].
+         */
+        operator fun contains(pos: BlockPos): Boolean = lock.read {
+            val chunk = ChunkPos.toLong(pos.x shr 4, pos.z shr 4)
+            val vector = pos.toFastVec()
+            positions.values.any { it.get(chunk)?.contains(vector) == true }
+        }
+
+        /**
+         * Visits every tracked position, of any of the [blocks] or only of [block].
+         */
+        fun forEach(block: Block? = null, action: (BlockPos) -> Unit) = lock.read {
+            types(block).forEach { chunks ->
+                chunks.values.forEach { set -> set.visit(action) }
+            }
+        }
+
+        /**
+         * Visits every tracked position within [range] of [center], of any of the [blocks] or only of [block].
+         * Only the chunks overlapping the range are visited.
+         */
+        fun forEachInRange(center: BlockPos, range: Double, block: Block? = null, action: (BlockPos) -> Unit) {
+            val chunkRange = ceil(range / 16).toInt()
+            val chunkX = center.x shr 4
+            val chunkZ = center.z shr 4
+            val rangeSq = range * range
+
+            lock.read {
+                types(block).forEach { chunks ->
+                    for (x in chunkX - chunkRange..chunkX + chunkRange) for (z in chunkZ - chunkRange..chunkZ + chunkRange) {
+                        val set = chunks.get(ChunkPos.toLong(x, z)) ?: continue
+                        set.visit { pos -> if (pos.getSquaredDistance(center) <= rangeSq) action(pos) }
+                    }
+                }
+            }
+        }
+
+        private fun types(block: Block?) =
+            if (block == null) positions.values else listOfNotNull(positions.get(block))
+
+        private inline fun LongOpenHashSet.visit(action: (BlockPos) -> Unit) {
+            val iterator = iterator()
+            while (iterator.hasNext()) action(iterator.nextLong().toBlockPos())
+        }
+
+        internal fun index(chunk: WorldChunk) = lock.write {
+            val key = chunk.pos.toLong()
+            positions.values.forEach { it.remove(key) }
+
+            chunk.sectionArray.forEachIndexed { index, section ->
+                val bottomY = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(index))
+                val bounds = BlockBox(chunk.pos.startX, bottomY, chunk.pos.startZ, chunk.pos.endX, bottomY + 15, chunk.pos.endZ)
+
+                BlockSearch.searchSection(section, bounds, bounds, { it.block in blocks }) { x, y, z, state ->
+                    chunkSet(state.block, key).add(fastVectorOf(x, y, z))
+                }
+            }
+        }
+
+        internal fun indexLoaded(chunks: AtomicReferenceArray<WorldChunk?>) {
+            for (i in 0 until chunks.length()) chunks.get(i)?.let { index(it) }
+        }
+
+        internal fun update(pos: BlockPos, from: Block, to: Block) {
+            if (from !in blocks && to !in blocks) return
+
+            lock.write {
+                val key = ChunkPos.toLong(pos.x shr 4, pos.z shr 4)
+                val vector = pos.toFastVec()
+
+                if (from in blocks) positions.get(from)?.get(key)?.remove(vector)
+                if (to in blocks) chunkSet(to, key).add(vector)
+            }
+        }
+
+        internal fun drop(chunk: Long) = lock.write {
+            positions.values.forEach { it.remove(chunk) }
+        }
+
+        internal fun clear() = lock.write {
+            positions.clear()
+        }
+
+        private fun chunkSet(block: Block, chunk: Long): LongOpenHashSet {
+            val chunks = positions.get(block) ?: Long2ObjectOpenHashMap<LongOpenHashSet>().also { positions.put(block, it) }
+            return chunks.get(chunk) ?: LongOpenHashSet().also { chunks.put(chunk, it) }
+        }
+    }
+}
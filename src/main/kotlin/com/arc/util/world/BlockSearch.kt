@@ -0,0 +1,203 @@
+package com.arc.util.world
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap
+import net.minecraft.block.BlockState
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.world.World
+import net.minecraft.world.chunk.ChunkSection
+import net.minecraft.world.chunk.PalettedContainer
+
+/**
+ * Searches block states through the palettes of the chunk sections instead of the world.
+ *
+ * The filter is evaluated once per palette entry. Sections whose palette contains no matching state
+ * are skipped without visiting a single block, and the remaining sections are scanned by reading the
+ * palette indices straight out of their packed storage.
+ *
+ * Sections are read without locking them. Callers off the game thread may see a section while a block is set,
+ * and palette entries appended during the scan are filtered as they are found instead of failing the lookup.
+ */
+object BlockSearch {
+    /**
+     * Visits every block state inside [box] which matches the [filter].
+     * Positions in unloaded chunks are skipped.
+     *
+     * @param action Called with the coordinates and the state of each match
+     */
+    inline fun World.searchBlocks(
+        box: BlockBox,
+        noinline filter: (BlockState) -> Boolean,
+        action: (x: Int, y: Int, z: Int, state: BlockState) -> Unit,
+    ) {
+        val minY = box.minY.coerceAtLeast(bottomY)
+        val maxY = box.maxY.coerceAtMost(topYInclusive)
+        if (minY > maxY) return
+
+        for (chunkX in (box.minX shr 4)..(box.maxX shr 4)) {
+            for (chunkZ in (box.minZ shr 4)..(box.maxZ shr 4)) {
+                if (!chunkManager.isChunkLoaded(chunkX, chunkZ)) continue
+                val chunk = getChunk(chunkX, chunkZ)
+
+                for (sectionY in (minY shr 4)..(maxY shr 4)) {
+                    val section = chunk.getSection(getSectionIndex(ChunkSectionPos.getBlockCoord(sectionY)))
+                    val sectionBox = BlockBox(
+                        ChunkSectionPos.getBlockCoord(chunkX), ChunkSectionPos.getBlockCoord(sectionY), ChunkSectionPos.getBlockCoord(chunkZ),
+                        ChunkSectionPos.getBlockCoord(chunkX) + 15, ChunkSectionPos.getBlockCoord(sectionY) + 15, ChunkSectionPos.getBlockCoord(chunkZ) + 15,
+                    )
+                    searchSection(section, sectionBox, box, filter, action)
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits the block states of one [section] inside [bounds] which match the [filter].
+     *
+     * @param origin The block bounds of the section
+     * @return Whether the section was scanned, `false` if its palette cannot match
+     */
+    inline fun searchSection(
+        section: ChunkSection,
+        origin: BlockBox,
+        bounds: BlockBox,
+        noinline filter: (BlockState) -> Boolean,
+        action: (x: Int, y: Int, z: Int, state: BlockState) -> Unit,
+    ) = searchSection(section.blockStateContainer, origin, bounds, filter, action)
+
+    /**
+     * Visits the block states of one section's [container] inside [bounds] which match the [filter].
+     *
+     * @param origin The block bounds of the section
+     * @return Whether the section was scanned, `false` if its palette cannot match
+     */
+    inline fun searchSection(
+        container: PalettedContainer<BlockState>,
+        origin: BlockBox,
+        bounds: BlockBox,
+        noinline filter: (BlockState) -> Boolean,
+        action: (x: Int, y: Int, z: Int, state: BlockState) -> Unit,
+    ): Boolean {
+        val data = container.data
+        val palette = data.palette()
+        val storage = data.storage()
+
+        val matches = matchingPalette(palette.size) { filter(palette.get(it)) } ?: return false
+
+        val fromX = maxOf(bounds.minX, origin.minX) - origin.minX
+        val fromY = maxOf(bounds.minY, origin.minY) - origin.minY
+        val fromZ = maxOf(bounds.minZ, origin.minZ) - origin.minZ
+        val toX = minOf(bounds.maxX, origin.maxX) - origin.minX
+        val toY = minOf(bounds.maxY, origin.maxY) - origin.minY
+        val toZ = minOf(bounds.maxZ, origin.maxZ) - origin.minZ
+
+        // Storage indices are ordered y, z, x, see PalettedContainer.computeIndex
+        for (y in fromY..toY) for (z in fromZ..toZ) for (x in fromX..toX) {
+            val id = storage.get(y shl 8 or (z shl 4) or x)
+            val state: BlockState
+            if (id < matches.size) {
+                if (!matches[id]) continue
+                state = palette.get(id)
+            } else {
+                // Added to the palette by a concurrent block update after it was evaluated
+                state = palette.get(id)
+                if (!filter(state)) continue
+            }
+
+            action(origin.minX + x, origin.minY + y, origin.minZ + z, state)
+        }
+
+        return true
+    }
+
+    /**
+     * Evaluates [matches] for every palette index, or returns `null` if none matches.
+     */
+    @PublishedApi
+    internal inline fun matchingPalette(size: Int, matches: (Int) -> Boolean): BooleanArray? {
+        var any = false
+        val result = BooleanArray(size) { id -> matches(id).also { any = any || it } }
+        return if (any) result else null
+    }
+
+    /**
+     * Searches a large region spread over multiple ticks.
+     *
+     * The sections overlapping [box] are scanned in order, at most [sectionsPerStep] of them per [step].
+     * Matches collected so far are available in [results] while the search is running.
+     */
+    class Incremental(
+        val box: BlockBox,
+        private val sectionsPerStep: Int,
+        private val filter: (BlockState) -> Boolean,
+    ) {
+        private val fromX = box.minX shr 4
+        private val fromY = box.minY shr 4
+        private val fromZ = box.minZ shr 4
+        private val sizeX = (box.maxX shr 4) - fromX + 1
+        private val sizeY = (box.maxY shr 4) - fromY + 1
+        private val sizeZ = (box.maxZ shr 4) - fromZ + 1
+        private val total = sizeX * sizeY * sizeZ
+
+        private var next = 0
+
+        /** The matches by [BlockPos.asLong], in scan order */
+        val results = Long2ObjectLinkedOpenHashMap<BlockState>()
+
+        /** Whether every section has been scanned */
+        val isDone get() = next >= total
+
+        /** The share of sections scanned so far */
+        val progress get() = if (total == 0) 1.0 else next.toDouble() / total
+
+        /**
+         * Scans the next sections of the [world]. Sections outside the world or in unloaded chunks are skipped.
+         *
+         * @return Whether the search is done
+         */
+        fun step(world: World) = step { sectionX, sectionY, sectionZ ->
+            val blockY = ChunkSectionPos.getBlockCoord(sectionY)
+            if (blockY + 15 < world.bottomY || blockY > world.topYInclusive) return@step null
+            if (!world.chunkManager.isChunkLoaded(sectionX, sectionZ)) return@step null
+
+            world.getChunk(sectionX, sectionZ).getSection(world.getSectionIndex(blockY)).blockStateContainer
+        }
+
+        /**
+         * Scans the next sections, as provided by [sections] by their section coordinates or `null` to skip them.
+         *
+         * @return Whether the search is done
+         */
+        fun step(sections: (x: Int, y: Int, z: Int) -> PalettedContainer<BlockState>?): Boolean {
+            val until = minOf(total, next + sectionsPerStep)
+
+            while (next < until) {
+                val index = next++
+                val sectionX = fromX + index % sizeX
+                val sectionZ = fromZ + index / sizeX % sizeZ
+                val sectionY = fromY + index / (sizeX * sizeZ)
+
+                val container = sections(sectionX, sectionY, sectionZ) ?: continue
+                val origin = BlockBox(
+                    ChunkSectionPos.getBlockCoord(sectionX), ChunkSectionPos.getBlockCoord(sectionY), ChunkSectionPos.getBlockCoord(sectionZ),
+                    ChunkSectionPos.getBlockCoord(sectionX) + 15, ChunkSectionPos.getBlockCoord(sectionY) + 15, ChunkSectionPos.getBlockCoord(sectionZ) + 15,
+                )
+
+                searchSection(container, origin, box, filter) { x, y, z, state ->
+                    results.put(BlockPos.asLong(x, y, z), state)
+                }
+            }
+
+            return isDone
+        }
+
+        /**
+         * Discards the results and starts over from the first section.
+         */
+        fun restart() {
+            next = 0
+            results.clear()
+        }
+    }
+}
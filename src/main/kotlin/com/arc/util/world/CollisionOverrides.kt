@@ -0,0 +1,135 @@
+package com.arc.util.world
+
+import com.arc.event.EventFlow
+import com.arc.event.EventFlow.post
+import com.arc.event.Muteable
+import com.arc.event.events.WorldEvent
+import net.minecraft.block.Block
+import net.minecraft.block.BlockState
+import net.minecraft.client.world.ClientWorld
+import net.minecraft.util.math.BlockPos
+import net.minecraft.util.shape.VoxelShape
+import net.minecraft.world.CollisionView
+import java.util.concurrent.CopyOnWriteArrayList
+
+/**
+ * Replaces the collision shapes of block states for the collision queries of the client world.
+ *
+ * Queries of any other world, like the integrated server's, keep their shapes,
+ * so overrides never change how entities simulated by the server collide.
+ *
+ * Overrides are registered once and compiled into a table indexed by block state id,
+ * so a collision query only pays for an array read per visited block.
+ * [WorldEvent.Collision] is still posted for listeners that need the position,
+ * but only constructed while at least one of them would be notified.
+ *
+ * ```kotlin
+ * CollisionOverrides.register(this, VoxelShapes.fullCube(), Blocks.WATER) { shouldWork }
+ * ```
+ */
+object CollisionOverrides {
+    private val overrides = CopyOnWriteArrayList<Override>()
+    private val collisionEvent = WorldEvent.Collision::class
+
+    /**
+     * The overrides of every state id, `null` for states without any. Rebuilt lazily after a change.
+     * Changes and rebuilds hold the same monitor, so a change can never be lost to a rebuild in progress.
+     */
+    @Volatile
+    private var table: Array<Array<Override>?>? = null
+
+    /**
+     * Replaces the collision shape of every state of the given [blocks] with [shape] while [active] holds.
+     * Nothing is replaced while the [owner] is muted.
+     */
+    fun register(owner: Any, shape: VoxelShape, vararg blocks: Block, active: () -> Boolean = { true }) =
+        register(owner, shape, { it.block in blocks }, active)
+
+    /**
+     * Replaces the collision shape of every state matching [states] with [shape] while [active] holds.
+     * [states] is evaluated once per state when the table is built, [active] whenever a matching state is collided with.
+     * Nothing is replaced while the [owner] is muted.
+     */
+    @Synchronized
+    fun register(owner: Any, shape: VoxelShape, states: (BlockState) -> Boolean, active: () -> Boolean = { true }) =
+        Override(owner, shape, states, active).also {
+            overrides.add(it)
+            table = null
+        }
+
+    /**
+     * Removes the [override].
+     */
+    @Synchronized
+    fun unregister(override: Override) {
+        if (overrides.remove(override)) table = null
+    }
+
+    /**
+     * Applies the overrides and [WorldEvent.Collision] listeners to the collision [shape] of [state] at [pos].
+     * Returns [shape] unchanged unless the query is made on the client [world].
+     */
+    @JvmStatic
+    fun wrap(world: CollisionView, pos: BlockPos, state: BlockState, shape: VoxelShape): VoxelShape {
+        if (world !is ClientWorld) return shape
+
+        val overridden = apply(state, shape)
+        if (!isEventObserved()) return overridden
+
+        return WorldEvent.Collision(pos, state, overridden).post().shape
+    }
+
+    /**
+     * Returns the shape of the first active override of [state], or [shape] if there is none.
+     */
+    @JvmStatic
+    fun apply(state: BlockState, shape: VoxelShape): VoxelShape {
+        if (overrides.isEmpty()) return shape
+
+        val table = table ?: build()
+        val id = Block.getRawIdFromState(state)
+        if (id !in table.indices) return shape
+
+        val candidates = table[id] ?: return shape
+        for (override in candidates) {
+            if (override.isActive) return override.shape
+        }
+
+        return shape
+    }
+
+    /**
+     * Whether a posted [WorldEvent.Collision] would reach any listener.
+     */
+    @JvmStatic
+    fun isEventObserved() =
+        EventFlow.syncListeners.dispatch(collisionEvent)?.isActive == true
+                || EventFlow.hasConcurrentReceivers(collisionEvent)
+
+    @Synchronized
+    private fun build(): Array<Array<Override>?> {
+        table?.let { return it }
+
+        val registered = overrides.toTypedArray()
+        val built = arrayOfNulls<Array<Override>>(Block.STATE_IDS.size())
+
+        for (id in built.indices) {
+            val state = Block.STATE_IDS.get(id) ?: continue
+            built[id] = registered.filter { it.states(state) }.takeIf { it.isNotEmpty() }?.toTypedArray()
+        }
+
+        return built.also { table = it }
+    }
+
+    /**
+     * A registered collision shape override, see [register].
+     */
+    class Override internal constructor(
+        val owner: Any,
+        val shape: VoxelShape,
+        internal val states: (BlockState) -> Boolean,
+        private val active: () -> Boolean,
+    ) {
+        val isActive get() = (owner as? Muteable)?.isMuted != true && active()
+    }
+}
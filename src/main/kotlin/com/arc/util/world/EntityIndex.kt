@@ -0,0 +1,241 @@
+package com.arc.util.world
+
+import com.arc.core.Loadable
+import com.arc.event.events.EntityEvent
+import com.arc.event.events.TickEvent
+import com.arc.event.events.WorldEvent
+import com.arc.event.listener.SafeListener.Companion.listen
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap
+import it.unimi.dsi.fastutil.objects.ObjectArrayList
+import it.unimi.dsi.fastutil.objects.Reference2ObjectOpenHashMap
+import net.minecraft.entity.Entity
+import net.minecraft.util.math.Box
+import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.util.math.Vec3d
+import net.minecraft.world.World
+import java.util.concurrent.locks.ReentrantReadWriteLock
+import kotlin.concurrent.read
+import kotlin.concurrent.write
+
+/**
+ * A spatial index of the entities in the client world, bucketed by chunk section and by entity class.
+ *
+ * Entities are added and removed on [EntityEvent.Spawn] and [EntityEvent.Removal].
+ * At the start and the end of every tick, entities that crossed into another section are moved,
+ * which covers both movement packets and client side movement, and removed or stale entities are dropped.
+ *
+ * Queries visit matching entities in place without allocating sequences, and only check the
+ * distance of entities in buckets whose class is assignable to the requested type.
+ * The index is guarded by a read-write lock, so it can be queried from worker threads.
+ */
+object EntityIndex : Loadable {
+    @PublishedApi
+    internal val lock = ReentrantReadWriteLock()
+
+    private val sections = Long2ObjectOpenHashMap<Section>()
+    private val entities = Int2ObjectOpenHashMap<Entity>()
+    private val sectionOf = Int2LongOpenHashMap()
+
+    /**
+     * The amount of indexed entities
+     */
+    val size get() = lock.read { entities.size }
+
+    override fun load() = "Loaded Entity Index"
+
+    init {
+        listen<EntityEvent.Spawn>(priority = Int.MIN_VALUE) { event ->
+            if (!event.isCanceled()) lock.write { add(event.entity) }
+        }
+
+        listen<EntityEvent.Removal> { event ->
+            lock.write { remove(event.entity.id) }
+        }
+
+        listen<TickEvent.Pre> { lock.write { refresh(world) } }
+        listen<TickEvent.Post> { lock.write { refresh(world) } }
+
+        listen<WorldEvent.Join> { lock.write { clear() } }
+    }
+
+    /**
+     * Visits every entity of type [T] within [range] of [pos], except [exclude].
+     */
+    inline fun <reified T : Entity> forEachInRange(
+        pos: Vec3d,
+        range: Double,
+        exclude: Entity? = null,
+        action: (T) -> Unit,
+    ) {
+        val rangeSq = range * range
+        forEachIn(
+            T::class.java,
+            pos.x - range, pos.y - range, pos.z - range,
+            pos.x + range, pos.y + range, pos.z + range,
+        ) { entity ->
+            if (entity !== exclude && entity.squaredDistanceTo(pos) <= rangeSq) action(entity as T)
+        }
+    }
+
+    /**
+     * Visits every entity of type [T] whose bounding box intersects [box], except [exclude].
+     */
+    inline fun <reified T : Entity> forEachInBox(
+        box: Box,
+        exclude: Entity? = null,
+        action: (T) -> Unit,
+    ) {
+        // Bounding boxes extend past the section of their position, at most by half an entity width
+        forEachIn(
+            T::class.java,
+            box.minX - MAX_HALF_WIDTH, box.minY - MAX_HEIGHT, box.minZ - MAX_HALF_WIDTH,
+            box.maxX + MAX_HALF_WIDTH, box.maxY, box.maxZ + MAX_HALF_WIDTH,
+        ) { entity ->
+            if (entity !== exclude && entity.boundingBox.intersects(box)) action(entity as T)
+        }
+    }
+
+    /**
+     * Collects every entity of type [T] within [range] of [pos], except [exclude].
+     */
+    inline fun <reified T : Entity> inRange(
+        pos: Vec3d,
+        range: Double,
+        exclude: Entity? = null,
+    ): List<T> = ObjectArrayList<T>().also { list -> forEachInRange<T>(pos, range, exclude) { list.add(it) } }
+
+    /**
+     * Visits the entities assignable to [type] in every section overlapping the given bounds.
+     * The read lock is held for the whole visit, [action] must not modify the world.
+     */
+    @PublishedApi
+    internal inline fun forEachIn(
+        type: Class<*>,
+        minX: Double, minY: Double, minZ: Double,
+        maxX: Double, maxY: Double, maxZ: Double,
+        action: (Entity) -> Unit,
+    ) {
+        val fromX = ChunkSectionPos.getSectionCoord(minX)
+        val fromY = ChunkSectionPos.getSectionCoord(minY)
+        val fromZ = ChunkSectionPos.getSectionCoord(minZ)
+        val toX = ChunkSectionPos.getSectionCoord(maxX)
+        val toY = ChunkSectionPos.getSectionCoord(maxY)
+        val toZ = ChunkSectionPos.getSectionCoord(maxZ)
+
+        lock.read {
+            for (x in fromX..toX) for (z in fromZ..toZ) for (y in fromY..toY) {
+                val section = section(ChunkSectionPos.asLong(x, y, z)) ?: continue
+                section.forEachAssignable(type, action)
+            }
+        }
+    }
+
+    @PublishedApi
+    internal fun section(key: Long): Section? = sections.get(key)
+
+    private fun add(entity: Entity) {
+        remove(entity.id)
+
+        val key = entity.sectionKey
+        entities.put(entity.id, entity)
+        sectionOf.put(entity.id, key)
+        link(entity, key)
+    }
+
+    private fun remove(id: Int) {
+        val entity = entities.remove(id) ?: return
+        unlink(entity, sectionOf.remove(id))
+    }
+
+    private fun link(entity: Entity, key: Long) {
+        val section = sections.get(key) ?: Section().also { sections.put(key, it) }
+        section.add(entity)
+    }
+
+    private fun unlink(entity: Entity, key: Long) {
+        val section = sections.get(key) ?: return
+        section.remove(entity)
+        if (section.isEmpty) sections.remove(key)
+    }
+
+    private fun refresh(world: World) {
+        val iterator = entities.values.iterator()
+        while (iterator.hasNext()) {
+            val entity = iterator.next()
+            val previous = sectionOf.get(entity.id)
+
+            // Respawning replaces the world without removing the entities of the previous one
+            if (entity.isRemoved || entity.world !== world) {
+                iterator.remove()
+                sectionOf.remove(entity.id)
+                unlink(entity, previous)
+                continue
+            }
+
+            val current = entity.sectionKey
+            if (current == previous) continue
+
+            unlink(entity, previous)
+            sectionOf.put(entity.id, current)
+            link(entity, current)
+        }
+    }
+
+    private fun clear() {
+        sections.clear()
+        entities.clear()
+        sectionOf.clear()
+    }
+
+    private val Entity.sectionKey
+        get() = ChunkSectionPos.asLong(
+            ChunkSectionPos.getSectionCoord(blockX),
+            ChunkSectionPos.getSectionCoord(blockY),
+            ChunkSectionPos.getSectionCoord(blockZ),
+        )
+
+    /**
+     * The entities of one chunk section, bucketed by their exact class.
+     */
+    @PublishedApi
+    internal class Section {
+        private val buckets = Reference2ObjectOpenHashMap<Class<*>, ObjectArrayList<Entity>>(4)
+
+        val isEmpty get() = buckets.isEmpty()
+
+        fun add(entity: Entity) {
+            val bucket = buckets.get(entity.javaClass) ?: ObjectArrayList<Entity>(4).also { buckets.put(entity.javaClass, it) }
+            bucket.add(entity)
+        }
+
+        fun remove(entity: Entity) {
+            val bucket = buckets.get(entity.javaClass) ?: return
+            bucket.remove(entity)
+            if (bucket.isEmpty) buckets.remove(entity.javaClass)
+        }
+
+        inline fun forEachAssignable(type: Class<*>, action: (Entity) -> Unit) {
+            val iterator = bucketIterator()
+            while (iterator.hasNext()) {
+                val bucket = iterator.next()
+                if (!type.isAssignableFrom(bucket.key)) continue
+
+                val entities = bucket.value
+                for (i in 0 until entities.size) action(entities[i])
+            }
+        }
+
+        @PublishedApi
+        internal fun bucketIterator() = buckets.reference2ObjectEntrySet().fastIterator()
+    }
+
+    /** Half of the widest vanilla entity hitbox (the ghast, at 4 blocks) */
+    @PublishedApi
+    internal const val MAX_HALF_WIDTH = 2.0
+
+    /** The tallest vanilla entity hitbox, the giant at 12 blocks */
+    @PublishedApi
+    internal const val MAX_HEIGHT = 12.0
+}
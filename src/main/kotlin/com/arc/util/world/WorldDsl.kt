@@ -22,8 +22,8 @@ annotation class BlockMarker
 /**
  * Example:
  * ```
- * val blocks = blockSearch(range = Vec3i(10, 10, 10)) {
- *     it.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not diamond blocks
+ * val blocks = blockSearch(range = Vec3i(10, 10, 10)) { pos, state ->
+ *     pos.y < 16 && state.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not deep diamond blocks
  * }
  *
  * blocks.forEach { (pos, state) ->
@@ -49,8 +49,8 @@ fun SafeContext.blockSearch(
 /**
  * Example:
  * ```
- * val blocks = blockSearch(range = Vec3i(10, 10, 10)) {
- *     it.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not diamond blocks
+ * val blocks = blockSearch(range = Vec3i(10, 10, 10)) { pos, state ->
+ *     pos.y < 16 && state.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not deep diamond blocks
  * }
  *
  * blocks.forEach { (pos, state) ->
@@ -66,6 +66,48 @@ fun SafeContext.blockSearch(
     filter: (BlockPos, BlockState) -> Boolean = { _, _ -> true },
 ) = blockSearch(Vec3i(range, range, range), pos, Vec3i(step, step, step), filter)
 
+/**
+ * Searches by block state only, which lets sections without a matching state in their palette be skipped.
+ *
+ * Example:
+ * ```
+ * val blocks = blockSearch(range = Vec3i(10, 10, 10)) {
+ *     it.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not diamond blocks
+ * }
+ * ```
+ */
+@BlockMarker
+fun SafeContext.blockSearch(
+    range: Vec3i,
+    pos: BlockPos = player.blockPos,
+    step: Vec3i = Vec3i(1, 1, 1),
+    states: (BlockState) -> Boolean,
+) =
+    internalSearchBlocks(
+        pos.toFastVec(),
+        range.toFastVec(),
+        step.toFastVec(),
+        states,
+    ).mapKeys { it.key.toBlockPos() }
+
+/**
+ * Searches by block state only, which lets sections without a matching state in their palette be skipped.
+ *
+ * Example:
+ * ```
+ * val blocks = blockSearch(range = 10) {
+ *     it.isOf(Blocks.DIAMOND_BLOCK) // Filter out blocks that are not diamond blocks
+ * }
+ * ```
+ */
+@BlockMarker
+fun SafeContext.blockSearch(
+    range: Int,
+    pos: BlockPos = player.blockPos,
+    step: Int = 1,
+    states: (BlockState) -> Boolean,
+) = blockSearch(Vec3i(range, range, range), pos, Vec3i(step, step, step), states)
+
 @DslMarker
 annotation class BlockEntityMarker
 
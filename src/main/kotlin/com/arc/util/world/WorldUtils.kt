@@ -2,17 +2,20 @@
 package com.arc.util.world
 
 import com.arc.context.SafeContext
-import com.arc.util.extension.getBlockState
 import com.arc.util.extension.getFluidState
+import com.arc.util.world.BlockSearch.searchBlocks
 import com.arc.util.world.WorldUtils.internalGetEntities
 import com.arc.util.world.WorldUtils.internalGetFastEntities
+import it.unimi.dsi.fastutil.objects.ObjectArrayList
 import net.minecraft.block.BlockState
 import net.minecraft.block.entity.BlockEntity
 import net.minecraft.entity.Entity
 import net.minecraft.fluid.Fluid
 import net.minecraft.fluid.FluidState
+import net.minecraft.util.math.BlockBox
 import net.minecraft.util.math.BlockPos
 import net.minecraft.util.math.ChunkSectionPos
+import net.minecraft.util.math.Vec3d
 import kotlin.collections.asSequence
 import kotlin.math.ceil
 import kotlin.sequences.filter
@@ -24,9 +27,10 @@ object WorldUtils {
         )
 
     /**
-     * Returns a sequence of entities.
+     * Returns a list of entities.
      *
-     * This implementation is optimized for performance at small distances.
+     * The entities are looked up in the chunk sections of the [EntityIndex],
+     * which makes this the preferred search at small distances and safe to call from worker threads.
      * For distances larger than 64 blocks, it is recommended to use the [internalGetEntities] function instead.
      *
      * @see [fastEntitySearch]
@@ -35,32 +39,15 @@ object WorldUtils {
         pos: FastVector,
         distance: Double,
         crossinline filter: (T) -> Boolean = { true },
-    ): Sequence<T> {
-        val chunks = ceil(distance / 16).toInt()
-        val sectionX = pos.x shr 4
-        val sectionY = pos.y shr 4
-        val sectionZ = pos.z shr 4
+    ): List<T> {
+        val center = Vec3d(pos.x.toDouble(), pos.y.toDouble(), pos.z.toDouble())
+        val entities = ObjectArrayList<T>()
 
-        return sequence {
-            for (x in sectionX - chunks..sectionX + chunks) {
-                for (y in sectionY - chunks..sectionY + chunks) {
-                    for (z in sectionZ - chunks..sectionZ + chunks) {
-                        yieldAll(
-                            world.entityManager.cache
-                                .findTrackingSection(ChunkSectionPos.asLong(x, y, z))
-                                ?.collection
-                                ?.asSequence()
-                                ?.filterIsInstance<T>()
-                                ?.filter {
-                                    it != player &&
-                                            pos distSq it.pos <= distance * distance &&
-                                            filter(it)
-                                } ?: emptySequence()
-                        )
-                    }
-                }
-            }
+        EntityIndex.forEachInRange<T>(center, distance, exclude = player) {
+            if (filter(it)) entities.add(it)
         }
+
+        return entities
     }
 
     /**
@@ -117,20 +104,35 @@ object WorldUtils {
 
     /**
      * Returns a map of positions to block states.
+     *
+     * The [states] filter is checked against the palette of each chunk section first,
+     * so sections which cannot contain a match are skipped entirely.
+     *
      * @see [blockSearch]
+     * @see [BlockSearch]
      */
     inline fun SafeContext.internalSearchBlocks(
         pos: FastVector,
         range: FastVector = F_ONE times 7,
         step: FastVector = F_ONE,
+        noinline states: (BlockState) -> Boolean = { true },
         crossinline filter: (FastVector, BlockState) -> Boolean = { _, _ -> true },
-    ) = fastSequence(pos, range, step)
-        .filter {
-            val state = world.getBlockState(it)
-            filter(it, state)
+    ): Map<FastVector, BlockState> {
+        val box = BlockBox(
+            pos.x - range.x, pos.y - range.y, pos.z - range.z,
+            pos.x + range.x, pos.y + range.y, pos.z + range.z,
+        )
+        val blocks = LinkedHashMap<FastVector, BlockState>()
+
+        world.searchBlocks(box, states) { x, y, z, state ->
+            if ((x - box.minX) % step.x != 0 || (y - box.minY) % step.y != 0 || (z - box.minZ) % step.z != 0) return@searchBlocks
+
+            val vec = fastVectorOf(x, y, z)
+            if (filter(vec, state)) blocks[vec] = state
         }
-        .associateWith { world.getBlockState(it) }
 
+        return blocks
+    }
 
     /**
      * Returns a map of positions to fluid states.
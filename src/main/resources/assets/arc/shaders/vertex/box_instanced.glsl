@@ -0,0 +1,72 @@
+#version 330 core
+
+layout (location = 0) in vec3 prevMin;
+layout (location = 1) in vec3 prevMax;
+layout (location = 2) in vec3 currMin;
+layout (location = 3) in vec3 currMax;
+layout (location = 4) in vec4 faceColor;
+layout (location = 5) in vec4 edgeColor;
+layout (location = 6) in float mask;
+
+out vec4 v_Color;
+
+uniform mat4 u_ProjModel;
+uniform mat4 u_View;
+uniform float u_TickDelta;
+uniform bool u_Edges;
+
+// Corner index = x + 2y + 4z, where 1 is the max side of the box
+const int FACE_CORNERS[36] = int[](
+    1, 3, 7, 7, 5, 1, // East
+    0, 4, 6, 6, 2, 0, // West
+    2, 6, 7, 7, 3, 2, // Up
+    0, 1, 5, 5, 4, 0, // Down
+    4, 5, 7, 7, 6, 4, // South
+    0, 2, 3, 3, 1, 0  // North
+);
+
+const int EDGE_CORNERS[24] = int[](
+    2, 3, 6, 7, 2, 6, 7, 3,
+    0, 1, 4, 5, 0, 4, 1, 5,
+    2, 0, 3, 1, 7, 5, 6, 4
+);
+
+// The two sides touching each edge, see DirectionMask
+const int EDGE_SIDES[12] = int[](
+    36, 20, 6, 5,
+    40, 24, 10, 9,
+    34, 33, 17, 18
+);
+
+const int AND_MODE = 64;
+
+void main()
+{
+    int bits = int(mask);
+    int sides = bits & 63;
+
+    int corner;
+    bool visible;
+
+    if (u_Edges) {
+        corner = EDGE_CORNERS[gl_VertexID];
+        int touching = sides & EDGE_SIDES[gl_VertexID / 2];
+        visible = (bits & AND_MODE) != 0 ? touching == EDGE_SIDES[gl_VertexID / 2] : touching != 0;
+        v_Color = edgeColor;
+    } else {
+        corner = FACE_CORNERS[gl_VertexID];
+        visible = (sides & (1 << (gl_VertexID / 6))) != 0;
+        v_Color = faceColor;
+    }
+
+    if (!visible) {
+        // Outside of the clip volume, the primitive is discarded
+        gl_Position = vec4(2.0, 2.0, 2.0, 1.0);
+        return;
+    }
+
+    vec3 select = vec3(corner & 1, (corner >> 1) & 1, (corner >> 2) & 1);
+    vec3 pos = mix(mix(prevMin, prevMax, select), mix(currMin, currMax, select), u_TickDelta);
+
+    gl_Position = u_ProjModel * u_View * vec4(pos, 1.0);
+}
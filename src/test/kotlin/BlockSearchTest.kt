@@ -0,0 +1,90 @@
+import com.arc.util.world.BlockSearch
+import net.minecraft.Bootstrap
+import net.minecraft.SharedConstants
+import net.minecraft.block.Block
+import net.minecraft.block.BlockState
+import net.minecraft.block.Blocks
+import net.minecraft.util.math.BlockBox
+import net.minecraft.util.math.BlockPos
+import net.minecraft.world.chunk.PalettedContainer
+import kotlin.test.BeforeTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class BlockSearchTest {
+    private lateinit var sections: Map<Triple<Int, Int, Int>, PalettedContainer<BlockState>>
+
+    @BeforeTest
+    fun setUp() {
+        SharedConstants.createGameVersion()
+        Bootstrap.initialize()
+
+        // Four sections side by side, one diamond block in each and a gold block in the last one
+        sections = buildMap {
+            for (x in 0..1) for (z in 0..1) {
+                val container = PalettedContainer(Block.STATE_IDS, Blocks.AIR.defaultState, PalettedContainer.PaletteProvider.BLOCK_STATE)
+                container.set(x + 1, 2, z + 3, Blocks.DIAMOND_BLOCK.defaultState)
+                if (x == 1 && z == 1) container.set(8, 8, 8, Blocks.GOLD_BLOCK.defaultState)
+                put(Triple(x, 0, z), container)
+            }
+        }
+    }
+
+    private fun BlockSearch.Incremental.step() = step { x, y, z -> sections[Triple(x, y, z)] }
+
+    @Test
+    fun `test incremental search scans the sections over several steps`() {
+        val search = BlockSearch.Incremental(BlockBox(0, 0, 0, 31, 15, 31), 1) { it.isOf(Blocks.DIAMOND_BLOCK) }
+
+        assertFalse(search.step())
+        assertEquals(listOf(BlockPos(1, 2, 3)), search.results.keys.map { BlockPos.fromLong(it) })
+        assertEquals(0.25, search.progress)
+
+        assertFalse(search.step())
+        assertFalse(search.step())
+        assertEquals(3, search.results.size)
+
+        assertTrue(search.step())
+        assertTrue(search.isDone)
+        assertEquals(
+            setOf(BlockPos(1, 2, 3), BlockPos(18, 2, 3), BlockPos(1, 2, 20), BlockPos(18, 2, 20)),
+            search.results.keys.map { BlockPos.fromLong(it) }.toSet(),
+        )
+        assertTrue(search.results.values.all { it.isOf(Blocks.DIAMOND_BLOCK) })
+
+        // Stepping a finished search does nothing
+        assertTrue(search.step())
+        assertEquals(4, search.results.size)
+    }
+
+    @Test
+    fun `test incremental search only reports matches inside the box`() {
+        val search = BlockSearch.Incremental(BlockBox(4, 0, 4, 24, 15, 24), 2) { !it.isAir }
+
+        assertFalse(search.step())
+        assertTrue(search.step())
+
+        // The diamond blocks of the first three sections lie below x or z 4
+        assertEquals(
+            setOf(BlockPos(18, 2, 20), BlockPos(24, 8, 24)),
+            search.results.keys.map { BlockPos.fromLong(it) }.toSet(),
+        )
+    }
+
+    @Test
+    fun `test incremental search skips missing sections and restarts`() {
+        val search = BlockSearch.Incremental(BlockBox(0, 0, 0, 31, 31, 31), 8) { it.isOf(Blocks.DIAMOND_BLOCK) }
+
+        // The upper four sections do not exist and are skipped
+        assertTrue(search.step())
+        assertEquals(4, search.results.size)
+
+        search.restart()
+        assertFalse(search.isDone)
+        assertEquals(0, search.results.size)
+        assertTrue(search.step())
+        assertEquals(4, search.results.size)
+    }
+}
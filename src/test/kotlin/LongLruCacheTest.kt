@@ -0,0 +1,122 @@
+import com.arc.util.collections.LongLruCache
+import java.util.concurrent.TimeUnit
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertNull
+
+class LongLruCacheTest {
+    @Test
+    fun `test evicts the least recently used entry`() {
+        val cache = LongLruCache<String>(3, 10_000)
+        cache[1] = "One"
+        cache[2] = "Two"
+        cache[3] = "Three"
+
+        // Reading the first entry makes the second one the least recently used
+        assertEquals("One", cache[1])
+        cache[4] = "Four"
+
+        assertEquals(3, cache.size)
+        assertNull(cache[2])
+        assertEquals("One", cache[1])
+        assertEquals("Three", cache[3])
+        assertEquals("Four", cache[4])
+        assertEquals(1, cache.evictions)
+    }
+
+    @Test
+    fun `test entries expire after max age`() {
+        val cache = LongLruCache<String>(3, 500)
+        cache[1] = "One"
+
+        TimeUnit.MILLISECONDS.sleep(1000)
+
+        assertNull(cache[1])
+        assertEquals(0, cache.size)
+        assertEquals("Two", cache.getOrPut(1) { "Two" })
+        assertEquals(1, cache.misses)
+    }
+
+    @Test
+    fun `test get or put only computes on a miss`() {
+        val cache = LongLruCache<String>(3, 10_000)
+        var computations = 0
+
+        repeat(3) { cache.getOrPut(1) { computations++; "One" } }
+
+        assertEquals(1, computations)
+        assertEquals(2, cache.hits)
+        assertEquals(1, cache.misses)
+    }
+
+    @Test
+    fun `test invalidation during compute discards the value`() {
+        val cache = LongLruCache<String>(3, 10_000)
+
+        val value = cache.getOrPut(1) {
+            cache.invalidate(1)
+            "Stale"
+        }
+
+        // The caller still gets the value, but it is not cached
+        assertEquals("Stale", value)
+        assertNull(cache[1])
+        assertEquals("Fresh", cache.getOrPut(1) { "Fresh" })
+        assertEquals("Fresh", cache[1])
+    }
+
+    @Test
+    fun `test predicate invalidation during compute discards the value`() {
+        val cache = LongLruCache<String>(3, 10_000)
+        cache[2] = "Two"
+
+        cache.getOrPut(1) {
+            cache.invalidateIf { it <= 2L }
+            "Stale"
+        }
+
+        assertNull(cache[1])
+        assertNull(cache[2])
+    }
+
+    @Test
+    fun `test invalidating other keys during compute keeps the value`() {
+        val cache = LongLruCache<String>(3, 10_000)
+        cache[2] = "Two"
+
+        cache.getOrPut(1) {
+            cache.invalidate(2)
+            cache.invalidateIf { it == 3L }
+            "One"
+        }
+
+        assertEquals("One", cache[1])
+        assertNull(cache[2])
+    }
+
+    @Test
+    fun `test computation started after the invalidation is stored`() {
+        val cache = LongLruCache<String>(3, 10_000)
+
+        // The outer computation is invalidated, the inner one starts afterwards and is not
+        cache.getOrPut(1) {
+            cache.invalidate(1)
+            cache.getOrPut(1) { "Fresh" }
+            "Stale"
+        }
+
+        assertEquals("Fresh", cache[1])
+    }
+
+    @Test
+    fun `test failed computation is not stored`() {
+        val cache = LongLruCache<String>(3, 10_000)
+
+        assertFailsWith<IllegalStateException> { cache.getOrPut(1) { error("Failed") } }
+
+        assertNull(cache[1])
+        assertEquals("One", cache.getOrPut(1) { "One" })
+        assertEquals("One", cache[1])
+    }
+}
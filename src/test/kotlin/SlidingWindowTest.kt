@@ -0,0 +1,78 @@
+import com.arc.util.collections.SlidingWindow
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertTrue
+
+class SlidingWindowTest {
+    private val millis = 1_000_000L
+
+    @Test
+    fun `test admits up to the limit`() {
+        val window = SlidingWindow(3, 1000)
+
+        assertTrue(window.tryAcquire(0))
+        assertTrue(window.tryAcquire(1 * millis))
+        assertTrue(window.tryAcquire(2 * millis))
+        assertFalse(window.tryAcquire(3 * millis))
+
+        assertEquals(3, window.count(3 * millis))
+        assertEquals(1, window.rejected)
+    }
+
+    @Test
+    fun `test admits again once the oldest event leaves the window`() {
+        val window = SlidingWindow(2, 1000)
+
+        assertTrue(window.tryAcquire(0))
+        assertTrue(window.tryAcquire(500 * millis))
+        assertFalse(window.tryAcquire(999 * millis))
+
+        assertTrue(window.tryAcquire(1000 * millis))
+        assertFalse(window.tryAcquire(1400 * millis))
+        assertTrue(window.tryAcquire(1500 * millis))
+    }
+
+    @Test
+    fun `test count only includes events inside the window`() {
+        val window = SlidingWindow(4, 1000)
+
+        window.tryAcquire(0)
+        window.tryAcquire(600 * millis)
+        window.tryAcquire(900 * millis)
+
+        assertEquals(3, window.count(900 * millis))
+        assertEquals(2, window.count(1200 * millis))
+        assertEquals(0, window.count(2000 * millis))
+        assertEquals(2.0, window.rate(1200 * millis))
+    }
+
+    @Test
+    fun `test concurrent callers never exceed the limit`() {
+        val threads = 8
+
+        listOf(1, 3).forEach { limit ->
+            repeat(200) {
+                val window = SlidingWindow(limit, 1000)
+                val admitted = AtomicInteger()
+                val barrier = CyclicBarrier(threads)
+
+                List(threads) {
+                    thread {
+                        barrier.await()
+                        repeat(4) { if (window.tryAcquire(0)) admitted.incrementAndGet() }
+                    }
+                }.forEach { it.join() }
+
+                // A caller may be rejected while another one is between claiming a slot and advancing the ring,
+                // but never admitted beyond the limit. The slots left over must still be free afterwards.
+                val concurrent = admitted.get()
+                assertTrue(concurrent <= limit)
+                assertEquals(limit, concurrent + (0..limit).count { window.tryAcquire(0) })
+            }
+        }
+    }
+}